@@ -0,0 +1,428 @@
+package com.noelle.leitura_de_XML.carga;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Gera CF-e SAT sintéticos com a estrutura dos reais (infCFe/ide/emit/det/prod/imposto/total/pgto e a
+ * assinatura), para testes de carga sem usar arquivos de clientes.
+ * <p>
+ * Cada emitente tem um catálogo fixo de produtos e um regime: no regime normal os itens alternam entre
+ * ICMS00 (tributado) e ICMS40 (ST, CST 60), com PISAliq/COFINSAliq ou PISNT/COFINSNT; no Simples Nacional
+ * usam ICMSSN102, PISSN e COFINSSN. Os totais do ICMSTot batem com a soma dos itens.
+ * <p>
+ * Uso: GeradorCfe saida=/tmp/corpus [zips=10] [formato=zip|xml] [parâmetros de {@link ParametrosCorpus}]
+ */
+public class GeradorCfe {
+
+    private static final DateTimeFormatter DATA = DateTimeFormatter.ofPattern("yyyyMMdd");
+    private static final DateTimeFormatter HORA = DateTimeFormatter.ofPattern("HHmmss");
+    private static final DateTimeFormatter ANO_MES = DateTimeFormatter.ofPattern("yyMM");
+    private static final LocalDate INICIO = LocalDate.of(2024, 12, 1);
+    private static final int DIAS = 31;
+
+    private static final String[] NOMES = {"OLEO", "FILTRO", "PASTILHA", "LAMPADA", "CORREIA", "VELA", "PALHETA",
+            "AMORTECEDOR", "BATERIA", "RADIADOR", "SENSOR", "BOMBA", "JUNTA", "ROLAMENTO", "DISCO", "CABO"};
+    private static final String[] COMPLEMENTOS = {"DIANT", "TRAS", "ESQ", "DIR", "5W30", "H4", "12V", "GM", "VW",
+            "FIAT", "FORD", "ACDELCO", "BOSCH", "NGK", "1.0", "1.6", "2.0"};
+    private static final String[] NCMS = {"34031900", "84212300", "87083090", "85392190", "40103900", "85111000",
+            "85129000", "87088000", "85071000", "87089100", "90262090", "84133090", "84841000", "84821010"};
+    private static final String[] UNIDADES = {"UN", "PC", "JG", "KIT"};
+    private static final String[] UNIDADES_FRACIONADAS = {"LT", "KG", "MT"};
+    private static final BigDecimal[] ALIQUOTAS_ICMS = {new BigDecimal("7.00"), new BigDecimal("12.00"),
+            new BigDecimal("18.00"), new BigDecimal("25.00")};
+    private static final BigDecimal ALIQUOTA_PIS = new BigDecimal("0.0165");
+    private static final BigDecimal ALIQUOTA_COFINS = new BigDecimal("0.0760");
+    private static final BigDecimal CEM = new BigDecimal("100");
+
+    private final ParametrosCorpus parametros;
+    private final Random random;
+    private final List<Emitente> emitentes = new ArrayList<>();
+
+    public GeradorCfe(ParametrosCorpus parametros) {
+        this.parametros = parametros;
+        this.random = new Random(parametros.semente());
+        for (int i = 0; i < parametros.emitentes(); i++) {
+            emitentes.add(criarEmitente(i));
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> argumentos = ParametrosCorpus.argumentos(args);
+        if (!argumentos.containsKey("saida")) {
+            throw new IllegalArgumentException("Informe saida=<diretório>");
+        }
+        Path saida = Files.createDirectories(Path.of(argumentos.get("saida")));
+        int zips = Integer.parseInt(argumentos.getOrDefault("zips", "1"));
+        boolean soXml = "xml".equalsIgnoreCase(argumentos.getOrDefault("formato", "zip"));
+        ParametrosCorpus parametros = ParametrosCorpus.de(argumentos);
+        GeradorCfe gerador = new GeradorCfe(parametros);
+
+        for (int i = 0; i < zips; i++) {
+            if (soXml) {
+                gerador.escreverXmls(Files.createDirectories(saida.resolve(String.format("lote-%04d", i))));
+            } else {
+                gerador.escreverZip(saida.resolve(String.format("lote-%04d.zip", i)));
+            }
+        }
+        System.out.printf("%d %s de %d documentos em %s (semente %d)%n", zips, soXml ? "diretórios" : "ZIPs",
+                parametros.cuponsPorZip(), saida, parametros.semente());
+    }
+
+    /**
+     * Um ZIP em memória com parametros.cuponsPorZip() documentos
+     */
+    public byte[] zip() {
+        ByteArrayOutputStream saida = new ByteArrayOutputStream();
+        escreverZip(saida);
+        return saida.toByteArray();
+    }
+
+    public void escreverZip(Path destino) throws IOException {
+        try (OutputStream saida = new BufferedOutputStream(Files.newOutputStream(destino))) {
+            escreverZip(saida);
+        }
+    }
+
+    /**
+     * Os mesmos documentos de um ZIP, como arquivos soltos no diretório
+     */
+    public void escreverXmls(Path diretorio) throws IOException {
+        for (Documento documento : documentos()) {
+            Files.writeString(diretorio.resolve(documento.nome()), documento.xml(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private void escreverZip(OutputStream destino) {
+        try (ZipOutputStream zip = new ZipOutputStream(destino)) {
+            for (Documento documento : documentos()) {
+                zip.putNextEntry(new ZipEntry(documento.nome()));
+                zip.write(documento.xml().getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Documentos de um lote: cupons, cancelamentos e cópias de cupons anteriores do mesmo lote
+     */
+    private List<Documento> documentos() {
+        List<Documento> documentos = new ArrayList<>(parametros.cuponsPorZip());
+        List<Documento> cupons = new ArrayList<>();
+        for (int i = 0; i < parametros.cuponsPorZip(); i++) {
+            double sorteio = random.nextDouble();
+            if (!cupons.isEmpty() && sorteio < parametros.taxaDuplicados()) {
+                Documento original = cupons.get(random.nextInt(cupons.size()));
+                documentos.add(new Documento(original.nome().replace(".xml", "_copia" + i + ".xml"), original.xml()));
+            } else if (sorteio < parametros.taxaDuplicados() + parametros.taxaCancelados()) {
+                // Cancela um cupom já emitido no lote, ou uma chave que nunca chega ao banco se ainda não há nenhum
+                String chaveCancelada = cupons.isEmpty()
+                        ? null
+                        : chaveDoNome(cupons.get(random.nextInt(cupons.size())).nome());
+                documentos.add(cancelamento(emitenteSorteado(), chaveCancelada));
+            } else {
+                Documento cupom = cupom(emitenteSorteado());
+                cupons.add(cupom);
+                documentos.add(cupom);
+            }
+        }
+        return documentos;
+    }
+
+    private Documento cupom(Emitente emitente) {
+        Identificacao id = identificacao(emitente);
+        int quantidadeItens = parametros.itensMinimo()
+                + random.nextInt(parametros.itensMaximo() - parametros.itensMinimo() + 1);
+
+        StringBuilder itens = new StringBuilder(quantidadeItens * 700);
+        Totais totais = new Totais();
+        for (int i = 1; i <= quantidadeItens; i++) {
+            item(itens, i, emitente, produtoSorteado(emitente), totais);
+        }
+        BigDecimal valorCfe = totais.produtos.subtract(totais.descontos);
+
+        StringBuilder xml = new StringBuilder(itens.length() + 4000);
+        xml.append("<CFe><infCFe Id=\"CFe").append(id.chave()).append("\" versao=\"0.08\" versaoDadosEnt=\"0.08\" versaoSB=\"010000\">");
+        ide(xml, emitente, id);
+        emit(xml, emitente);
+        xml.append("<dest></dest>");
+        xml.append(itens);
+        xml.append("<total><ICMSTot>")
+                .append("<vICMS>").append(totais.icms).append("</vICMS>")
+                .append("<vProd>").append(totais.produtos).append("</vProd>")
+                .append("<vDesc>").append(totais.descontos).append("</vDesc>")
+                .append("<vPIS>").append(totais.pis).append("</vPIS>")
+                .append("<vCOFINS>").append(totais.cofins).append("</vCOFINS>")
+                .append("<vPISST>0.00</vPISST><vCOFINSST>0.00</vCOFINSST><vOutro>0.00</vOutro>")
+                .append("</ICMSTot><vCFe>").append(valorCfe).append("</vCFe></total>");
+        xml.append("<pgto><MP><cMP>").append(random.nextBoolean() ? "03" : "01").append("</cMP><vMP>")
+                .append(valorCfe).append("</vMP></MP><vTroco>0.00</vTroco></pgto>");
+        xml.append("<infAdic><infCpl>CAIXA ").append(emitente.caixa).append("</infCpl></infAdic>");
+        xml.append("<obsFisco xCampo=\"06.07.05.04\"><xTexto>Comete crime quem sonega</xTexto></obsFisco>");
+        xml.append("</infCFe>");
+        assinatura(xml, id.chave());
+        xml.append("</CFe>");
+        return new Documento("CFe" + id.chave() + ".xml", xml.toString());
+    }
+
+    private void item(StringBuilder xml, int numero, Emitente emitente, Produto produto, Totais totais) {
+        BigDecimal quantidade = produto.fracionado()
+                ? BigDecimal.valueOf(100 + random.nextInt(4900), 3).setScale(4, RoundingMode.UNNECESSARY)
+                : BigDecimal.valueOf(1 + (random.nextInt(10) < 8 ? 0 : random.nextInt(4))).setScale(4, RoundingMode.UNNECESSARY);
+        BigDecimal valorProduto = quantidade.multiply(produto.preco()).setScale(2, RoundingMode.HALF_EVEN);
+        BigDecimal desconto = random.nextInt(10) == 0
+                ? valorProduto.multiply(new BigDecimal("0.05")).setScale(2, RoundingMode.HALF_EVEN)
+                : new BigDecimal("0.00");
+        BigDecimal valorItem = valorProduto.subtract(desconto);
+
+        xml.append("<det nItem=\"").append(numero).append("\"><prod>")
+                .append("<cProd>").append(produto.codigo()).append("</cProd>")
+                .append("<xProd>").append(produto.descricao()).append("</xProd>")
+                .append("<NCM>").append(produto.ncm()).append("</NCM>")
+                .append("<CFOP>").append(produto.icmsSt() ? "5405" : "5102").append("</CFOP>")
+                .append("<uCom>").append(produto.unidade()).append("</uCom>")
+                .append("<qCom>").append(quantidade).append("</qCom>")
+                .append("<vUnCom>").append(produto.preco()).append("</vUnCom>")
+                .append("<vProd>").append(valorProduto).append("</vProd>")
+                .append("<indRegra>A</indRegra>")
+                .append("<vDesc>").append(desconto).append("</vDesc>")
+                .append("<vOutro>0.00</vOutro>")
+                .append("<vItem>").append(valorItem).append("</vItem>")
+                .append("</prod><imposto>")
+                .append("<vItem12741>").append(valorItem.multiply(new BigDecimal("0.30")).setScale(2, RoundingMode.HALF_EVEN))
+                .append("</vItem12741>");
+
+        if (emitente.simples) {
+            xml.append("<ICMS><ICMSSN102><Orig>0</Orig><CSOSN>").append(produto.icmsSt() ? "500" : "102")
+                    .append("</CSOSN></ICMSSN102></ICMS>")
+                    .append("<PIS><PISSN><CST>49</CST></PISSN></PIS>")
+                    .append("<COFINS><COFINSSN><CST>49</CST></COFINSSN></COFINS>");
+        } else {
+            if (produto.icmsSt()) {
+                xml.append("<ICMS><ICMS40><Orig>0</Orig><CST>60</CST></ICMS40></ICMS>");
+            } else {
+                BigDecimal icms = valorItem.multiply(produto.aliquotaIcms()).divide(CEM, 2, RoundingMode.HALF_EVEN);
+                totais.icms = totais.icms.add(icms);
+                xml.append("<ICMS><ICMS00><Orig>0</Orig><CST>00</CST><pICMS>").append(produto.aliquotaIcms())
+                        .append("</pICMS><vICMS>").append(icms).append("</vICMS></ICMS00></ICMS>");
+            }
+            if (produto.pisCofinsTributado()) {
+                BigDecimal pis = valorItem.multiply(ALIQUOTA_PIS).setScale(2, RoundingMode.HALF_EVEN);
+                BigDecimal cofins = valorItem.multiply(ALIQUOTA_COFINS).setScale(2, RoundingMode.HALF_EVEN);
+                totais.pis = totais.pis.add(pis);
+                totais.cofins = totais.cofins.add(cofins);
+                xml.append("<PIS><PISAliq><CST>01</CST><vBC>").append(valorItem).append("</vBC><pPIS>")
+                        .append(ALIQUOTA_PIS).append("</pPIS><vPIS>").append(pis).append("</vPIS></PISAliq></PIS>")
+                        .append("<COFINS><COFINSAliq><CST>01</CST><vBC>").append(valorItem).append("</vBC><pCOFINS>")
+                        .append(ALIQUOTA_COFINS).append("</pCOFINS><vCOFINS>").append(cofins)
+                        .append("</vCOFINS></COFINSAliq></COFINS>");
+            } else {
+                xml.append("<PIS><PISNT><CST>04</CST></PISNT></PIS>")
+                        .append("<COFINS><COFINSNT><CST>04</CST></COFINSNT></COFINS>");
+            }
+        }
+        xml.append("</imposto></det>");
+
+        totais.produtos = totais.produtos.add(valorProduto);
+        totais.descontos = totais.descontos.add(desconto);
+    }
+
+    /**
+     * CFeCanc do cupom com a chave informada (ou de uma chave nova, se null); a ingestão marca o cupom como cancelado
+     */
+    private Documento cancelamento(Emitente emitente, String chaveCancelada) {
+        String cancelado = chaveCancelada != null ? chaveCancelada : identificacao(emitente).chave();
+        Identificacao id = identificacao(emitente);
+        StringBuilder xml = new StringBuilder(3000);
+        xml.append("<CFeCanc><infCFe Id=\"CFe").append(id.chave()).append("\" chCanc=\"CFe").append(cancelado)
+                .append("\" versao=\"0.08\"><dEmi>").append(DATA.format(id.data())).append("</dEmi><hEmi>")
+                .append(HORA.format(id.hora())).append("</hEmi>");
+        ide(xml, emitente, id);
+        emit(xml, emitente);
+        xml.append("<dest></dest><total><vCFe>").append(BigDecimal.valueOf(100 + random.nextInt(50000), 2))
+                .append("</vCFe></total><infAdic></infAdic></infCFe>");
+        assinatura(xml, id.chave());
+        xml.append("</CFeCanc>");
+        return new Documento("ADC" + id.chave() + ".xml", xml.toString());
+    }
+
+    private static String chaveDoNome(String nome) {
+        return nome.substring("CFe".length(), nome.length() - ".xml".length());
+    }
+
+    private void ide(StringBuilder xml, Emitente emitente, Identificacao id) {
+        xml.append("<ide><cUF>35</cUF><cNF>").append(id.codigoNumerico()).append("</cNF><mod>59</mod><nserieSAT>")
+                .append(emitente.serieSat).append("</nserieSAT><nCFe>").append(id.numero()).append("</nCFe><dEmi>")
+                .append(DATA.format(id.data())).append("</dEmi><hEmi>").append(HORA.format(id.hora()))
+                .append("</hEmi><cDV>").append(id.chave().charAt(43)).append("</cDV><tpAmb>1</tpAmb><CNPJ>")
+                .append(emitente.cnpjSoftwareHouse).append("</CNPJ><signAC>").append(base64(256))
+                .append("</signAC><assinaturaQRCODE>").append(base64(256))
+                .append("</assinaturaQRCODE><numeroCaixa>").append(emitente.caixa).append("</numeroCaixa></ide>");
+    }
+
+    private void emit(StringBuilder xml, Emitente emitente) {
+        xml.append("<emit><CNPJ>").append(emitente.cnpj).append("</CNPJ><xNome>").append(emitente.nome)
+                .append("</xNome><enderEmit><xLgr>RUA DAS PECAS</xLgr><nro>").append(100 + emitente.indice)
+                .append("</nro><xBairro>CENTRO</xBairro><xMun>SAO PAULO</xMun><CEP>01001000</CEP></enderEmit><IE>")
+                .append(emitente.ie).append("</IE><cRegTrib>").append(emitente.simples ? "1" : "3")
+                .append("</cRegTrib><indRatISSQN>N</indRatISSQN></emit>");
+    }
+
+    private void assinatura(StringBuilder xml, String chave) {
+        xml.append("<Signature xmlns=\"http://www.w3.org/2000/09/xmldsig#\"><SignedInfo>")
+                .append("<CanonicalizationMethod Algorithm=\"http://www.w3.org/TR/2001/REC-xml-c14n-20010315\"></CanonicalizationMethod>")
+                .append("<SignatureMethod Algorithm=\"http://www.w3.org/2001/04/xmldsig-more#rsa-sha256\"></SignatureMethod>")
+                .append("<Reference URI=\"#CFe").append(chave).append("\"><Transforms>")
+                .append("<Transform Algorithm=\"http://www.w3.org/2000/09/xmldsig#enveloped-signature\"></Transform>")
+                .append("<Transform Algorithm=\"http://www.w3.org/TR/2001/REC-xml-c14n-20010315\"></Transform></Transforms>")
+                .append("<DigestMethod Algorithm=\"http://www.w3.org/2001/04/xmlenc#sha256\"></DigestMethod><DigestValue>")
+                .append(base64(32)).append("</DigestValue></Reference></SignedInfo><SignatureValue>").append(base64(256))
+                .append("</SignatureValue><KeyInfo><X509Data><X509Certificate>").append(base64(1200))
+                .append("</X509Certificate></X509Data></KeyInfo></Signature>");
+    }
+
+    private Identificacao identificacao(Emitente emitente) {
+        LocalDate data = INICIO.plusDays(random.nextInt(DIAS));
+        LocalTime hora = LocalTime.of(8 + random.nextInt(12), random.nextInt(60), random.nextInt(60));
+        String numero = String.format("%06d", emitente.proximoNumero());
+        String codigoNumerico = String.format("%06d", random.nextInt(1_000_000));
+        String semDigito = "35" + ANO_MES.format(data) + emitente.cnpj + "59" + emitente.serieSat + numero + codigoNumerico;
+        return new Identificacao(semDigito + digitoModulo11(semDigito), numero, codigoNumerico, data, hora);
+    }
+
+    private Emitente criarEmitente(int indice) {
+        String raiz = String.format("%08d", random.nextInt(100_000_000)) + "0001";
+        String cnpj = raiz + digitoCnpj(raiz);
+        cnpj = cnpj + digitoCnpj(cnpj);
+        Emitente emitente = new Emitente(indice, cnpj, "AUTO PECAS SINTETICA " + (indice + 1) + " LTDA",
+                random.nextDouble() < parametros.taxaSimples(), String.format("%09d", 900_000_000 + random.nextInt(99_999_999)),
+                String.format("%012d", Math.abs(random.nextLong()) % 1_000_000_000_000L),
+                String.format("%03d", 1 + random.nextInt(20)), random.nextInt(900_000));
+        for (int i = 0; i < parametros.produtosPorEmitente(); i++) {
+            emitente.produtos.add(criarProduto(i));
+        }
+        return emitente;
+    }
+
+    private Produto criarProduto(int indice) {
+        boolean fracionado = random.nextInt(10) == 0;
+        String descricao = String.format("%-20s %s", NOMES[random.nextInt(NOMES.length)] + " "
+                + COMPLEMENTOS[random.nextInt(COMPLEMENTOS.length)], COMPLEMENTOS[random.nextInt(COMPLEMENTOS.length)]);
+        // Preços com cauda longa: a maioria barata, alguns itens caros
+        double base = Math.exp(random.nextGaussian() * 1.2 + 3.5);
+        return new Produto(
+                String.format("%08d", 10_000_000 + indice * 7919 % 89_999_999),
+                descricao,
+                NCMS[random.nextInt(NCMS.length)],
+                fracionado ? UNIDADES_FRACIONADAS[random.nextInt(UNIDADES_FRACIONADAS.length)] : UNIDADES[random.nextInt(UNIDADES.length)],
+                BigDecimal.valueOf(Math.max(0.5, base)).setScale(2, RoundingMode.HALF_EVEN),
+                fracionado,
+                random.nextInt(10) < 6,
+                ALIQUOTAS_ICMS[random.nextInt(ALIQUOTAS_ICMS.length)],
+                random.nextInt(10) < 7);
+    }
+
+    private Emitente emitenteSorteado() {
+        return emitentes.get(random.nextInt(emitentes.size()));
+    }
+
+    /**
+     * Poucos produtos concentram a maior parte das vendas, como num catálogo real
+     */
+    private Produto produtoSorteado(Emitente emitente) {
+        double r = random.nextDouble();
+        return emitente.produtos.get((int) (r * r * r * emitente.produtos.size()));
+    }
+
+    private String base64(int bytes) {
+        byte[] dados = new byte[bytes];
+        random.nextBytes(dados);
+        return Base64.getEncoder().encodeToString(dados);
+    }
+
+    /**
+     * Dígito verificador da chave de acesso: módulo 11 com pesos 2 a 9 da direita para a esquerda
+     */
+    static int digitoModulo11(String digitos) {
+        int soma = 0;
+        int peso = 2;
+        for (int i = digitos.length() - 1; i >= 0; i--) {
+            soma += (digitos.charAt(i) - '0') * peso;
+            peso = peso == 9 ? 2 : peso + 1;
+        }
+        int resto = soma % 11;
+        return resto < 2 ? 0 : 11 - resto;
+    }
+
+    private static int digitoCnpj(String digitos) {
+        return digitoModulo11(digitos);
+    }
+
+    private record Documento(String nome, String xml) {
+    }
+
+    private record Identificacao(String chave, String numero, String codigoNumerico, LocalDate data, LocalTime hora) {
+    }
+
+    private record Produto(String codigo, String descricao, String ncm, String unidade, BigDecimal preco,
+                           boolean fracionado, boolean icmsSt, BigDecimal aliquotaIcms, boolean pisCofinsTributado) {
+    }
+
+    private static final class Totais {
+        private BigDecimal icms = new BigDecimal("0.00");
+        private BigDecimal produtos = new BigDecimal("0.00");
+        private BigDecimal descontos = new BigDecimal("0.00");
+        private BigDecimal pis = new BigDecimal("0.00");
+        private BigDecimal cofins = new BigDecimal("0.00");
+    }
+
+    private static final class Emitente {
+        private final int indice;
+        private final String cnpj;
+        private final String nome;
+        private final boolean simples;
+        private final String serieSat;
+        private final String ie;
+        private final String caixa;
+        private final String cnpjSoftwareHouse = "16716114000172";
+        private final List<Produto> produtos = new ArrayList<>();
+        private int numero;
+
+        private Emitente(int indice, String cnpj, String nome, boolean simples, String serieSat, String ie,
+                         String caixa, int numeroInicial) {
+            this.indice = indice;
+            this.cnpj = cnpj;
+            this.nome = nome;
+            this.simples = simples;
+            this.serieSat = serieSat;
+            this.ie = ie;
+            this.caixa = caixa;
+            this.numero = numeroInicial;
+        }
+
+        private int proximoNumero() {
+            numero = numero % 999_999 + 1;
+            return numero;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.noelle.leitura_de_XML.carga;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Parâmetros do corpus sintético. Na linha de comando cada um vira nome=valor ou --nome=valor (ex.: itens-max=200).
+ *
+ * @param cuponsPorZip      documentos em cada ZIP, contando cancelamentos e duplicados
+ * @param itensMinimo       menor quantidade de det por cupom
+ * @param itensMaximo       maior quantidade de det por cupom
+ * @param taxaCancelados    fração dos documentos que são CFeCanc, em geral de um cupom do mesmo ZIP
+ * @param taxaDuplicados    fração dos documentos que repetem um cupom anterior do mesmo ZIP
+ * @param taxaSimples       fração dos emitentes no Simples Nacional (ICMSSN102, PISSN, COFINSSN)
+ * @param emitentes         quantidade de CNPJs emitentes
+ * @param produtosPorEmitente tamanho do catálogo de cada emitente
+ * @param semente           semente do gerador; a mesma semente gera o mesmo corpus
+ */
+public record ParametrosCorpus(int cuponsPorZip, int itensMinimo, int itensMaximo, double taxaCancelados,
+                               double taxaDuplicados, double taxaSimples, int emitentes, int produtosPorEmitente,
+                               long semente) {
+
+    public ParametrosCorpus {
+        if (itensMinimo < 1 || itensMaximo < itensMinimo) {
+            throw new IllegalArgumentException("Faixa de itens inválida: " + itensMinimo + ".." + itensMaximo);
+        }
+        if (emitentes < 1 || produtosPorEmitente < 1 || cuponsPorZip < 1) {
+            throw new IllegalArgumentException("cupons, emitentes e produtos precisam ser positivos");
+        }
+    }
+
+    public static ParametrosCorpus de(Map<String, String> argumentos) {
+        return new ParametrosCorpus(
+                Integer.parseInt(argumentos.getOrDefault("cupons", "1000")),
+                Integer.parseInt(argumentos.getOrDefault("itens-min", "1")),
+                Integer.parseInt(argumentos.getOrDefault("itens-max", "30")),
+                Double.parseDouble(argumentos.getOrDefault("cancelados", "0.02")),
+                Double.parseDouble(argumentos.getOrDefault("duplicados", "0.01")),
+                Double.parseDouble(argumentos.getOrDefault("simples", "0.3")),
+                Integer.parseInt(argumentos.getOrDefault("emitentes", "5")),
+                Integer.parseInt(argumentos.getOrDefault("produtos", "2000")),
+                Long.parseLong(argumentos.getOrDefault("semente", String.valueOf(System.nanoTime()))));
+    }
+
+    /**
+     * Lê argumentos no formato nome=valor, com ou sem "--" na frente (o pom não aceita "--" dentro de
+     * comentários, então os exemplos de lá vêm sem); --flag sem valor vira "true"
+     */
+    static Map<String, String> argumentos(String[] args) {
+        Map<String, String> mapa = new HashMap<>();
+        for (String arg : args) {
+            String nomeValor = arg.startsWith("--") ? arg.substring(2) : arg;
+            int igual = nomeValor.indexOf('=');
+            if (igual < 0) {
+                if (nomeValor.equals(arg)) {
+                    throw new IllegalArgumentException("Argumento inválido (esperado nome=valor): " + arg);
+                }
+                mapa.put(nomeValor, "true");
+            } else {
+                mapa.put(nomeValor.substring(0, igual), nomeValor.substring(igual + 1));
+            }
+        }
+        return mapa;
+    }
+}
@@ -0,0 +1,265 @@
+package com.noelle.leitura_de_XML.carga;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.noelle.leitura_de_XML.LeituraDeXmlApplication;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToLongFunction;
+
+/**
+ * Teste de carga de ponta a ponta: gera ZIPs com {@link GeradorCfe}, envia para POST /api/cupons/processar
+ * e acompanha cada job até o fim. Ao final mostra cupons/s, p50/p99 do envio e do job inteiro e o pico de heap.
+ * <p>
+ * Sem url= a aplicação sobe neste mesmo processo (porta aleatória, banco do application.properties), e o
+ * heap é medido direto pelo MemoryMXBean; com url=http://host:porta o alvo é uma aplicação já no ar e o
+ * heap vem de /actuator/metrics/jvm.memory.used.
+ * <p>
+ * Uso: TesteCarga [zips=20] [concorrencia=4] [url=...] [aquecimento=2] [parâmetros de {@link ParametrosCorpus}]
+ */
+public class TesteCarga {
+
+    private static final Duration INTERVALO_CONSULTA = Duration.ofMillis(100);
+    private static final Duration ESPERA_REJEITADO = Duration.ofMillis(500);
+    private static final long MAXIMO_ESPERA_REJEITADO_MS = 5000;
+    private static final long INTERVALO_HEAP_MS = 50;
+
+    private final HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final String url;
+    private final MedidorHeap medidorHeap;
+
+    private TesteCarga(String url, MedidorHeap medidorHeap) {
+        this.url = url;
+        this.medidorHeap = medidorHeap;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> argumentos = ParametrosCorpus.argumentos(args);
+        int zips = Integer.parseInt(argumentos.getOrDefault("zips", "20"));
+        int concorrencia = Integer.parseInt(argumentos.getOrDefault("concorrencia", "4"));
+        int aquecimento = Integer.parseInt(argumentos.getOrDefault("aquecimento", "2"));
+        ParametrosCorpus parametros = ParametrosCorpus.de(argumentos);
+
+        // O corpus é gerado antes para que o custo do gerador não entre na medição
+        System.out.printf("Gerando %d ZIPs de %d documentos (%d a %d itens, semente %d)...%n", zips + aquecimento,
+                parametros.cuponsPorZip(), parametros.itensMinimo(), parametros.itensMaximo(), parametros.semente());
+        GeradorCfe gerador = new GeradorCfe(parametros);
+        List<byte[]> corpus = new ArrayList<>(zips + aquecimento);
+        long bytes = 0;
+        for (int i = 0; i < zips + aquecimento; i++) {
+            corpus.add(gerador.zip());
+            bytes += corpus.get(i).length;
+        }
+        System.out.printf("Corpus: %.1f MB compactados%n", bytes / 1048576.0);
+
+        ConfigurableApplicationContext contexto = null;
+        String url = argumentos.get("url");
+        if (url == null) {
+            contexto = SpringApplication.run(LeituraDeXmlApplication.class, "--server.port=0",
+                    "--spring.jpa.show-sql=false", "--logging.level.com.noelle=WARN", "--logging.level.root=WARN");
+            url = "http://localhost:" + contexto.getEnvironment().getProperty("local.server.port");
+        }
+        try {
+            TesteCarga teste = new TesteCarga(url, contexto != null ? new HeapLocal() : null);
+            if (aquecimento > 0) {
+                teste.executar(corpus.subList(0, aquecimento), concorrencia);
+            }
+            Resultado resultado = teste.executar(corpus.subList(aquecimento, corpus.size()), concorrencia);
+            resultado.imprimir();
+        } finally {
+            if (contexto != null) {
+                contexto.close();
+            }
+        }
+    }
+
+    private Resultado executar(List<byte[]> zips, int concorrencia) throws Exception {
+        MedidorHeap heap = medidorHeap != null ? medidorHeap : new HeapRemoto();
+        long heapInicial = heap.usado();
+        AtomicLong pico = new AtomicLong(heapInicial);
+        ScheduledExecutorService amostrador = Executors.newSingleThreadScheduledExecutor();
+        amostrador.scheduleAtFixedRate(() -> pico.accumulateAndGet(heap.usado(), Math::max),
+                0, medidorHeap != null ? INTERVALO_HEAP_MS : 500, TimeUnit.MILLISECONDS);
+
+        List<Execucao> execucoes = Collections.synchronizedList(new ArrayList<>());
+        long inicio = System.nanoTime();
+        try (ExecutorService clientes = Executors.newFixedThreadPool(concorrencia)) {
+            List<Future<?>> futuros = new ArrayList<>();
+            for (int i = 0; i < zips.size(); i++) {
+                byte[] zip = zips.get(i);
+                String nome = String.format("carga-%04d.zip", i);
+                futuros.add(clientes.submit(() -> {
+                    execucoes.add(enviar(nome, zip));
+                    return null;
+                }));
+            }
+            for (Future<?> futuro : futuros) {
+                futuro.get();
+            }
+        } finally {
+            amostrador.shutdownNow();
+        }
+        long duracaoNs = System.nanoTime() - inicio;
+        pico.accumulateAndGet(heap.usado(), Math::max);
+        return new Resultado(execucoes, duracaoNs, heapInicial, pico.get());
+    }
+
+    /**
+     * Envia um ZIP e espera o job terminar; 429 (fila cheia) é repetido depois do Retry-After (no máximo 5 s)
+     */
+    private Execucao enviar(String nome, byte[] zip) throws IOException, InterruptedException {
+        String fronteira = UUID.randomUUID().toString();
+        byte[] corpo = multipart(fronteira, nome, zip);
+        long inicio = System.nanoTime();
+        HttpResponse<String> resposta;
+        int rejeicoes = 0;
+        while (true) {
+            resposta = http.send(HttpRequest.newBuilder(URI.create(url + "/api/cupons/processar"))
+                    .header("Content-Type", "multipart/form-data; boundary=" + fronteira)
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(corpo))
+                    .build(), HttpResponse.BodyHandlers.ofString());
+            if (resposta.statusCode() != 429) {
+                break;
+            }
+            rejeicoes++;
+            Thread.sleep(espera(resposta));
+        }
+        long envioNs = System.nanoTime() - inicio;
+        if (resposta.statusCode() != 202) {
+            throw new IllegalStateException("Envio de " + nome + " falhou: HTTP " + resposta.statusCode() + " " + resposta.body());
+        }
+
+        String id = objectMapper.readTree(resposta.body()).get("id").asText();
+        JsonNode job;
+        while (true) {
+            job = objectMapper.readTree(http.send(HttpRequest.newBuilder(URI.create(url + "/api/cupons/jobs/" + id))
+                    .GET().build(), HttpResponse.BodyHandlers.ofString()).body());
+            String status = job.get("status").asText();
+            if ("CONCLUIDO".equals(status) || "FALHOU".equals(status)) {
+                break;
+            }
+            Thread.sleep(INTERVALO_CONSULTA);
+        }
+        return new Execucao(envioNs, System.nanoTime() - inicio, rejeicoes, job.get("status").asText(),
+                job.get("processados").asInt(), job.get("duplicados").asInt(), job.get("falhas").asInt(),
+                job.path("cancelamentos").asInt());
+    }
+
+    private static long espera(HttpResponse<?> resposta) {
+        OptionalLong segundos = resposta.headers().firstValueAsLong("Retry-After");
+        return segundos.isPresent()
+                ? Math.min(segundos.getAsLong() * 1000, MAXIMO_ESPERA_REJEITADO_MS)
+                : ESPERA_REJEITADO.toMillis();
+    }
+
+    private static byte[] multipart(String fronteira, String nome, byte[] zip) throws IOException {
+        ByteArrayOutputStream corpo = new ByteArrayOutputStream(zip.length + 256);
+        corpo.write(("--" + fronteira + "\r\n"
+                + "Content-Disposition: form-data; name=\"arquivo\"; filename=\"" + nome + "\"\r\n"
+                + "Content-Type: application/zip\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+        corpo.write(zip);
+        corpo.write(("\r\n--" + fronteira + "--\r\n").getBytes(StandardCharsets.UTF_8));
+        return corpo.toByteArray();
+    }
+
+    private interface MedidorHeap {
+        long usado();
+    }
+
+    private static final class HeapLocal implements MedidorHeap {
+        private final MemoryMXBean memoria = ManagementFactory.getMemoryMXBean();
+
+        @Override
+        public long usado() {
+            return memoria.getHeapMemoryUsage().getUsed();
+        }
+    }
+
+    /**
+     * Heap da aplicação remota, pelo actuator; amostrado com menos frequência para não pesar na medição
+     */
+    private final class HeapRemoto implements MedidorHeap {
+        @Override
+        public long usado() {
+            try {
+                HttpResponse<String> resposta = http.send(HttpRequest.newBuilder(
+                        URI.create(url + "/actuator/metrics/jvm.memory.used?tag=area:heap")).GET().build(),
+                        HttpResponse.BodyHandlers.ofString());
+                if (resposta.statusCode() != 200) {
+                    return 0;
+                }
+                return objectMapper.readTree(resposta.body()).get("measurements").get(0).get("value").asLong();
+            } catch (IOException e) {
+                return 0;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return 0;
+            }
+        }
+    }
+
+    private record Execucao(long envioNs, long totalNs, int rejeicoes, String status, int processados,
+                            int duplicados, int falhas, int cancelamentos) {
+    }
+
+    private record Resultado(List<Execucao> execucoes, long duracaoNs, long heapInicial, long picoHeap) {
+
+        void imprimir() {
+            long processados = execucoes.stream().mapToLong(Execucao::processados).sum();
+            long duplicados = execucoes.stream().mapToLong(Execucao::duplicados).sum();
+            long falhas = execucoes.stream().mapToLong(Execucao::falhas).sum();
+            long cancelamentos = execucoes.stream().mapToLong(Execucao::cancelamentos).sum();
+            long jobsFalhos = execucoes.stream().filter(e -> "FALHOU".equals(e.status())).count();
+            long rejeicoes = execucoes.stream().mapToLong(Execucao::rejeicoes).sum();
+            double segundos = duracaoNs / 1e9;
+
+            System.out.println();
+            System.out.printf("ZIPs enviados:       %d (%d jobs falharam, %d envios repetidos por 429)%n",
+                    execucoes.size(), jobsFalhos, rejeicoes);
+            System.out.printf("Documentos:          %d processados, %d duplicados, %d cancelamentos, %d falhas%n",
+                    processados, duplicados, cancelamentos, falhas);
+            System.out.printf("Duração:             %.2f s%n", segundos);
+            System.out.printf("Vazão:               %.1f cupons/s (%.1f documentos/s)%n",
+                    processados / segundos, (processados + duplicados + cancelamentos + falhas) / segundos);
+            System.out.printf("Envio (HTTP 202):    p50 %.1f ms, p99 %.1f ms%n",
+                    percentil(Execucao::envioNs, 0.50), percentil(Execucao::envioNs, 0.99));
+            System.out.printf("Job até o fim:       p50 %.1f ms, p99 %.1f ms%n",
+                    percentil(Execucao::totalNs, 0.50), percentil(Execucao::totalNs, 0.99));
+            // No modo local o heap inclui o corpus gerado, que já está lá no início
+            System.out.printf("Pico de heap:        %.1f MB (%.1f MB no início)%n", picoHeap / 1048576.0, heapInicial / 1048576.0);
+        }
+
+        private double percentil(ToLongFunction<Execucao> campo, double fracao) {
+            long[] valores = execucoes.stream().mapToLong(campo).sorted().toArray();
+            if (valores.length == 0) {
+                return 0;
+            }
+            int posicao = (int) Math.ceil(fracao * valores.length) - 1;
+            return valores[Math.max(0, posicao)] / 1e6;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.noelle.leitura_de_XML.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Massa dos benchmarks, montada a partir dos exemplos em src/main/resources/exemplos: o CF-e avulso
+ * serve de modelo e os det de todos os cupons do ZIP são repetidos, em ordem, até o número de itens pedido.
+ */
+final class DadosBenchmark {
+
+    private static final String XML_MODELO = "exemplos/CFe35241260892858000130590014453660039237378714.xml";
+    private static final String ZIP_EXEMPLO = "exemplos/2024_12_28.zip";
+
+    private static final Pattern DET = Pattern.compile("<det nItem=\"\\d+\">.*?</det>", Pattern.DOTALL);
+
+    private static final String MODELO = new String(ler(XML_MODELO), StandardCharsets.UTF_8);
+    private static final List<String> DETS = detsDoZip();
+
+    private DadosBenchmark() {
+    }
+
+    /**
+     * XML do modelo com os det trocados por itens do ZIP, numerados de 1 a quantidadeItens
+     */
+    static String cupom(int quantidadeItens) {
+        int inicio = MODELO.indexOf("<det ");
+        int fim = MODELO.lastIndexOf("</det>") + "</det>".length();
+        StringBuilder xml = new StringBuilder(MODELO.length() + quantidadeItens * 900);
+        xml.append(MODELO, 0, inicio);
+        for (int i = 0; i < quantidadeItens; i++) {
+            String det = DETS.get(i % DETS.size());
+            xml.append("<det nItem=\"").append(i + 1).append('"').append(det, det.indexOf('>'), det.length());
+        }
+        xml.append(MODELO, fim, MODELO.length());
+        return xml.toString();
+    }
+
+    /**
+     * ZIP em memória com quantidadeCupons cópias do cupom de quantidadeItens itens
+     */
+    static byte[] zip(int quantidadeCupons, int quantidadeItens) {
+        byte[] xml = cupom(quantidadeItens).getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream saida = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(saida)) {
+            for (int i = 0; i < quantidadeCupons; i++) {
+                zip.putNextEntry(new ZipEntry("cupom-" + i + ".xml"));
+                zip.write(xml);
+                zip.closeEntry();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return saida.toByteArray();
+    }
+
+    private static List<String> detsDoZip() {
+        List<String> dets = new ArrayList<>();
+        try (ZipInputStream zip = new ZipInputStream(recurso(ZIP_EXEMPLO))) {
+            ZipEntry entrada;
+            while ((entrada = zip.getNextEntry()) != null) {
+                if (!entrada.getName().toLowerCase().endsWith(".xml")) {
+                    continue;
+                }
+                Matcher matcher = DET.matcher(new String(zip.readAllBytes(), StandardCharsets.UTF_8));
+                while (matcher.find()) {
+                    dets.add(matcher.group());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (dets.isEmpty()) {
+            throw new IllegalStateException("Nenhum det encontrado em " + ZIP_EXEMPLO);
+        }
+        return dets;
+    }
+
+    private static byte[] ler(String caminho) {
+        try (InputStream entrada = recurso(caminho)) {
+            return entrada.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static InputStream recurso(String caminho) {
+        InputStream entrada = DadosBenchmark.class.getClassLoader().getResourceAsStream(caminho);
+        if (entrada == null) {
+            throw new IllegalStateException("Recurso não encontrado: " + caminho);
+        }
+        return entrada;
+    }
+}
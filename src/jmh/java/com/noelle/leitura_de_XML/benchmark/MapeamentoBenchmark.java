@@ -0,0 +1,75 @@
+package com.noelle.leitura_de_XML.benchmark;
+
+import com.noelle.leitura_de_XML.domain.Cupom;
+import com.noelle.leitura_de_XML.domain.Item;
+import com.noelle.leitura_de_XML.dto.CupomDTO;
+import com.noelle.leitura_de_XML.mapper.CupomMapper;
+import com.noelle.leitura_de_XML.mapper.ItemMapper;
+import com.noelle.leitura_de_XML.services.ProcessadorXmlService;
+import com.noelle.leitura_de_XML.xml.BufferPool;
+import com.noelle.leitura_de_XML.xml.CfeSatStaxExtractor;
+import com.noelle.leitura_de_XML.xml.TextosInternados;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversão de entidades para DTO, como nas respostas da API. toDtoList converte uma página de
+ * {@value #CUPONS_POR_PAGINA} cupons; itemMapperToDto converte os itens de um cupom.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class MapeamentoBenchmark {
+
+    static final int CUPONS_POR_PAGINA = 50;
+
+    @Param({"1", "10", "100", "500"})
+    private int itensPorCupom;
+
+    private final ItemMapper itemMapper = new ItemMapper();
+    private final CupomMapper cupomMapper = new CupomMapper(itemMapper);
+    private List<Cupom> pagina;
+    private List<Item> itens;
+
+    @Setup
+    public void preparar() {
+        TextosInternados textosInternados = new TextosInternados();
+        ProcessadorXmlService processador = new ProcessadorXmlService(
+                new CfeSatStaxExtractor(textosInternados), new BufferPool(), textosInternados);
+        String xml = DadosBenchmark.cupom(itensPorCupom);
+        pagina = new ArrayList<>(CUPONS_POR_PAGINA);
+        for (int i = 0; i < CUPONS_POR_PAGINA; i++) {
+            pagina.add(processador.processar(xml));
+        }
+        itens = pagina.get(0).getItens();
+    }
+
+    @Benchmark
+    public List<CupomDTO> cupomMapperToDtoList() {
+        return cupomMapper.toDtoList(pagina);
+    }
+
+    @Benchmark
+    public void itemMapperToDto(Blackhole blackhole) {
+        for (Item item : itens) {
+            blackhole.consume(itemMapper.toDto(item));
+        }
+    }
+}
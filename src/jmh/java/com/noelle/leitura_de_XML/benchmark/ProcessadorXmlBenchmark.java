@@ -0,0 +1,86 @@
+package com.noelle.leitura_de_XML.benchmark;
+
+import com.noelle.leitura_de_XML.domain.Cupom;
+import com.noelle.leitura_de_XML.services.ProcessadorXmlService;
+import com.noelle.leitura_de_XML.xml.BufferPool;
+import com.noelle.leitura_de_XML.xml.CfeSatStaxExtractor;
+import com.noelle.leitura_de_XML.xml.TextosInternados;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parse, validação e extração do ZIP, por quantidade de itens no cupom.
+ * O ZIP tem sempre {@value #CUPONS_POR_ZIP} cupons, então cada operação de extrairXmlsDoZip lê todos eles.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ProcessadorXmlBenchmark {
+
+    static final int CUPONS_POR_ZIP = 20;
+
+    @Param({"1", "10", "100", "500"})
+    private int itensPorCupom;
+
+    @Param({"stax", "dom"})
+    private String parser;
+
+    private ProcessadorXmlService processador;
+    private String xml;
+    private byte[] xmlBytes;
+    private byte[] zip;
+
+    @Setup
+    public void preparar() {
+        TextosInternados textosInternados = new TextosInternados();
+        processador = new ProcessadorXmlService(new CfeSatStaxExtractor(textosInternados), new BufferPool(), textosInternados);
+        ReflectionTestUtils.setField(processador, "parser", parser);
+
+        xml = DadosBenchmark.cupom(itensPorCupom);
+        xmlBytes = xml.getBytes(StandardCharsets.UTF_8);
+        zip = DadosBenchmark.zip(CUPONS_POR_ZIP, itensPorCupom);
+
+        int itens = processador.processar(xml).getItens().size();
+        if (itens != itensPorCupom) {
+            throw new IllegalStateException("Cupom de teste com " + itens + " itens, esperado " + itensPorCupom);
+        }
+    }
+
+    @Benchmark
+    public Cupom processarString() {
+        return processador.processar(xml);
+    }
+
+    @Benchmark
+    public Cupom processarBytes() {
+        return processador.processar(new ByteArrayInputStream(xmlBytes));
+    }
+
+    @Benchmark
+    public boolean validarXml() {
+        return processador.validarXml(xml);
+    }
+
+    @Benchmark
+    public List<String> extrairXmlsDoZip() {
+        return processador.extrairXmlsDoZip(zip);
+    }
+}
@@ -0,0 +1,420 @@
+package com.noelle.leitura_de_XML.analitico;
+
+import com.noelle.leitura_de_XML.domain.Cupom;
+import com.noelle.leitura_de_XML.domain.Item;
+import com.noelle.leitura_de_XML.dto.GrupoAnaliticoDTO;
+import com.noelle.leitura_de_XML.dto.ResultadoAnaliticoDTO;
+import com.noelle.leitura_de_XML.services.CuponsGravadosEvent;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.IntStream;
+
+/**
+ * Cópia colunar e em memória dos itens para consultas ad hoc (filtro + agrupamento + soma).
+ * Carregada do banco na subida e atualizada a cada cupom gravado. As consultas varrem os arrays
+ * primitivos em blocos, em paralelo no ForkJoinPool comum, sem criar BigDecimal por linha.
+ * Opcional: só é carregada com app.analitico.habilitado=true.
+ */
+@Service
+@Slf4j
+public class AnaliticoItensService {
+
+    private static final int TAMANHO_FETCH = 10_000;
+    private static final int TAMANHO_BLOCO_MINIMO = 64 * 1024;
+    private static final int DIMENSOES = DimensaoAnalitica.values().length;
+    private static final int METRICAS = MetricaItem.values().length;
+
+    private static final String CONSULTA_CARGA = "select i.id, c.data_emissao, p.codigo, p.descricao, i.cfop, i.ncm, "
+            + "i.cst, i.unidade_medida, i.aliquota_icms, i.quantidade, i.valor_total, i.valor_desconto, i.valor_icms, "
+            + "i.valor_pis, i.valor_cofins from item i join cupom c on c.chave_acesso = i.cupom_chave_acesso "
+            + "join produto p on p.id = i.produto_id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean habilitado;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final ColunasItens colunas = new ColunasItens();
+    private final Dicionario[] dicionarios = new Dicionario[DIMENSOES];
+    // Descrição de cada código de produto (a primeira vista)
+    private final List<String> descricoes = new ArrayList<>();
+    // Cupons gravados enquanto a carga inicial ainda roda
+    private final List<Cupom> pendentes = new ArrayList<>();
+    private volatile boolean pronto;
+    // A carga inicial falhou: as consultas ficam indisponíveis e os cupons gravados deixam de ser guardados
+    private boolean falhou;
+
+    public AnaliticoItensService(JdbcTemplate jdbcTemplate,
+                                 PlatformTransactionManager transactionManager,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${app.analitico.habilitado:false}") boolean habilitado) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.habilitado = habilitado;
+        for (int d = 0; d < DIMENSOES; d++) {
+            dicionarios[d] = new Dicionario();
+        }
+
+        Gauge.builder("analitico.itens", this, analitico -> analitico.tamanho())
+                .description("Itens no armazenamento colunar")
+                .register(meterRegistry);
+        Gauge.builder("analitico.memoria", this, analitico -> analitico.bytesOcupados())
+                .description("Memória ocupada pelas colunas do armazenamento colunar")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void aoIniciar() {
+        if (habilitado) {
+            Thread.ofVirtual().name("analitico-carga").start(this::carregar);
+        }
+    }
+
+    /**
+     * Lê todos os itens com um cursor, tomando o write lock uma vez por bloco do fetch. Cupons gravados
+     * durante a carga ficam em espera e entram no fim, descartando os itens que a própria carga já trouxe
+     * (comparando pelo id). Se a carga falhar, os que estavam em espera são descartados.
+     */
+    void carregar() {
+        long inicio = System.currentTimeMillis();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                JdbcTemplate cursor = new JdbcTemplate(jdbcTemplate.getDataSource());
+                cursor.setFetchSize(TAMANHO_FETCH);
+                List<Linha> bloco = new ArrayList<>(TAMANHO_FETCH);
+                cursor.query(CONSULTA_CARGA, rs -> {
+                    bloco.add(lerLinha(rs));
+                    if (bloco.size() == TAMANHO_FETCH) {
+                        adicionarBloco(bloco);
+                    }
+                });
+                adicionarBloco(bloco);
+            });
+
+            lock.writeLock().lock();
+            try {
+                Set<Long> idsPendentes = new HashSet<>();
+                for (Cupom cupom : pendentes) {
+                    for (Item item : cupom.getItens()) {
+                        if (item.getId() != null) {
+                            idsPendentes.add(item.getId());
+                        }
+                    }
+                }
+                Set<Long> jaCarregados = new HashSet<>();
+                if (!idsPendentes.isEmpty()) {
+                    for (int i = 0; i < colunas.tamanho; i++) {
+                        if (idsPendentes.contains(colunas.ids[i])) {
+                            jaCarregados.add(colunas.ids[i]);
+                        }
+                    }
+                }
+                for (Cupom cupom : pendentes) {
+                    for (Item item : cupom.getItens()) {
+                        if (item.getId() == null || !jaCarregados.contains(item.getId())) {
+                            adicionarItem(cupom, item);
+                        }
+                    }
+                }
+                pendentes.clear();
+                pronto = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.info("Armazenamento analítico carregado: {} itens, {} bytes, em {} ms",
+                    tamanho(), bytesOcupados(), System.currentTimeMillis() - inicio);
+        } catch (Exception e) {
+            lock.writeLock().lock();
+            try {
+                pendentes.clear();
+                falhou = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.error("Erro ao carregar o armazenamento analítico, consultas indisponíveis: {}", e.getMessage(), e);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void aoGravar(CuponsGravadosEvent evento) {
+        if (!habilitado) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (!pronto) {
+                if (!falhou) {
+                    pendentes.addAll(evento.cupons());
+                }
+                return;
+            }
+            for (Cupom cupom : evento.cupons()) {
+                for (Item item : cupom.getItens()) {
+                    adicionarItem(cupom, item);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isPronto() {
+        return pronto;
+    }
+
+    /**
+     * Filtra, agrupa e soma. Cada bloco de linhas é varrido por uma tarefa do ForkJoinPool com
+     * acumuladores próprios (um slot por código do dicionário da dimensão agrupada), somados no fim.
+     */
+    public ResultadoAnaliticoDTO consultar(ConsultaAnalitica consulta) {
+        long inicio = System.nanoTime();
+        lock.readLock().lock();
+        try {
+            int tamanho = colunas.tamanho;
+            int[] filtros = new int[DIMENSOES];
+            Arrays.fill(filtros, -1);
+            if (consulta.filtros() != null) {
+                for (Map.Entry<DimensaoAnalitica, String> filtro : consulta.filtros().entrySet()) {
+                    int codigo = dicionarios[filtro.getKey().ordinal()].buscar(filtro.getValue());
+                    if (codigo < 0) {
+                        // Valor que nunca apareceu: nenhuma linha passa no filtro
+                        return resultado(tamanho, 0, List.of(), inicio);
+                    }
+                    filtros[filtro.getKey().ordinal()] = codigo;
+                }
+            }
+            int de = consulta.de() != null ? (int) consulta.de().toEpochDay() : Integer.MIN_VALUE;
+            int ate = consulta.ate() != null ? (int) consulta.ate().toEpochDay() : Integer.MAX_VALUE;
+            int agrupar = consulta.agrupar().ordinal();
+            int grupos = dicionarios[agrupar].tamanho();
+
+            // Um bloco por tarefa; cada bloco tem seu próprio acumulador, então não adianta ter mais
+            // blocos que núcleos (com muitos grupos, cada acumulador a mais custa caro)
+            int blocos = Math.max(1, Math.min((tamanho + TAMANHO_BLOCO_MINIMO - 1) / TAMANHO_BLOCO_MINIMO,
+                    ForkJoinPool.getCommonPoolParallelism() * 2));
+            int porBloco = (tamanho + blocos - 1) / blocos;
+            long[] totais = IntStream.range(0, blocos).parallel()
+                    .mapToObj(bloco -> varrer(Math.min(tamanho, bloco * porBloco), Math.min(tamanho, (bloco + 1) * porBloco),
+                            filtros, de, ate, agrupar, grupos))
+                    .reduce(AnaliticoItensService::somar)
+                    .orElseGet(() -> new long[grupos * (METRICAS + 1)]);
+
+            long filtrados = 0;
+            for (int g = 0; g < grupos; g++) {
+                filtrados += totais[g * (METRICAS + 1)];
+            }
+            return resultado(tamanho, filtrados, montarGrupos(totais, grupos, consulta), inicio);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private long[] varrer(int inicio, int fim, int[] filtros, int de, int ate, int agrupar, int grupos) {
+        // Os totais de um grupo ficam lado a lado (contagem + métricas), na mesma linha de cache
+        long[] totais = new long[grupos * (METRICAS + 1)];
+        int[] chaves = colunas.dimensoes[agrupar];
+        int[] dias = colunas.dias;
+        long[][] metricas = colunas.metricas;
+        // Só as colunas com filtro entram no laço
+        int[][] colunasFiltradas = IntStream.range(0, DIMENSOES).filter(d -> filtros[d] >= 0)
+                .mapToObj(d -> colunas.dimensoes[d]).toArray(int[][]::new);
+        int[] valoresFiltro = Arrays.stream(filtros).filter(f -> f >= 0).toArray();
+        linhas:
+        for (int i = inicio; i < fim; i++) {
+            if (dias[i] < de || dias[i] > ate) {
+                continue;
+            }
+            for (int f = 0; f < colunasFiltradas.length; f++) {
+                if (colunasFiltradas[f][i] != valoresFiltro[f]) {
+                    continue linhas;
+                }
+            }
+            int base = chaves[i] * (METRICAS + 1);
+            totais[base]++;
+            for (int m = 0; m < METRICAS; m++) {
+                totais[base + 1 + m] += metricas[m][i];
+            }
+        }
+        return totais;
+    }
+
+    private static long[] somar(long[] a, long[] b) {
+        for (int i = 0; i < a.length; i++) {
+            a[i] += b[i];
+        }
+        return a;
+    }
+
+    private List<GrupoAnaliticoDTO> montarGrupos(long[] totais, int grupos, ConsultaAnalitica consulta) {
+        MetricaItem ordenar = consulta.ordenar() != null ? consulta.ordenar() : MetricaItem.VALOR_TOTAL;
+        boolean porProduto = consulta.agrupar() == DimensaoAnalitica.PRODUTO;
+        Dicionario dicionario = dicionarios[consulta.agrupar().ordinal()];
+
+        return selecionar(totais, grupos, 1 + ordenar.ordinal(), consulta.limite()).stream()
+                .map(g -> {
+                    int base = g * (METRICAS + 1);
+                    BigDecimal valorTotal = MetricaItem.VALOR_TOTAL.paraDecimal(totais[base + 1 + MetricaItem.VALOR_TOTAL.ordinal()]);
+                    BigDecimal valorDesconto = MetricaItem.VALOR_DESCONTO.paraDecimal(totais[base + 1 + MetricaItem.VALOR_DESCONTO.ordinal()]);
+                    return GrupoAnaliticoDTO.builder()
+                            .grupo(dicionario.valor(g))
+                            .descricao(porProduto ? descricoes.get(g) : null)
+                            .quantidadeItens(totais[base])
+                            .quantidade(MetricaItem.QUANTIDADE.paraDecimal(totais[base + 1 + MetricaItem.QUANTIDADE.ordinal()]))
+                            .valorTotal(valorTotal)
+                            .valorDesconto(valorDesconto)
+                            .valorIcms(MetricaItem.VALOR_ICMS.paraDecimal(totais[base + 1 + MetricaItem.VALOR_ICMS.ordinal()]))
+                            .valorPis(MetricaItem.VALOR_PIS.paraDecimal(totais[base + 1 + MetricaItem.VALOR_PIS.ordinal()]))
+                            .valorCofins(MetricaItem.VALOR_COFINS.paraDecimal(totais[base + 1 + MetricaItem.VALOR_COFINS.ordinal()]))
+                            .razaoDesconto(valorTotal.signum() != 0 ? valorDesconto.divide(valorTotal, 4, RoundingMode.HALF_UP) : null)
+                            .build();
+                })
+                .toList();
+    }
+
+    /**
+     * Grupos com ao menos uma linha, do maior para o menor na métrica; com limite, mantém só um
+     * heap de tamanho limite em vez de ordenar todos os grupos (agrupar por produto gera milhares)
+     */
+    private static List<Integer> selecionar(long[] totais, int grupos, int metrica, int limite) {
+        Comparator<Integer> porMetrica = Comparator.comparingLong(g -> totais[g * (METRICAS + 1) + metrica]);
+        if (limite <= 0) {
+            return IntStream.range(0, grupos)
+                    .filter(g -> totais[g * (METRICAS + 1)] > 0)
+                    .boxed()
+                    .sorted(porMetrica.reversed())
+                    .toList();
+        }
+        PriorityQueue<Integer> maiores = new PriorityQueue<>(limite + 1, porMetrica);
+        for (int g = 0; g < grupos; g++) {
+            int base = g * (METRICAS + 1);
+            if (totais[base] == 0) {
+                continue;
+            }
+            if (maiores.size() < limite) {
+                maiores.add(g);
+            } else if (totais[base + metrica] > totais[maiores.peek() * (METRICAS + 1) + metrica]) {
+                maiores.poll();
+                maiores.add(g);
+            }
+        }
+        List<Integer> selecionados = new ArrayList<>(maiores);
+        selecionados.sort(porMetrica.reversed());
+        return selecionados;
+    }
+
+    private ResultadoAnaliticoDTO resultado(int varridos, long filtrados, List<GrupoAnaliticoDTO> grupos, long inicio) {
+        return ResultadoAnaliticoDTO.builder()
+                .itensVarridos(varridos)
+                .itensFiltrados(filtrados)
+                .tempoMs((System.nanoTime() - inicio) / 1_000_000.0)
+                .grupos(grupos)
+                .build();
+    }
+
+    private Linha lerLinha(ResultSet rs) throws SQLException {
+        String[] textos = new String[DIMENSOES];
+        textos[DimensaoAnalitica.PRODUTO.ordinal()] = rs.getString("codigo");
+        textos[DimensaoAnalitica.CFOP.ordinal()] = rs.getString("cfop");
+        textos[DimensaoAnalitica.NCM.ordinal()] = rs.getString("ncm");
+        textos[DimensaoAnalitica.CST.ordinal()] = rs.getString("cst");
+        textos[DimensaoAnalitica.UNIDADE_MEDIDA.ordinal()] = rs.getString("unidade_medida");
+        textos[DimensaoAnalitica.ALIQUOTA_ICMS.ordinal()] = DimensaoAnalitica.aliquota(rs.getBigDecimal("aliquota_icms"));
+
+        long[] valores = new long[METRICAS];
+        valores[MetricaItem.QUANTIDADE.ordinal()] = MetricaItem.QUANTIDADE.paraLong(rs.getBigDecimal("quantidade"));
+        valores[MetricaItem.VALOR_TOTAL.ordinal()] = MetricaItem.VALOR_TOTAL.paraLong(rs.getBigDecimal("valor_total"));
+        valores[MetricaItem.VALOR_DESCONTO.ordinal()] = MetricaItem.VALOR_DESCONTO.paraLong(rs.getBigDecimal("valor_desconto"));
+        valores[MetricaItem.VALOR_ICMS.ordinal()] = MetricaItem.VALOR_ICMS.paraLong(rs.getBigDecimal("valor_icms"));
+        valores[MetricaItem.VALOR_PIS.ordinal()] = MetricaItem.VALOR_PIS.paraLong(rs.getBigDecimal("valor_pis"));
+        valores[MetricaItem.VALOR_COFINS.ordinal()] = MetricaItem.VALOR_COFINS.paraLong(rs.getBigDecimal("valor_cofins"));
+
+        int dia = (int) rs.getDate("data_emissao").toLocalDate().toEpochDay();
+        return new Linha(rs.getLong("id"), dia, textos, rs.getString("descricao"), valores);
+    }
+
+    private void adicionarBloco(List<Linha> bloco) {
+        lock.writeLock().lock();
+        try {
+            for (Linha linha : bloco) {
+                adicionar(linha.id(), linha.dia(), linha.textos(), linha.descricao(), linha.valores());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        bloco.clear();
+    }
+
+    private void adicionarItem(Cupom cupom, Item item) {
+        String[] textos = new String[DIMENSOES];
+        for (DimensaoAnalitica dimensao : DimensaoAnalitica.values()) {
+            textos[dimensao.ordinal()] = dimensao.valorDe(item);
+        }
+        long[] valores = new long[METRICAS];
+        for (MetricaItem metrica : MetricaItem.values()) {
+            valores[metrica.ordinal()] = metrica.valorDe(item);
+        }
+        long id = item.getId() != null ? item.getId() : -1;
+        adicionar(id, (int) cupom.getDataEmissao().toEpochDay(), textos, item.getProduto().getDescricao(), valores);
+    }
+
+    // Chamado sob o write lock
+    private void adicionar(long id, int dia, String[] textos, String descricao, long[] valores) {
+        int[] codigos = new int[DIMENSOES];
+        for (int d = 0; d < DIMENSOES; d++) {
+            codigos[d] = dicionarios[d].codificar(textos[d] != null ? textos[d] : "");
+        }
+        if (codigos[DimensaoAnalitica.PRODUTO.ordinal()] == descricoes.size()) {
+            descricoes.add(descricao);
+        }
+        colunas.adicionar(id, dia, codigos, valores);
+    }
+
+    // Uma linha lida pelo cursor da carga, ainda fora das colunas
+    private record Linha(long id, int dia, String[] textos, String descricao, long[] valores) {
+    }
+
+    private int tamanho() {
+        lock.readLock().lock();
+        try {
+            return colunas.tamanho;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private long bytesOcupados() {
+        lock.readLock().lock();
+        try {
+            return colunas.bytesOcupados();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
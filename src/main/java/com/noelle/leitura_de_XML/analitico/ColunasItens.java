@@ -0,0 +1,55 @@
+package com.noelle.leitura_de_XML.analitico;
+
+import java.util.Arrays;
+
+/**
+ * Os itens guardados por coluna em arrays primitivos: um int por dimensão (código do dicionário),
+ * um long por métrica, o dia de emissão (epoch day) e o id do item. Não é thread-safe; o
+ * AnaliticoItensService escreve sob o write lock e consulta sob o read lock.
+ */
+class ColunasItens {
+
+    private static final int CAPACIDADE_INICIAL = 1024;
+
+    final int[][] dimensoes = new int[DimensaoAnalitica.values().length][];
+    final long[][] metricas = new long[MetricaItem.values().length][];
+    int[] dias;
+    long[] ids;
+    int tamanho;
+
+    ColunasItens() {
+        alocar(CAPACIDADE_INICIAL);
+    }
+
+    void adicionar(long id, int dia, int[] codigos, long[] valores) {
+        if (tamanho == ids.length) {
+            alocar(ids.length * 2);
+        }
+        ids[tamanho] = id;
+        dias[tamanho] = dia;
+        for (int d = 0; d < dimensoes.length; d++) {
+            dimensoes[d][tamanho] = codigos[d];
+        }
+        for (int m = 0; m < metricas.length; m++) {
+            metricas[m][tamanho] = valores[m];
+        }
+        tamanho++;
+    }
+
+    long bytesOcupados() {
+        long porLinha = (long) dimensoes.length * Integer.BYTES + (long) metricas.length * Long.BYTES
+                + Integer.BYTES + Long.BYTES;
+        return porLinha * ids.length;
+    }
+
+    private void alocar(int capacidade) {
+        ids = ids == null ? new long[capacidade] : Arrays.copyOf(ids, capacidade);
+        dias = dias == null ? new int[capacidade] : Arrays.copyOf(dias, capacidade);
+        for (int d = 0; d < dimensoes.length; d++) {
+            dimensoes[d] = dimensoes[d] == null ? new int[capacidade] : Arrays.copyOf(dimensoes[d], capacidade);
+        }
+        for (int m = 0; m < metricas.length; m++) {
+            metricas[m] = metricas[m] == null ? new long[capacidade] : Arrays.copyOf(metricas[m], capacidade);
+        }
+    }
+}
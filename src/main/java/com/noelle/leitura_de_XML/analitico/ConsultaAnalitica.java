@@ -0,0 +1,16 @@
+package com.noelle.leitura_de_XML.analitico;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+/**
+ * Filtros (igualdade por dimensão e faixa de data de emissão), agrupamento e ordenação de uma consulta
+ * sobre os itens. de/ate e os filtros são opcionais.
+ */
+public record ConsultaAnalitica(DimensaoAnalitica agrupar,
+                                Map<DimensaoAnalitica, String> filtros,
+                                LocalDate de,
+                                LocalDate ate,
+                                MetricaItem ordenar,
+                                int limite) {
+}
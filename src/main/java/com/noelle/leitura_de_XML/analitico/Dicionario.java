@@ -0,0 +1,45 @@
+package com.noelle.leitura_de_XML.analitico;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Codificação por dicionário de uma coluna de texto: cada valor distinto vira um int sequencial.
+ * Não é thread-safe; o acesso é protegido pelo lock do AnaliticoItensService.
+ */
+class Dicionario {
+
+    private final Map<String, Integer> codigos = new HashMap<>();
+    private final List<String> valores = new ArrayList<>();
+
+    /**
+     * Código do valor, criando um novo se ainda não existe
+     */
+    int codificar(String valor) {
+        Integer codigo = codigos.get(valor);
+        if (codigo == null) {
+            codigo = valores.size();
+            codigos.put(valor, codigo);
+            valores.add(valor);
+        }
+        return codigo;
+    }
+
+    /**
+     * Código do valor, ou -1 se ele nunca apareceu
+     */
+    int buscar(String valor) {
+        Integer codigo = codigos.get(valor);
+        return codigo != null ? codigo : -1;
+    }
+
+    String valor(int codigo) {
+        return valores.get(codigo);
+    }
+
+    int tamanho() {
+        return valores.size();
+    }
+}
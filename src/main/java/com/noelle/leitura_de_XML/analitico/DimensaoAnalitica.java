@@ -0,0 +1,38 @@
+package com.noelle.leitura_de_XML.analitico;
+
+import com.noelle.leitura_de_XML.domain.Item;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.function.Function;
+
+/**
+ * Colunas de texto do armazenamento colunar, usadas em filtros e agrupamentos
+ */
+public enum DimensaoAnalitica {
+
+    PRODUTO(item -> item.getProduto().getCodigo()),
+    CFOP(Item::getCfop),
+    NCM(Item::getNcm),
+    CST(Item::getCst),
+    UNIDADE_MEDIDA(Item::getUnidadeMedida),
+    ALIQUOTA_ICMS(item -> aliquota(item.getAliquotaIcms()));
+
+    private final Function<Item, String> extrator;
+
+    DimensaoAnalitica(Function<Item, String> extrator) {
+        this.extrator = extrator;
+    }
+
+    String valorDe(Item item) {
+        String valor = extrator.apply(item);
+        return valor != null ? valor : "";
+    }
+
+    /**
+     * Mesma representação para o valor vindo do banco e do parser (ex.: 18.00)
+     */
+    static String aliquota(BigDecimal aliquota) {
+        return aliquota != null ? aliquota.setScale(2, RoundingMode.HALF_UP).toPlainString() : "";
+    }
+}
@@ -0,0 +1,41 @@
+package com.noelle.leitura_de_XML.analitico;
+
+import com.noelle.leitura_de_XML.domain.Item;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.function.Function;
+
+/**
+ * Colunas numéricas do armazenamento colunar, guardadas como long na escala da coluna
+ * (centavos para valores, décimos de milésimo para quantidade)
+ */
+public enum MetricaItem {
+
+    QUANTIDADE(4, Item::getQuantidade),
+    VALOR_TOTAL(2, Item::getValorTotal),
+    VALOR_DESCONTO(2, Item::getValorDesconto),
+    VALOR_ICMS(2, Item::getValorIcms),
+    VALOR_PIS(2, Item::getValorPis),
+    VALOR_COFINS(2, Item::getValorCofins);
+
+    private final int escala;
+    private final Function<Item, BigDecimal> extrator;
+
+    MetricaItem(int escala, Function<Item, BigDecimal> extrator) {
+        this.escala = escala;
+        this.extrator = extrator;
+    }
+
+    long valorDe(Item item) {
+        return paraLong(extrator.apply(item));
+    }
+
+    long paraLong(BigDecimal valor) {
+        return valor != null ? valor.setScale(escala, RoundingMode.HALF_UP).unscaledValue().longValueExact() : 0;
+    }
+
+    public BigDecimal paraDecimal(long valor) {
+        return BigDecimal.valueOf(valor, escala);
+    }
+}
@@ -0,0 +1,57 @@
+package com.noelle.leitura_de_XML.config;
+
+import com.noelle.leitura_de_XML.services.IngestaoJobService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+
+/**
+ * Rejeita com 429 os envios de ingestão quando a fila de jobs está cheia, antes que o DispatcherServlet
+ * leia o corpo multipart: um ZIP de centenas de MB é recusado sem ser recebido e gravado em disco.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class AdmissaoIngestaoFilter extends OncePerRequestFilter {
+
+    private static final Set<String> ENVIOS = Set.of(
+            "/api/cupons/processar",
+            "/api/cupons/importar-diretorio",
+            "/api/cupons/quarentena/reprocessar");
+
+    private final IngestaoJobService ingestaoJobService;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"POST".equals(request.getMethod())
+                || !ENVIOS.contains(request.getRequestURI().substring(request.getContextPath().length()));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (ingestaoJobService.aceitaNovosJobs()) {
+            chain.doFilter(request, response);
+            return;
+        }
+        long segundos = ingestaoJobService.segundosParaNovaTentativa();
+        log.warn("Ingestão rejeitada antes do upload, fila de jobs cheia: {}", request.getRequestURI());
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(segundos));
+        response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.getWriter().write("Fila de processamento cheia, tente novamente em " + segundos + " s");
+    }
+}
@@ -0,0 +1,38 @@
+package com.noelle.leitura_de_XML.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.noelle.leitura_de_XML.dto.CupomDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.cache.CacheManagerCustomizer;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    public static final String CACHE_CUPONS = "cupons";
+
+    /**
+     * Cache de CupomDTO por chave de acesso, limitado por peso (1 + quantidade de itens) em vez de
+     * número de entradas, já que um cupom com centenas de itens ocupa bem mais que um com um só.
+     * Os demais caches seguem spring.cache.caffeine.spec.
+     */
+    @Bean
+    public CacheManagerCustomizer<CaffeineCacheManager> cacheCupons(
+            @Value("${app.cache.cupons.peso-maximo:50000}") long pesoMaximo,
+            @Value("${app.cache.cupons.expira-apos-acesso:10m}") Duration expiraAposAcesso) {
+        return cacheManager -> cacheManager.registerCustomCache(CACHE_CUPONS, Caffeine.newBuilder()
+                .maximumWeight(pesoMaximo)
+                .weigher((Object chave, Object valor) -> valor instanceof CupomDTO cupom && cupom.getItens() != null
+                        ? 1 + cupom.getItens().size()
+                        : 1)
+                .expireAfterAccess(expiraAposAcesso)
+                .recordStats()
+                .build());
+    }
+}
@@ -0,0 +1,40 @@
+package com.noelle.leitura_de_XML.config;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class IngestaoConfig {
+
+    /**
+     * Executa os jobs de ingestão enviados pela API, um ZIP por thread. Quando todas as threads
+     * estão ocupadas e a fila está cheia, o envio é rejeitado em vez de acumular arquivos.
+     * Os workers do parse ficam no EscalonadorIngestao, compartilhados por todos os jobs.
+     */
+    @Bean(name = "jobsExecutor")
+    public ThreadPoolTaskExecutor jobsExecutor(@Value("${app.async.core-pool-size:4}") int corePoolSize,
+                                               @Value("${app.async.max-pool-size:4}") int maxPoolSize,
+                                               @Value("${app.async.queue-capacity:100}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(corePoolSize);
+        executor.setMaxPoolSize(maxPoolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("job-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Limita quantos lotes da ingestão gravam no banco ao mesmo tempo, cada um com uma conexão,
+     * para que as consultas da API sempre encontrem conexões livres no pool.
+     * Configurado em resilience4j.bulkhead.instances.ingestaoBanco.
+     */
+    @Bean
+    public Bulkhead bulkheadIngestaoBanco(BulkheadRegistry bulkheadRegistry) {
+        return bulkheadRegistry.bulkhead("ingestaoBanco");
+    }
+}
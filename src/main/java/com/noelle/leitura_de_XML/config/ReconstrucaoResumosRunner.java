@@ -0,0 +1,24 @@
+package com.noelle.leitura_de_XML.config;
+
+import com.noelle.leitura_de_XML.services.RelatorioService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reconstrói as tabelas de resumo na subida quando a aplicação é iniciada com
+ * --app.relatorios.reconstruir=true (backfill depois de cargas feitas por fora da ingestão)
+ */
+@Component
+@ConditionalOnProperty(name = "app.relatorios.reconstruir", havingValue = "true")
+@RequiredArgsConstructor
+public class ReconstrucaoResumosRunner implements CommandLineRunner {
+
+    private final RelatorioService relatorioService;
+
+    @Override
+    public void run(String... args) {
+        relatorioService.reconstruir();
+    }
+}
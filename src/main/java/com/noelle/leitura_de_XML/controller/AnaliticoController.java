@@ -0,0 +1,78 @@
+package com.noelle.leitura_de_XML.controller;
+
+import java.time.LocalDate;
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.noelle.leitura_de_XML.analitico.AnaliticoItensService;
+import com.noelle.leitura_de_XML.analitico.ConsultaAnalitica;
+import com.noelle.leitura_de_XML.analitico.DimensaoAnalitica;
+import com.noelle.leitura_de_XML.analitico.MetricaItem;
+import com.noelle.leitura_de_XML.dto.ResultadoAnaliticoDTO;
+import com.noelle.leitura_de_XML.exception.ProcessamentoException;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequestMapping("/api/analitico")
+@RequiredArgsConstructor
+@Tag(name = "Analítico", description = "Consultas ad hoc sobre os itens, em memória")
+public class AnaliticoController {
+
+    private final AnaliticoItensService analiticoItensService;
+
+    @GetMapping("/itens")
+    @Operation(summary = "Filtra, agrupa e soma os itens (ex.: agrupar=produto&ordenar=valor_total&limite=10)")
+    public ResponseEntity<ResultadoAnaliticoDTO> consultarItens(
+            @RequestParam String agrupar,
+            @RequestParam(required = false) String produto,
+            @RequestParam(required = false) String cfop,
+            @RequestParam(required = false) String ncm,
+            @RequestParam(required = false) String cst,
+            @RequestParam(required = false) String unidadeMedida,
+            @RequestParam(required = false) String aliquotaIcms,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate de,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate ate,
+            @RequestParam(defaultValue = "valor_total") String ordenar,
+            @RequestParam(defaultValue = "20") int limite) {
+        if (!analiticoItensService.isPronto()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+
+        Map<DimensaoAnalitica, String> filtros = new EnumMap<>(DimensaoAnalitica.class);
+        adicionarFiltro(filtros, DimensaoAnalitica.PRODUTO, produto);
+        adicionarFiltro(filtros, DimensaoAnalitica.CFOP, cfop);
+        adicionarFiltro(filtros, DimensaoAnalitica.NCM, ncm);
+        adicionarFiltro(filtros, DimensaoAnalitica.CST, cst);
+        adicionarFiltro(filtros, DimensaoAnalitica.UNIDADE_MEDIDA, unidadeMedida);
+        adicionarFiltro(filtros, DimensaoAnalitica.ALIQUOTA_ICMS, aliquotaIcms);
+
+        ConsultaAnalitica consulta = new ConsultaAnalitica(enumDe(DimensaoAnalitica.class, agrupar), filtros,
+                de, ate, enumDe(MetricaItem.class, ordenar), limite);
+        return ResponseEntity.ok(analiticoItensService.consultar(consulta));
+    }
+
+    private void adicionarFiltro(Map<DimensaoAnalitica, String> filtros, DimensaoAnalitica dimensao, String valor) {
+        if (valor != null && !valor.isBlank()) {
+            filtros.put(dimensao, valor);
+        }
+    }
+
+    private <E extends Enum<E>> E enumDe(Class<E> tipo, String valor) {
+        try {
+            return Enum.valueOf(tipo, valor.trim().toUpperCase().replace('-', '_'));
+        } catch (IllegalArgumentException e) {
+            throw new ProcessamentoException("Valor inválido: " + valor);
+        }
+    }
+}
@@ -1,23 +1,43 @@
 package com.noelle.leitura_de_XML.controller;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.util.Comparator;
 import java.util.List;
 
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import com.noelle.leitura_de_XML.domain.Cupom;
 import com.noelle.leitura_de_XML.dto.CupomDTO;
+import com.noelle.leitura_de_XML.dto.IngestaoJobDTO;
+import com.noelle.leitura_de_XML.dto.PaginaDTO;
+import com.noelle.leitura_de_XML.dto.XmlErroDTO;
+import com.noelle.leitura_de_XML.exception.ProcessamentoException;
 import com.noelle.leitura_de_XML.mapper.CupomMapper;
+import com.noelle.leitura_de_XML.mapper.IngestaoJobMapper;
+import com.noelle.leitura_de_XML.mapper.XmlErroMapper;
+import com.noelle.leitura_de_XML.services.CupomConsultaService;
 import com.noelle.leitura_de_XML.services.CupomService;
+import com.noelle.leitura_de_XML.services.IngestaoJob;
+import com.noelle.leitura_de_XML.services.IngestaoJobService;
+import com.noelle.leitura_de_XML.services.PaginaCupons;
+import com.noelle.leitura_de_XML.services.QuarentenaService;
+import com.noelle.leitura_de_XML.services.XmlProcessado;
 import org.springframework.http.MediaType;
 
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
@@ -29,40 +49,144 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 @Tag(name = "Cupons", description = "API para gerenciamento de cupons fiscais")
 public class CupomController {
+
+    private static final int TAMANHO_MAXIMO_PAGINA = 500;
     
     private final CupomService cupomService;
+    private final CupomConsultaService cupomConsultaService;
     private final CupomMapper cupomMapper;
+    private final IngestaoJobService ingestaoJobService;
+    private final IngestaoJobMapper ingestaoJobMapper;
+    private final ObjectMapper objectMapper;
+    private final QuarentenaService quarentenaService;
+    private final XmlErroMapper xmlErroMapper;
     
-   @PostMapping(value = "/processar", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    @Operation(summary = "Processa um arquivo ZIP contendo XMLs de CF-e SAT")
-    public ResponseEntity<String> processarArquivoZip(@RequestParam("arquivo") MultipartFile arquivo) {
-    try {
+    @PostMapping(value = "/processar", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @Operation(summary = "Envia um arquivo ZIP contendo XMLs de CF-e SAT para processamento em segundo plano")
+    public ResponseEntity<IngestaoJobDTO> processarArquivoZip(@RequestParam("arquivo") MultipartFile arquivo) throws IOException {
         log.info("Recebido arquivo para processamento: {}", arquivo.getOriginalFilename());
-        byte[] conteudo = arquivo.getBytes();
-        int processados = cupomService.processarArquivoZip(conteudo);
-        return ResponseEntity.ok("Arquivo processado com sucesso. Total de cupons processados: " + processados);
-    } catch (IOException e) {
-        log.error("Erro ao ler arquivo: {}", e.getMessage(), e);
-        return ResponseEntity.badRequest().body("Erro ao ler arquivo: " + e.getMessage());
-    } catch (Exception e) {
-        log.error("Erro ao processar arquivo: {}", e.getMessage(), e);
-        return ResponseEntity.badRequest().body("Erro ao processar arquivo: " + e.getMessage());
+        IngestaoJob job = ingestaoJobService.submeter(arquivo);
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/cupons/jobs/" + job.getId()))
+                .body(ingestaoJobMapper.toDto(job));
+    }
+
+    @GetMapping("/jobs")
+    @Operation(summary = "Lista os jobs de processamento de ZIP")
+    public ResponseEntity<List<IngestaoJobDTO>> listarJobs() {
+        return ResponseEntity.ok(ingestaoJobService.listar().stream()
+                .sorted(Comparator.comparing(IngestaoJob::getCriadoEm))
+                .map(ingestaoJobMapper::toDto)
+                .toList());
+    }
+
+    @GetMapping("/jobs/{id}")
+    @Operation(summary = "Consulta o status e o andamento de um job (XMLs concluídos/total, taxa e estimativa de término)")
+    public ResponseEntity<IngestaoJobDTO> consultarJob(@PathVariable String id) {
+        return ingestaoJobService.buscar(id)
+                .map(job -> ResponseEntity.ok(ingestaoJobMapper.toDto(job)))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/jobs/{id}/relatorio")
+    @Operation(summary = "Relatório final de um job; responde 409 enquanto o job não terminou")
+    public ResponseEntity<IngestaoJobDTO> relatorioJob(@PathVariable String id) {
+        return ingestaoJobService.buscar(id)
+                .map(job -> job.isFinalizado()
+                        ? ResponseEntity.ok(ingestaoJobMapper.toDto(job))
+                        : ResponseEntity.status(HttpStatus.CONFLICT).body(ingestaoJobMapper.toDto(job)))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/quarentena")
+    @Operation(summary = "Lista os XMLs mais recentes da quarentena (documentos que falharam na ingestão), sem o conteúdo")
+    public ResponseEntity<List<XmlErroDTO>> listarQuarentena(@RequestParam(defaultValue = "50") int limite) {
+        return ResponseEntity.ok(quarentenaService.listarRecentes(tamanhoPagina(limite)).stream()
+                .map(xmlErroMapper::toDto)
+                .toList());
+    }
+
+    @PostMapping("/quarentena/reprocessar")
+    @Operation(summary = "Reenvia ao pipeline até 'limite' XMLs pendentes da quarentena, como um job em segundo plano")
+    public ResponseEntity<IngestaoJobDTO> reprocessarQuarentena(@RequestParam(defaultValue = "10000") int limite) {
+        if (limite < 1) {
+            throw new ProcessamentoException("O limite precisa ser positivo");
+        }
+        IngestaoJob job = ingestaoJobService.submeterReprocessamento(limite);
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/cupons/jobs/" + job.getId()))
+                .body(ingestaoJobMapper.toDto(job));
+    }
+
+    @PostMapping("/importar-diretorio")
+    @Operation(summary = "Importa todos os XMLs e ZIPs sob um diretório de app.diretorio.importacao-raiz como um job "
+            + "em segundo plano; cada arquivo é movido para as subpastas processados/ ou erros/")
+    public ResponseEntity<IngestaoJobDTO> importarDiretorio(@RequestParam("caminho") String caminho) {
+        IngestaoJob job = ingestaoJobService.submeterDiretorio(caminho);
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/cupons/jobs/" + job.getId()))
+                .body(ingestaoJobMapper.toDto(job));
     }
-}
 
-    
     @GetMapping("/por-numero")
-    @Operation(summary = "Lista todos os cupons ordenados pelo número do CF-e")
-    public ResponseEntity<List<CupomDTO>> listarPorNumero() {
-        List<Cupom> cupons = cupomService.listarPorNumero();
-        return ResponseEntity.ok(cupomMapper.toDtoList(cupons));
+    @Operation(summary = "Lista os cupons ordenados pelo número do CF-e, paginado por token de continuação (itens=false traz só o cabeçalho)")
+    public ResponseEntity<PaginaDTO<CupomDTO>> listarPorNumero(@RequestParam(defaultValue = "50") int tamanho,
+                                                               @RequestParam(required = false) String token,
+                                                               @RequestParam(defaultValue = "true") boolean itens) {
+        PaginaCupons pagina = cupomService.listarPorNumero(tamanhoPagina(tamanho), token, itens);
+        return ResponseEntity.ok(toPaginaDto(pagina, itens));
+    }
+    
+    @GetMapping(value = "/por-numero/stream", produces = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "Exporta todos os cupons ordenados pelo número do CF-e como um array JSON gerado em streaming")
+    public ResponseEntity<StreamingResponseBody> exportarPorNumero(@RequestParam(defaultValue = "true") boolean itens) {
+        StreamingResponseBody corpo = saida -> {
+            try (JsonGenerator gerador = objectMapper.getFactory().createGenerator(saida)) {
+                gerador.writeStartArray();
+                cupomService.exportarPorNumero(itens, bloco -> {
+                    try {
+                        for (Cupom cupom : bloco) {
+                            gerador.writeObject(cupomMapper.toDto(cupom, itens));
+                        }
+                        gerador.flush();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                gerador.writeEndArray();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(corpo);
     }
     
     @GetMapping("/por-valor")
-    @Operation(summary = "Lista todos os cupons ordenados pelo valor total")
-    public ResponseEntity<List<CupomDTO>> listarPorValor() {
-        List<Cupom> cupons = cupomService.listarPorValor();
-        return ResponseEntity.ok(cupomMapper.toDtoList(cupons));
+    @Operation(summary = "Lista os cupons ordenados pelo valor total, paginado por token de continuação (itens=false traz só o cabeçalho)")
+    public ResponseEntity<PaginaDTO<CupomDTO>> listarPorValor(@RequestParam(defaultValue = "50") int tamanho,
+                                                              @RequestParam(required = false) String token,
+                                                              @RequestParam(defaultValue = "true") boolean itens) {
+        PaginaCupons pagina = cupomService.listarPorValor(tamanhoPagina(tamanho), token, itens);
+        return ResponseEntity.ok(toPaginaDto(pagina, itens));
+    }
+
+    private int tamanhoPagina(int tamanho) {
+        return Math.clamp(tamanho, 1, TAMANHO_MAXIMO_PAGINA);
+    }
+
+    private PaginaDTO<CupomDTO> toPaginaDto(PaginaCupons pagina, boolean comItens) {
+        List<CupomDTO> conteudo = cupomMapper.toDtoList(pagina.cupons(), comItens);
+        return PaginaDTO.<CupomDTO>builder()
+                .conteudo(conteudo)
+                .tamanho(conteudo.size())
+                .proximoToken(pagina.proximoToken())
+                .build();
+    }
+
+
+    @GetMapping("/{chaveAcesso:\\d{44}}")
+    @Operation(summary = "Busca um cupom e seus itens pela chave de acesso")
+    public ResponseEntity<CupomDTO> buscarPorChave(@PathVariable String chaveAcesso) {
+        CupomDTO cupom = cupomConsultaService.buscarPorChave(chaveAcesso);
+        return cupom != null ? ResponseEntity.ok(cupom) : ResponseEntity.notFound().build();
     }
 
 
@@ -71,8 +195,12 @@ public class CupomController {
     @Operation(summary = "Processa um único arquivo XML de CF-e SAT")
     public ResponseEntity<String> processarXmlUnico(@RequestParam("caminho") String caminhoArquivo) {
         try {
-            Cupom cupom = cupomService.processarXmlUnico(caminhoArquivo);
-            return ResponseEntity.ok("XML processado com sucesso. Chave de acesso: " + cupom.getChaveAcesso());
+            XmlProcessado processado = cupomService.processarXmlUnico(caminhoArquivo);
+            if (processado.isCancelamento()) {
+                return ResponseEntity.ok("Cancelamento aplicado. Chave do cupom cancelado: "
+                        + processado.cancelamento().chaveCupom());
+            }
+            return ResponseEntity.ok("XML processado com sucesso. Chave de acesso: " + processado.cupom().getChaveAcesso());
         } catch (IOException e) {
             log.error("Erro ao ler arquivo: {}", e.getMessage(), e);
             return ResponseEntity.badRequest().body("Erro ao ler arquivo: " + e.getMessage());
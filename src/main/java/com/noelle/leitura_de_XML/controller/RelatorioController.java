@@ -0,0 +1,60 @@
+package com.noelle.leitura_de_XML.controller;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.noelle.leitura_de_XML.domain.DimensaoItem;
+import com.noelle.leitura_de_XML.dto.ResumoDiarioDTO;
+import com.noelle.leitura_de_XML.dto.ResumoItemDTO;
+import com.noelle.leitura_de_XML.services.RelatorioService;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequestMapping("/api/relatorios")
+@RequiredArgsConstructor
+@Tag(name = "Relatórios", description = "Totais fiscais a partir das tabelas de resumo")
+public class RelatorioController {
+
+    private final RelatorioService relatorioService;
+
+    @GetMapping("/diario")
+    @Operation(summary = "Totais de ICMS, PIS, COFINS e produtos por dia de emissão")
+    public ResponseEntity<List<ResumoDiarioDTO>> totaisPorDia(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate de,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate ate) {
+        return ResponseEntity.ok(relatorioService.totaisPorDia(
+                de != null ? de : LocalDate.of(1900, 1, 1),
+                ate != null ? ate : LocalDate.of(9999, 12, 31)));
+    }
+
+    @GetMapping("/itens/{dimensao}")
+    @Operation(summary = "Totais dos itens por CFOP, NCM ou CST")
+    public ResponseEntity<List<ResumoItemDTO>> totaisDeItens(@PathVariable String dimensao) {
+        DimensaoItem dimensaoItem;
+        try {
+            dimensaoItem = DimensaoItem.valueOf(dimensao.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(relatorioService.totaisDeItens(dimensaoItem));
+    }
+
+    @PostMapping("/reconstruir")
+    @Operation(summary = "Recalcula as tabelas de resumo a partir de cupom e item")
+    public ResponseEntity<String> reconstruir() {
+        relatorioService.reconstruir();
+        return ResponseEntity.ok("Tabelas de resumo reconstruídas");
+    }
+}
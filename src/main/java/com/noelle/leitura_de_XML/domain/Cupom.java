@@ -1,10 +1,13 @@
 // Created by Noelle on 10/10/2023
 package com.noelle.leitura_de_XML.domain;
 import jakarta.persistence.*;
+import com.noelle.leitura_de_XML.util.HashConteudo;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -13,7 +16,11 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "cupom")
+@Table(name = "cupom", indexes = {
+        // Listagens paginadas por keyset (ver V3__indices_listagem.sql)
+        @Index(name = "idx_cupom_numero_chave", columnList = "numero_cfe, chave_acesso"),
+        @Index(name = "idx_cupom_valor_chave", columnList = "valor_total_produtos, chave_acesso")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -49,9 +56,29 @@ public class Cupom {
     
     @Column(name = "data_processamento")
     private LocalDateTime dataProcessamento;
+
+    /** Marcado quando chega o CFeCanc deste cupom (ver CancelamentoService) */
+    @Column(name = "cancelado", nullable = false, columnDefinition = "boolean default false")
+    private boolean cancelado;
+
+    /** Chave de acesso do CFeCanc que cancelou o cupom */
+    @Column(name = "chave_cancelamento", length = 44)
+    private String chaveCancelamento;
     
     @OneToMany(mappedBy = "cupom", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private List<Item> itens = new ArrayList<>();
+
+    /** Hash dos bytes do XML de origem, preenchido pela ingestão de ZIPs (ver ConteudoIngeridoService) */
+    @Transient
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private HashConteudo hashConteudo;
+
+    /** Nome da entrada do ZIP ou do arquivo de onde o cupom foi lido, preenchido pela ingestão */
+    @Transient
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private String arquivoOrigem;
     
     @PrePersist
     public void prePersist() {
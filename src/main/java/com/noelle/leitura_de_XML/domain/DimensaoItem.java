@@ -0,0 +1,24 @@
+package com.noelle.leitura_de_XML.domain;
+
+import java.util.function.Function;
+
+/**
+ * Dimensões pelas quais os itens são totalizados nos relatórios (tabela resumo_item)
+ */
+public enum DimensaoItem {
+
+    CFOP(Item::getCfop),
+    NCM(Item::getNcm),
+    CST(Item::getCst);
+
+    private final Function<Item, String> valor;
+
+    DimensaoItem(Function<Item, String> valor) {
+        this.valor = valor;
+    }
+
+    public String valorDe(Item item) {
+        String v = valor.apply(item);
+        return v != null ? v : "";
+    }
+}
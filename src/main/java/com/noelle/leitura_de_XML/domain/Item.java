@@ -9,26 +9,30 @@ import lombok.NoArgsConstructor;
 import java.math.BigDecimal;
 
 @Entity
-@Table(name = "item")
+@Table(name = "item", indexes = {
+        // Carga dos itens de uma página de cupons (ver V4__indice_item_cupom.sql)
+        @Index(name = "idx_item_cupom", columnList = "cupom_chave_acesso")
+})
 @Data
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
 public class Item {
     
+    // Sequence pooled (ver V2__item_sequence.sql): com IDENTITY o Hibernate desliga o batch de inserts
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "item_seq")
+    @SequenceGenerator(name = "item_seq", sequenceName = "item_seq", allocationSize = 50)
     private Long id;
     
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "cupom_chave_acesso", nullable = false)
     private Cupom cupom;
     
-    @Column(name = "codigo", nullable = false, length = 60)
-    private String codigo;
-    
-    @Column(name = "descricao", nullable = false)
-    private String descricao;
+    // Instâncias compartilhadas entre os itens do mesmo produto (ver CatalogoProdutosService)
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "produto_id", nullable = false, foreignKey = @ForeignKey(name = "fk_item_produto"))
+    private Produto produto;
     
     @Column(name = "quantidade", nullable = false, precision = 15, scale = 4)
     private BigDecimal quantidade;
@@ -0,0 +1,36 @@
+package com.noelle.leitura_de_XML.domain;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Dicionário de produtos (ver V6__produtos.sql): cada item aponta para o produto em vez de repetir
+ * código e descrição. A descrição faz parte da chave para que um produto renomeado pelo emitente
+ * não altere a descrição dos itens já gravados.
+ */
+@Entity
+@Table(name = "produto", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_produto_emitente_codigo", columnNames = {"cnpj_emitente", "codigo", "descricao"})
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class Produto {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "cnpj_emitente", nullable = false, length = 14)
+    private String cnpjEmitente;
+
+    @Column(name = "codigo", nullable = false, length = 60)
+    private String codigo;
+
+    @Column(name = "descricao", nullable = false)
+    private String descricao;
+}
@@ -20,14 +20,34 @@ public class XmlErro {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
     
+    /** Conteúdo sem compactar; só nos registros anteriores à quarentena (V7__quarentena.sql) */
     @Column(name = "conteudo_xml", columnDefinition = "TEXT")
     private String conteudoXml;
+
+    /** XML original compactado com Deflater (formato zlib) */
+    @Column(name = "conteudo_compactado", columnDefinition = "BYTEA")
+    private byte[] conteudoCompactado;
+
+    @Column(name = "tamanho_original")
+    private Integer tamanhoOriginal;
+
+    /** Nome da entrada no ZIP */
+    @Column(name = "nome_arquivo")
+    private String nomeArquivo;
+
+    /** Desfecho da ingestão: invalido ou erro */
+    @Column(name = "tipo", length = 20)
+    private String tipo;
     
-    @Column(name = "mensagem_erro")
+    @Column(name = "mensagem_erro", columnDefinition = "TEXT")
     private String mensagemErro;
     
     @Column(name = "data_erro")
     private LocalDateTime dataErro;
+
+    /** Quando foi reenviado ao pipeline; null enquanto está pendente */
+    @Column(name = "reprocessado_em")
+    private LocalDateTime reprocessadoEm;
     
     @PrePersist
     public void prePersist() {
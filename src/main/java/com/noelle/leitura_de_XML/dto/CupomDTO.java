@@ -1,5 +1,6 @@
 package com.noelle.leitura_de_XML.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -24,5 +25,9 @@ public class CupomDTO {
     private BigDecimal valorTotalPis;
     private BigDecimal valorTotalCofins;
     private BigDecimal valorTotalOutros;
+    private boolean cancelado;
+    private String chaveCancelamento;
+    // Omitido nas listagens com itens=false
+    @JsonInclude(JsonInclude.Include.NON_NULL)
     private List<ItemDTO> itens = new ArrayList<>();
 }
@@ -0,0 +1,27 @@
+package com.noelle.leitura_de_XML.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class GrupoAnaliticoDTO {
+    private String grupo;
+    // Descrição do produto, quando agrupado por produto
+    private String descricao;
+    private long quantidadeItens;
+    private BigDecimal quantidade;
+    private BigDecimal valorTotal;
+    private BigDecimal valorDesconto;
+    private BigDecimal valorIcms;
+    private BigDecimal valorPis;
+    private BigDecimal valorCofins;
+    // valorDesconto / valorTotal
+    private BigDecimal razaoDesconto;
+}
@@ -0,0 +1,31 @@
+package com.noelle.leitura_de_XML.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class IngestaoJobDTO {
+    private String id;
+    private String arquivo;
+    private String status;
+    private Instant criadoEm;
+    private Instant iniciadoEm;
+    private Instant concluidoEm;
+    private int totalXmls;
+    private int concluidos;
+    private int processados;
+    private int duplicados;
+    private int falhas;
+    private int cancelamentos;
+    private double xmlsPorSegundo;
+    private Long etaSegundos;
+    private long duracaoMs;
+    private String erro;
+}
@@ -0,0 +1,21 @@
+package com.noelle.leitura_de_XML.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaginaDTO<T> {
+    @Builder.Default
+    private List<T> conteudo = new ArrayList<>();
+    private int tamanho;
+    /** Token para buscar a próxima página; null na última */
+    private String proximoToken;
+}
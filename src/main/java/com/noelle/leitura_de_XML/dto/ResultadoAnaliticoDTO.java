@@ -0,0 +1,21 @@
+package com.noelle.leitura_de_XML.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResultadoAnaliticoDTO {
+    private long itensVarridos;
+    private long itensFiltrados;
+    private double tempoMs;
+    @Builder.Default
+    private List<GrupoAnaliticoDTO> grupos = new ArrayList<>();
+}
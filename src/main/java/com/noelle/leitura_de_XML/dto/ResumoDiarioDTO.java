@@ -0,0 +1,22 @@
+package com.noelle.leitura_de_XML.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResumoDiarioDTO {
+    private LocalDate dataEmissao;
+    private long quantidadeCupons;
+    private BigDecimal valorTotalIcms;
+    private BigDecimal valorTotalPis;
+    private BigDecimal valorTotalCofins;
+    private BigDecimal valorTotalProdutos;
+}
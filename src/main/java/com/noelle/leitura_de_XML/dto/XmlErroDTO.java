@@ -0,0 +1,22 @@
+package com.noelle.leitura_de_XML.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class XmlErroDTO {
+    private Long id;
+    private String nomeArquivo;
+    private String tipo;
+    private String mensagemErro;
+    private Integer tamanhoOriginal;
+    private LocalDateTime dataErro;
+    private LocalDateTime reprocessadoEm;
+}
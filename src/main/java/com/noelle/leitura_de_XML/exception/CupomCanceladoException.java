@@ -0,0 +1,13 @@
+package com.noelle.leitura_de_XML.exception;
+
+/**
+ * Documento de cancelamento (CFeCanc) enviado onde se espera um cupom. Na ingestão de ZIPs e
+ * diretórios e nos XMLs avulsos do CupomService o cancelamento é identificado antes do parse e
+ * aplicado pelo CancelamentoService.
+ */
+public class CupomCanceladoException extends ProcessamentoException {
+
+    public CupomCanceladoException(String message) {
+        super(message);
+    }
+}
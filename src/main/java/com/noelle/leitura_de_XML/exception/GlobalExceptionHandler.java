@@ -5,7 +5,9 @@ package com.noelle.leitura_de_XML.exception;
  * e não deve ser inserido novamente.
  */ 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
@@ -26,6 +28,20 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.CONFLICT).body("Duplicidade detectada: " + e.getMessage());
     }
     
+    @ExceptionHandler(IngestaoRejeitadaException.class)
+    public ResponseEntity<String> handleIngestaoRejeitadaException(IngestaoRejeitadaException e) {
+        log.warn("Ingestão rejeitada: {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getSegundosParaNovaTentativa()))
+                .body("Fila de processamento cheia, tente novamente em " + e.getSegundosParaNovaTentativa() + " s");
+    }
+
+    @ExceptionHandler(TaskRejectedException.class)
+    public ResponseEntity<String> handleTaskRejectedException(TaskRejectedException e) {
+        log.warn("Fila de processamento cheia: {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Fila de processamento cheia, tente novamente mais tarde");
+    }
+    
     @ExceptionHandler(Exception.class)
     public ResponseEntity<String> handleGenericException(Exception e) {
         log.error("Erro inesperado: {}", e.getMessage(), e);
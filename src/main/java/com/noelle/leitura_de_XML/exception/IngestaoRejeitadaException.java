@@ -0,0 +1,18 @@
+package com.noelle.leitura_de_XML.exception;
+
+import lombok.Getter;
+
+/**
+ * Lançada quando a fila de jobs de ingestão está cheia. Leva a estimativa de quando haverá vaga,
+ * devolvida ao cliente no cabeçalho Retry-After da resposta 429.
+ */
+@Getter
+public class IngestaoRejeitadaException extends RuntimeException {
+
+    private final long segundosParaNovaTentativa;
+
+    public IngestaoRejeitadaException(String message, long segundosParaNovaTentativa, Throwable cause) {
+        super(message, cause);
+        this.segundosParaNovaTentativa = segundosParaNovaTentativa;
+    }
+}
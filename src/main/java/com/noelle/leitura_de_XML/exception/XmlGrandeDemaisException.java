@@ -0,0 +1,22 @@
+package com.noelle.leitura_de_XML.exception;
+
+import java.io.IOException;
+
+/**
+ * Entrada maior que app.xml.tamanho-maximo-bytes, pelo tamanho declarado no ZIP ou pelo que foi lido.
+ * Só a entrada é rejeitada; a leitura da origem continua na próxima.
+ */
+public class XmlGrandeDemaisException extends IOException {
+
+    private final String nome;
+
+    public XmlGrandeDemaisException(String nome, long tamanho, int tamanhoMaximo) {
+        super("XML " + nome + " maior que o limite de " + tamanhoMaximo + " bytes"
+                + (tamanho >= 0 ? " (" + tamanho + " bytes)" : ""));
+        this.nome = nome;
+    }
+
+    public String getNome() {
+        return nome;
+    }
+}
@@ -52,6 +52,13 @@ public class CupomMapper {
     }
 
     public CupomDTO toDto(Cupom entity) {
+        return toDto(entity, true);
+    }
+
+    /**
+     * Sem itens, só os campos do cabeçalho são lidos e a coleção de itens nem é inicializada
+     */
+    public CupomDTO toDto(Cupom entity, boolean comItens) {
         if (entity == null) {
             return null;
         }
@@ -66,27 +73,35 @@ public class CupomMapper {
         dto.setValorTotalPis(entity.getValorTotalPis());
         dto.setValorTotalCofins(entity.getValorTotalCofins());
         dto.setValorTotalOutros(entity.getValorTotalOutros());
+        dto.setCancelado(entity.isCancelado());
+        dto.setChaveCancelamento(entity.getChaveCancelamento());
 
         // Mapear lista de itens para DTOs
-        if (entity.getItens() != null) {
+        if (comItens && entity.getItens() != null) {
             List<com.noelle.leitura_de_XML.dto.ItemDTO> itensDto = new ArrayList<>();
             for (com.noelle.leitura_de_XML.domain.Item item : entity.getItens()) {
                 itensDto.add(itemMapper.toDto(item));
             }
             dto.setItens(itensDto);
+        } else if (!comItens) {
+            dto.setItens(null);
         }
 
         return dto;
     }
 
     public List<CupomDTO> toDtoList(List<Cupom> entities) {
+        return toDtoList(entities, true);
+    }
+
+    public List<CupomDTO> toDtoList(List<Cupom> entities, boolean comItens) {
         if (entities == null) {
             return null;
         }
 
         List<CupomDTO> list = new ArrayList<>(entities.size());
         for (Cupom cupom : entities) {
-            list.add(toDto(cupom));
+            list.add(toDto(cupom, comItens));
         }
         return list;
     }
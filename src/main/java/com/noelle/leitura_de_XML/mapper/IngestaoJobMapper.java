@@ -0,0 +1,36 @@
+package com.noelle.leitura_de_XML.mapper;
+
+import com.noelle.leitura_de_XML.dto.IngestaoJobDTO;
+import com.noelle.leitura_de_XML.services.IngestaoJob;
+import com.noelle.leitura_de_XML.services.ResultadoIngestao;
+import org.springframework.stereotype.Component;
+
+@Component
+public class IngestaoJobMapper {
+
+    public IngestaoJobDTO toDto(IngestaoJob job) {
+        if (job == null) {
+            return null;
+        }
+
+        ResultadoIngestao resultado = job.getResultado();
+        return IngestaoJobDTO.builder()
+                .id(job.getId())
+                .arquivo(job.getNomeArquivo())
+                .status(job.getStatus().name())
+                .criadoEm(job.getCriadoEm())
+                .iniciadoEm(job.getIniciadoEm())
+                .concluidoEm(job.getConcluidoEm())
+                .totalXmls(job.getTotalEsperado())
+                .concluidos(job.getConcluidas())
+                .processados(resultado.getProcessados())
+                .duplicados(resultado.getDuplicados())
+                .falhas(resultado.getFalhas())
+                .cancelamentos(resultado.getCancelamentos())
+                .xmlsPorSegundo(Math.round(job.getXmlsPorSegundo() * 10) / 10.0)
+                .etaSegundos(job.getEtaSegundos())
+                .duracaoMs(job.getDuracao().toMillis())
+                .erro(job.getErro())
+                .build();
+    }
+}
@@ -3,6 +3,7 @@ package com.noelle.leitura_de_XML.mapper;
 
 
 import com.noelle.leitura_de_XML.domain.Item;
+import com.noelle.leitura_de_XML.domain.Produto;
 import com.noelle.leitura_de_XML.dto.ItemDTO;
 import org.springframework.stereotype.Component;
 
@@ -18,8 +19,7 @@ public class ItemMapper {
         }
 
         Item entity = new Item();
-        entity.setCodigo(dto.getCodigo());
-        entity.setDescricao(dto.getDescricao());
+        entity.setProduto(Produto.builder().codigo(dto.getCodigo()).descricao(dto.getDescricao()).build());
         entity.setQuantidade(dto.getQuantidade());
         entity.setCfop(dto.getCfop());
         entity.setValorUnitario(dto.getValorUnitario());
@@ -47,8 +47,8 @@ public class ItemMapper {
         }
 
         ItemDTO dto = new ItemDTO();
-        dto.setCodigo(entity.getCodigo());
-        dto.setDescricao(entity.getDescricao());
+        dto.setCodigo(entity.getProduto().getCodigo());
+        dto.setDescricao(entity.getProduto().getDescricao());
         dto.setQuantidade(entity.getQuantidade());
         dto.setCfop(entity.getCfop());
         dto.setValorUnitario(entity.getValorUnitario());
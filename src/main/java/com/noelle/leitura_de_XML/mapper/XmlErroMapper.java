@@ -0,0 +1,25 @@
+package com.noelle.leitura_de_XML.mapper;
+
+import com.noelle.leitura_de_XML.domain.XmlErro;
+import com.noelle.leitura_de_XML.dto.XmlErroDTO;
+import org.springframework.stereotype.Component;
+
+@Component
+public class XmlErroMapper {
+
+    public XmlErroDTO toDto(XmlErro erro) {
+        if (erro == null) {
+            return null;
+        }
+
+        return XmlErroDTO.builder()
+                .id(erro.getId())
+                .nomeArquivo(erro.getNomeArquivo())
+                .tipo(erro.getTipo())
+                .mensagemErro(erro.getMensagemErro())
+                .tamanhoOriginal(erro.getTamanhoOriginal())
+                .dataErro(erro.getDataErro())
+                .reprocessadoEm(erro.getReprocessadoEm())
+                .build();
+    }
+}
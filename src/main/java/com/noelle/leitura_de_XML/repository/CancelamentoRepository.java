@@ -0,0 +1,104 @@
+package com.noelle.leitura_de_XML.repository;
+
+import com.noelle.leitura_de_XML.xml.CancelamentoCfe;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cancelamentos (V9__cancelamentos.sql) e a marcação dos cupons cancelados. Usa a conexão da
+ * transação corrente, então o registro e a marcação de um lote entram no mesmo commit.
+ */
+@Repository
+@RequiredArgsConstructor
+public class CancelamentoRepository {
+
+    private static final String GRAVAR = "INSERT INTO cancelamento (chave_acesso, chave_cupom, data_emissao) "
+            + "SELECT * FROM unnest(?::varchar[], ?::varchar[], ?::date[]) "
+            + "ON CONFLICT (chave_acesso) DO NOTHING";
+
+    private static final String MARCAR_CUPONS = "UPDATE cupom c SET cancelado = true, chave_cancelamento = x.chave_acesso "
+            + "FROM unnest(?::varchar[], ?::varchar[]) AS x(chave_acesso, chave_cupom) "
+            + "WHERE c.chave_acesso = x.chave_cupom AND NOT c.cancelado "
+            + "RETURNING c.chave_acesso";
+
+    // Trava transacional por chave de cupom, sempre na mesma ordem para que duas transações não se travem
+    private static final String TRAVAR_CUPONS = "SELECT pg_advisory_xact_lock(h) FROM ("
+            + "SELECT DISTINCT hashtextextended(k, 0) AS h FROM unnest(?::varchar[]) AS k ORDER BY h) AS chaves";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Trava as chaves de cupom até o fim da transação corrente. A gravação de cupons e a aplicação de
+     * cancelamentos travam as mesmas chaves antes de consultar uma a tabela da outra, então uma das duas
+     * sempre enxerga o que a outra gravou, mesmo quando chegam em jobs simultâneos.
+     */
+    public void travarCupons(Collection<String> chavesCupom) {
+        jdbcTemplate.query(TRAVAR_CUPONS,
+                statement -> statement.setArray(1, statement.getConnection().createArrayOf("varchar", chavesCupom.toArray())),
+                rs -> {
+                });
+    }
+
+    /**
+     * Registra os cancelamentos em uma ida ao banco; os que já existem são ignorados
+     */
+    public void gravar(List<CancelamentoCfe> cancelamentos) {
+        String[] chaves = new String[cancelamentos.size()];
+        String[] chavesCupom = new String[cancelamentos.size()];
+        Date[] datas = new Date[cancelamentos.size()];
+        for (int i = 0; i < cancelamentos.size(); i++) {
+            CancelamentoCfe cancelamento = cancelamentos.get(i);
+            chaves[i] = cancelamento.chaveAcesso();
+            chavesCupom[i] = cancelamento.chaveCupom();
+            datas[i] = cancelamento.dataEmissao() != null ? Date.valueOf(cancelamento.dataEmissao()) : null;
+        }
+        jdbcTemplate.update(GRAVAR, statement -> {
+            Connection connection = statement.getConnection();
+            statement.setArray(1, connection.createArrayOf("varchar", chaves));
+            statement.setArray(2, connection.createArrayOf("varchar", chavesCupom));
+            statement.setArray(3, connection.createArrayOf("date", datas));
+        });
+    }
+
+    /**
+     * Marca como cancelados os cupons já gravados; retorna as chaves dos que foram marcados agora
+     */
+    public List<String> marcarCupons(List<CancelamentoCfe> cancelamentos) {
+        String[] chaves = new String[cancelamentos.size()];
+        String[] chavesCupom = new String[cancelamentos.size()];
+        for (int i = 0; i < cancelamentos.size(); i++) {
+            chaves[i] = cancelamentos.get(i).chaveAcesso();
+            chavesCupom[i] = cancelamentos.get(i).chaveCupom();
+        }
+        return jdbcTemplate.query(MARCAR_CUPONS, statement -> {
+            Connection connection = statement.getConnection();
+            statement.setArray(1, connection.createArrayOf("varchar", chaves));
+            statement.setArray(2, connection.createArrayOf("varchar", chavesCupom));
+        }, (rs, rowNum) -> rs.getString(1));
+    }
+
+    /**
+     * Chave do cancelamento de cada cupom informado que já tem um, indexada pela chave do cupom
+     */
+    public Map<String, String> buscarPorCupons(Collection<String> chavesCupom) {
+        Map<String, String> cancelamentos = new HashMap<>();
+        jdbcTemplate.query("SELECT chave_cupom, chave_acesso FROM cancelamento WHERE chave_cupom = ANY(?)",
+                statement -> statement.setArray(1, statement.getConnection().createArrayOf("varchar", chavesCupom.toArray())),
+                rs -> {
+                    cancelamentos.putIfAbsent(rs.getString(1), rs.getString(2));
+                });
+        return cancelamentos;
+    }
+
+    public boolean existeAlgum() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM cancelamento)", Boolean.class));
+    }
+}
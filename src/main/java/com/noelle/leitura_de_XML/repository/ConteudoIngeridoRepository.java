@@ -0,0 +1,88 @@
+package com.noelle.leitura_de_XML.repository;
+
+import com.noelle.leitura_de_XML.util.HashConteudo;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Connection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+
+/**
+ * Conteúdos já ingeridos (V8__conteudo_ingerido.sql): o hash de cada XML com o desfecho e a chave
+ * de acesso, e o hash de cada ZIP inteiro com as contagens do processamento.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ConteudoIngeridoRepository {
+
+    private static final String GRAVAR = "INSERT INTO conteudo_ingerido (hash, chave_acesso, resultado) "
+            + "SELECT * FROM unnest(?::uuid[], ?::varchar[], ?::varchar[]) "
+            + "ON CONFLICT (hash) DO UPDATE SET chave_acesso = EXCLUDED.chave_acesso, "
+            + "resultado = EXCLUDED.resultado, registrado_em = now()";
+
+    private static final String GRAVAR_ARQUIVO = "INSERT INTO arquivo_ingerido (hash, nome_arquivo, total_xmls, "
+            + "processados, duplicados, falhas) VALUES (?, ?, ?, ?, ?, ?) "
+            + "ON CONFLICT (hash) DO NOTHING";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Contagens gravadas para um ZIP já processado
+     */
+    public record ArquivoIngerido(int total, int processados, int duplicados, int falhas) {
+    }
+
+    /**
+     * Um XML e seu desfecho; chaveAcesso só existe para os que chegaram ao banco
+     */
+    public record ConteudoIngerido(HashConteudo hash, String chaveAcesso, String resultado) {
+    }
+
+    /**
+     * Grava os registros em uma ida ao banco, substituindo o desfecho dos hashes que já existem.
+     * Os hashes não podem se repetir na lista.
+     */
+    public void gravar(List<ConteudoIngerido> registros) {
+        UUID[] hashes = new UUID[registros.size()];
+        String[] chaves = new String[registros.size()];
+        String[] resultados = new String[registros.size()];
+        for (int i = 0; i < registros.size(); i++) {
+            hashes[i] = registros.get(i).hash().paraUuid();
+            chaves[i] = registros.get(i).chaveAcesso();
+            resultados[i] = registros.get(i).resultado();
+        }
+        jdbcTemplate.update(GRAVAR, statement -> {
+            Connection connection = statement.getConnection();
+            statement.setArray(1, connection.createArrayOf("uuid", hashes));
+            statement.setArray(2, connection.createArrayOf("varchar", chaves));
+            statement.setArray(3, connection.createArrayOf("varchar", resultados));
+        });
+    }
+
+    /**
+     * Percorre todos os hashes com o desfecho, com um cursor de tamanhoFetch linhas.
+     * Precisa rodar dentro de uma transação para que o driver use o cursor.
+     */
+    public void percorrer(int tamanhoFetch, BiConsumer<HashConteudo, String> consumidor) {
+        JdbcTemplate cursor = new JdbcTemplate(jdbcTemplate.getDataSource());
+        cursor.setFetchSize(tamanhoFetch);
+        cursor.query("SELECT hash, resultado FROM conteudo_ingerido", rs -> {
+            consumidor.accept(HashConteudo.de(rs.getObject(1, UUID.class)), rs.getString(2));
+        });
+    }
+
+    public Optional<ArquivoIngerido> buscarArquivo(HashConteudo hash) {
+        return jdbcTemplate.query("SELECT total_xmls, processados, duplicados, falhas FROM arquivo_ingerido WHERE hash = ?",
+                (rs, linha) -> new ArquivoIngerido(rs.getInt(1), rs.getInt(2), rs.getInt(3), rs.getInt(4)),
+                hash.paraUuid()).stream().findFirst();
+    }
+
+    public void gravarArquivo(HashConteudo hash, String nomeArquivo, ArquivoIngerido arquivo) {
+        jdbcTemplate.update(GRAVAR_ARQUIVO, hash.paraUuid(), nomeArquivo, arquivo.total(),
+                arquivo.processados(), arquivo.duplicados(), arquivo.falhas());
+    }
+}
@@ -0,0 +1,134 @@
+package com.noelle.leitura_de_XML.repository;
+
+import com.noelle.leitura_de_XML.domain.Cupom;
+import com.noelle.leitura_de_XML.domain.Item;
+import com.noelle.leitura_de_XML.exception.ProcessamentoException;
+import lombok.RequiredArgsConstructor;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Carga de cupons e itens pelo COPY do PostgreSQL, para importações muito grandes.
+ * Usa a conexão da transação corrente, então participa do mesmo commit/rollback.
+ */
+@Repository
+@RequiredArgsConstructor
+public class CupomCopyRepository {
+
+    private static final String COPY_CUPOM = "COPY cupom (chave_acesso, numero_cfe, data_emissao, valor_total_icms, "
+            + "valor_total_produtos, valor_total_descontos, valor_total_pis, valor_total_cofins, valor_total_outros, "
+            + "data_processamento, cancelado, chave_cancelamento) FROM STDIN WITH (FORMAT csv)";
+
+    private static final String COPY_ITEM = "COPY item (id, cupom_chave_acesso, produto_id, quantidade, cfop, "
+            + "valor_unitario, valor_total, valor_desconto, cst, aliquota_icms, valor_icms, base_pis, aliquota_pis, "
+            + "valor_pis, base_cofins, aliquota_cofins, valor_cofins, unidade_medida, ncm, numero_sequencial) "
+            + "FROM STDIN WITH (FORMAT csv)";
+
+    // Mesmo incremento do @SequenceGenerator de Item: cada nextval reserva os 50 ids anteriores
+    private static final int INCREMENTO_SEQUENCE = 50;
+
+    private final DataSource dataSource;
+
+    public void inserirEmLote(List<Cupom> cupons) {
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try {
+            CopyManager copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+            LocalDateTime agora = LocalDateTime.now();
+
+            StringBuilder linhasCupom = new StringBuilder(cupons.size() * 160);
+            int quantidadeItens = 0;
+            for (Cupom cupom : cupons) {
+                cupom.setDataProcessamento(agora);
+                linha(linhasCupom, cupom.getChaveAcesso(), cupom.getNumeroCfe(), cupom.getDataEmissao(),
+                        cupom.getValorTotalIcms(), cupom.getValorTotalProdutos(), cupom.getValorTotalDescontos(),
+                        cupom.getValorTotalPis(), cupom.getValorTotalCofins(), cupom.getValorTotalOutros(), agora,
+                        cupom.isCancelado(), cupom.getChaveCancelamento());
+                quantidadeItens += cupom.getItens().size();
+            }
+            copyManager.copyIn(COPY_CUPOM, new StringReader(linhasCupom.toString()));
+
+            if (quantidadeItens == 0) {
+                return;
+            }
+            long[] ids = reservarIds(connection, quantidadeItens);
+            StringBuilder linhasItem = new StringBuilder(quantidadeItens * 200);
+            int proximo = 0;
+            for (Cupom cupom : cupons) {
+                for (Item item : cupom.getItens()) {
+                    item.setId(ids[proximo++]);
+                    linha(linhasItem, item.getId(), cupom.getChaveAcesso(), item.getProduto().getId(),
+                            item.getQuantidade(), item.getCfop(), item.getValorUnitario(), item.getValorTotal(),
+                            item.getValorDesconto(), item.getCst(), item.getAliquotaIcms(), item.getValorIcms(),
+                            item.getBasePis(), item.getAliquotaPis(), item.getValorPis(), item.getBaseCofins(),
+                            item.getAliquotaCofins(), item.getValorCofins(), item.getUnidadeMedida(), item.getNcm(),
+                            item.getNumeroSequencial());
+                }
+            }
+            copyManager.copyIn(COPY_ITEM, new StringReader(linhasItem.toString()));
+        } catch (SQLException | IOException e) {
+            throw new ProcessamentoException("Erro ao carregar cupons via COPY: " + e.getMessage(), e);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    /**
+     * Reserva ids em blocos da item_seq, do mesmo jeito que o otimizador pooled do Hibernate
+     */
+    private long[] reservarIds(Connection connection, int quantidade) throws SQLException {
+        long[] ids = new long[quantidade];
+        int blocos = (quantidade + INCREMENTO_SEQUENCE - 1) / INCREMENTO_SEQUENCE;
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT nextval('item_seq') FROM generate_series(1, ?)")) {
+            statement.setInt(1, blocos);
+            int preenchidos = 0;
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next() && preenchidos < quantidade) {
+                    long limite = resultSet.getLong(1);
+                    for (long id = Math.max(1, limite - INCREMENTO_SEQUENCE + 1); id <= limite && preenchidos < quantidade; id++) {
+                        ids[preenchidos++] = id;
+                    }
+                }
+            }
+            if (preenchidos < quantidade) {
+                // Só acontece no primeiro valor de uma sequence nova, que reserva um único id
+                long[] restantes = reservarIds(connection, quantidade - preenchidos);
+                System.arraycopy(restantes, 0, ids, preenchidos, restantes.length);
+            }
+        }
+        return ids;
+    }
+
+    private static void linha(StringBuilder destino, Object... valores) {
+        for (int i = 0; i < valores.length; i++) {
+            if (i > 0) {
+                destino.append(',');
+            }
+            Object valor = valores[i];
+            if (valor == null) {
+                continue;
+            }
+            if (valor instanceof String texto) {
+                destino.append('"').append(texto.replace("\"", "\"\"")).append('"');
+            } else if (valor instanceof BigDecimal decimal) {
+                destino.append(decimal.toPlainString());
+            } else {
+                destino.append(valor);
+            }
+        }
+        destino.append('\n');
+    }
+}
@@ -1,28 +1,66 @@
 package com.noelle.leitura_de_XML.repository;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.noelle.leitura_de_XML.domain.Cupom;
 
+import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
-public interface CupomRepository extends JpaRepository<Cupom, String> {
+public interface CupomRepository extends JpaRepository<Cupom, String>, CupomRepositoryCustom {
     
     /**
-     * Busca todos os cupons ordenados pelo número do CF-e
+     * Primeira página dos cupons ordenados pelo número do CF-e (desempate pela chave de acesso)
      */
-    List<Cupom> findAllByOrderByNumeroCfeAsc();
-    
+    @Query("select c from Cupom c order by c.numeroCfe, c.chaveAcesso")
+    List<Cupom> findPrimeirosPorNumero(Limit limite);
+
+    /**
+     * Página seguinte à última linha entregue, na ordem do número do CF-e
+     */
+    @Query("select c from Cupom c where (c.numeroCfe, c.chaveAcesso) > (:numeroCfe, :chaveAcesso) "
+            + "order by c.numeroCfe, c.chaveAcesso")
+    List<Cupom> findProximosPorNumero(@Param("numeroCfe") String numeroCfe,
+                                      @Param("chaveAcesso") String chaveAcesso,
+                                      Limit limite);
+
+    /**
+     * Primeira página dos cupons ordenados pelo valor total dos produtos (desempate pela chave de acesso)
+     */
+    @Query("select c from Cupom c order by c.valorTotalProdutos, c.chaveAcesso")
+    List<Cupom> findPrimeirosPorValor(Limit limite);
+
     /**
-     * Busca todos os cupons ordenados pelo valor total dos produtos
+     * Página seguinte à última linha entregue, na ordem do valor total dos produtos
      */
-    List<Cupom> findAllByOrderByValorTotalProdutosAsc();
+    @Query("select c from Cupom c where (c.valorTotalProdutos, c.chaveAcesso) > (:valor, :chaveAcesso) "
+            + "order by c.valorTotalProdutos, c.chaveAcesso")
+    List<Cupom> findProximosPorValor(@Param("valor") BigDecimal valor,
+                                     @Param("chaveAcesso") String chaveAcesso,
+                                     Limit limite);
     
+    /**
+     * Carrega os cupons informados com os itens em uma única consulta. Para cupons já presentes
+     * no contexto de persistência, inicializa a coleção de itens das próprias instâncias.
+     */
+    @Query("select c from Cupom c left join fetch c.itens i left join fetch i.produto where c.chaveAcesso in :chaves")
+    List<Cupom> findComItens(@Param("chaves") Collection<String> chaves);
+
     /**
      * Verifica se já existe um cupom com a chave de acesso informada
      */
     boolean existsByChaveAcesso(String chaveAcesso);
+
+    /**
+     * Retorna, dentre as chaves informadas, as que já existem no banco
+     */
+    @Query("select c.chaveAcesso from Cupom c where c.chaveAcesso in :chaves")
+    List<String> findChavesExistentes(@Param("chaves") Collection<String> chaves);
 }
 
@@ -0,0 +1,21 @@
+package com.noelle.leitura_de_XML.repository;
+
+import com.noelle.leitura_de_XML.domain.Cupom;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+public interface CupomRepositoryCustom {
+
+    /**
+     * Insere cupons novos (e seus itens) com persist, em batch JDBC, sem o merge do save
+     */
+    void inserirEmLote(List<Cupom> cupons);
+
+    /**
+     * Percorre todos os cupons na ordem do número do CF-e (desempate pela chave de acesso) com um
+     * cursor só de avanço, buscando fetchSize linhas por vez. Precisa de uma transação aberta
+     * enquanto o stream é consumido.
+     */
+    Stream<Cupom> streamPorNumero(int fetchSize);
+}
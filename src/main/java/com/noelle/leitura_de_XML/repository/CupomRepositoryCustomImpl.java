@@ -0,0 +1,34 @@
+package com.noelle.leitura_de_XML.repository;
+
+import com.noelle.leitura_de_XML.domain.Cupom;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.jpa.HibernateHints;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+public class CupomRepositoryCustomImpl implements CupomRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public void inserirEmLote(List<Cupom> cupons) {
+        for (Cupom cupom : cupons) {
+            entityManager.persist(cupom);
+        }
+        // Envia os inserts agora, agrupados por tabela, e solta as entidades do contexto
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Override
+    public Stream<Cupom> streamPorNumero(int fetchSize) {
+        // Com fetch size e autocommit desligado (transação aberta) o driver do PostgreSQL usa um cursor
+        return entityManager.createQuery("select c from Cupom c order by c.numeroCfe, c.chaveAcesso", Cupom.class)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream();
+    }
+}
@@ -1,5 +1,6 @@
 package com.noelle.leitura_de_XML.repository;
 
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
@@ -11,8 +12,9 @@ import java.util.List;
 public interface ItemRepository extends JpaRepository<Item, Long> {
     
     /**
-     * Busca todos os itens de um cupom específico
+     * Busca todos os itens de um cupom específico, já com os produtos
      */
+    @EntityGraph(attributePaths = "produto")
     List<Item> findByCupomChaveAcesso(String chaveAcesso);
 }
 
@@ -0,0 +1,98 @@
+package com.noelle.leitura_de_XML.repository;
+
+import com.noelle.leitura_de_XML.domain.Produto;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Dicionário de produtos (V6__produtos.sql). Usa a conexão da transação corrente.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ProdutoRepository {
+
+    // Os produtos que já existem não são vistos pelo INSERT (mesmo snapshot), então vêm do JOIN;
+    // os novos vêm do RETURNING
+    private static final String GARANTIR = "WITH novos AS ("
+            + "SELECT * FROM unnest(?::varchar[], ?::varchar[], ?::varchar[]) AS n(cnpj_emitente, codigo, descricao)), "
+            + "inseridos AS (INSERT INTO produto (cnpj_emitente, codigo, descricao) SELECT * FROM novos "
+            + "ON CONFLICT (cnpj_emitente, codigo, descricao) DO NOTHING RETURNING id, cnpj_emitente, codigo, descricao) "
+            + "SELECT * FROM inseridos UNION ALL "
+            + "SELECT p.id, p.cnpj_emitente, p.codigo, p.descricao FROM produto p "
+            + "JOIN novos n USING (cnpj_emitente, codigo, descricao)";
+
+    private static final int MAXIMO_TENTATIVAS = 3;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Insere os produtos que ainda não existem e devolve todos com id, em uma ida ao banco.
+     * Um produto inserido por outra transação depois do início do comando não aparece em nenhum dos
+     * dois lados, por isso os que ficarem sem id são consultados de novo.
+     */
+    public List<Produto> garantir(List<Produto> produtos) {
+        List<Produto> resolvidos = new ArrayList<>(produtos.size());
+        List<Produto> pendentes = produtos;
+        for (int tentativa = 0; tentativa < MAXIMO_TENTATIVAS && !pendentes.isEmpty(); tentativa++) {
+            List<Produto> encontrados = executar(pendentes);
+            resolvidos.addAll(encontrados);
+            pendentes = faltantes(pendentes, encontrados);
+        }
+        if (!pendentes.isEmpty()) {
+            throw new IllegalStateException("Não foi possível obter o id de " + pendentes.size() + " produtos");
+        }
+        return resolvidos;
+    }
+
+    private List<Produto> executar(List<Produto> produtos) {
+        String[] cnpjs = new String[produtos.size()];
+        String[] codigos = new String[produtos.size()];
+        String[] descricoes = new String[produtos.size()];
+        for (int i = 0; i < produtos.size(); i++) {
+            cnpjs[i] = produtos.get(i).getCnpjEmitente();
+            codigos[i] = produtos.get(i).getCodigo();
+            descricoes[i] = produtos.get(i).getDescricao();
+        }
+        return jdbcTemplate.query(GARANTIR,
+                statement -> {
+                    Connection connection = statement.getConnection();
+                    statement.setArray(1, connection.createArrayOf("varchar", cnpjs));
+                    statement.setArray(2, connection.createArrayOf("varchar", codigos));
+                    statement.setArray(3, connection.createArrayOf("varchar", descricoes));
+                },
+                (rs, linha) -> Produto.builder()
+                        .id(rs.getLong("id"))
+                        .cnpjEmitente(rs.getString("cnpj_emitente"))
+                        .codigo(rs.getString("codigo"))
+                        .descricao(rs.getString("descricao"))
+                        .build());
+    }
+
+    private static List<Produto> faltantes(List<Produto> pedidos, List<Produto> encontrados) {
+        if (encontrados.size() >= pedidos.size()) {
+            return List.of();
+        }
+        Set<List<String>> chaves = new HashSet<>();
+        for (Produto encontrado : encontrados) {
+            chaves.add(chave(encontrado));
+        }
+        List<Produto> faltantes = new ArrayList<>();
+        for (Produto pedido : pedidos) {
+            if (!chaves.contains(chave(pedido))) {
+                faltantes.add(pedido);
+            }
+        }
+        return faltantes;
+    }
+
+    private static List<String> chave(Produto produto) {
+        return List.of(produto.getCnpjEmitente(), produto.getCodigo(), produto.getDescricao());
+    }
+}
@@ -0,0 +1,205 @@
+package com.noelle.leitura_de_XML.repository;
+
+import com.noelle.leitura_de_XML.domain.Cupom;
+import com.noelle.leitura_de_XML.domain.DimensaoItem;
+import com.noelle.leitura_de_XML.domain.Item;
+import com.noelle.leitura_de_XML.dto.ResumoDiarioDTO;
+import com.noelle.leitura_de_XML.dto.ResumoItemDTO;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Tabelas de totais dos relatórios (V5__resumos.sql). Usa a conexão da transação corrente,
+ * então os totais de um lote entram no mesmo commit dos cupons. Cupons cancelados ficam fora dos totais.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ResumoRepository {
+
+    private static final String UPSERT_DIARIO = "INSERT INTO resumo_diario (data_emissao, quantidade_cupons, "
+            + "valor_total_icms, valor_total_pis, valor_total_cofins, valor_total_produtos) VALUES (?, ?, ?, ?, ?, ?) "
+            + "ON CONFLICT (data_emissao) DO UPDATE SET "
+            + "quantidade_cupons = resumo_diario.quantidade_cupons + EXCLUDED.quantidade_cupons, "
+            + "valor_total_icms = resumo_diario.valor_total_icms + EXCLUDED.valor_total_icms, "
+            + "valor_total_pis = resumo_diario.valor_total_pis + EXCLUDED.valor_total_pis, "
+            + "valor_total_cofins = resumo_diario.valor_total_cofins + EXCLUDED.valor_total_cofins, "
+            + "valor_total_produtos = resumo_diario.valor_total_produtos + EXCLUDED.valor_total_produtos";
+
+    private static final String UPSERT_ITEM = "INSERT INTO resumo_item (dimensao, valor, quantidade_itens, "
+            + "valor_total, valor_desconto, valor_icms, valor_pis, valor_cofins) VALUES (?, ?, ?, ?, ?, ?, ?, ?) "
+            + "ON CONFLICT (dimensao, valor) DO UPDATE SET "
+            + "quantidade_itens = resumo_item.quantidade_itens + EXCLUDED.quantidade_itens, "
+            + "valor_total = resumo_item.valor_total + EXCLUDED.valor_total, "
+            + "valor_desconto = resumo_item.valor_desconto + EXCLUDED.valor_desconto, "
+            + "valor_icms = resumo_item.valor_icms + EXCLUDED.valor_icms, "
+            + "valor_pis = resumo_item.valor_pis + EXCLUDED.valor_pis, "
+            + "valor_cofins = resumo_item.valor_cofins + EXCLUDED.valor_cofins";
+
+    private static final String RECONSTRUIR_DIARIO = "INSERT INTO resumo_diario "
+            + "SELECT data_emissao, COUNT(*), SUM(valor_total_icms), SUM(valor_total_pis), "
+            + "SUM(valor_total_cofins), SUM(valor_total_produtos) FROM cupom WHERE NOT cancelado GROUP BY data_emissao";
+
+    private static final String RECONSTRUIR_ITEM = "INSERT INTO resumo_item "
+            + "SELECT d.dimensao, d.valor, COUNT(*), SUM(i.valor_total), SUM(i.valor_desconto), "
+            + "SUM(COALESCE(i.valor_icms, 0)), SUM(COALESCE(i.valor_pis, 0)), SUM(COALESCE(i.valor_cofins, 0)) "
+            + "FROM item i JOIN cupom c ON c.chave_acesso = i.cupom_chave_acesso "
+            + "CROSS JOIN LATERAL (VALUES ('CFOP', i.cfop), ('NCM', i.ncm), ('CST', i.cst)) "
+            + "AS d(dimensao, valor) WHERE NOT c.cancelado GROUP BY d.dimensao, d.valor";
+
+    // O que os cupons informados somaram aos totais, para ser descontado quando são cancelados
+    private static final String TOTAIS_DIARIO_DOS_CUPONS = "SELECT data_emissao, COUNT(*), "
+            + "SUM(COALESCE(valor_total_icms, 0)), SUM(COALESCE(valor_total_pis, 0)), "
+            + "SUM(COALESCE(valor_total_cofins, 0)), SUM(COALESCE(valor_total_produtos, 0)) "
+            + "FROM cupom WHERE chave_acesso = ANY(?) GROUP BY data_emissao";
+
+    private static final String TOTAIS_ITEM_DOS_CUPONS = "SELECT d.dimensao, d.valor, COUNT(*), "
+            + "SUM(COALESCE(i.valor_total, 0)), SUM(COALESCE(i.valor_desconto, 0)), SUM(COALESCE(i.valor_icms, 0)), "
+            + "SUM(COALESCE(i.valor_pis, 0)), SUM(COALESCE(i.valor_cofins, 0)) "
+            + "FROM item i CROSS JOIN LATERAL (VALUES ('CFOP', COALESCE(i.cfop, '')), ('NCM', COALESCE(i.ncm, '')), "
+            + "('CST', COALESCE(i.cst, ''))) AS d(dimensao, valor) "
+            + "WHERE i.cupom_chave_acesso = ANY(?) GROUP BY d.dimensao, d.valor";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Soma os cupons do lote aos totais, menos os que já chegam cancelados. O lote é agregado em memória
+     * primeiro, então cada dia e cada CFOP/NCM/CST vira um único upsert; as linhas são atualizadas sempre
+     * na mesma ordem para que lotes concorrentes não entrem em deadlock.
+     */
+    public void acumular(List<Cupom> cupons) {
+        Map<LocalDate, BigDecimal[]> dias = new TreeMap<>();
+        Map<String, BigDecimal[]> grupos = new TreeMap<>();
+        for (Cupom cupom : cupons) {
+            if (cupom.isCancelado()) {
+                continue;
+            }
+            somar(dias.computeIfAbsent(cupom.getDataEmissao(), d -> zeros(5)),
+                    BigDecimal.ONE, cupom.getValorTotalIcms(), cupom.getValorTotalPis(),
+                    cupom.getValorTotalCofins(), cupom.getValorTotalProdutos());
+            for (Item item : cupom.getItens()) {
+                for (DimensaoItem dimensao : DimensaoItem.values()) {
+                    somar(grupos.computeIfAbsent(dimensao.name() + ':' + dimensao.valorDe(item), g -> zeros(6)),
+                            BigDecimal.ONE, item.getValorTotal(), item.getValorDesconto(),
+                            item.getValorIcms(), item.getValorPis(), item.getValorCofins());
+                }
+            }
+        }
+        atualizar(dias, grupos);
+    }
+
+    /**
+     * Tira dos totais o que os cupons informados somaram. Chamado na transação que os marca como cancelados,
+     * com as chaves que acabaram de ser marcadas; usa os mesmos upserts, na mesma ordem, de {@link #acumular}.
+     */
+    public void descontar(Collection<String> chavesCupom) {
+        if (chavesCupom.isEmpty()) {
+            return;
+        }
+        Map<LocalDate, BigDecimal[]> dias = new TreeMap<>();
+        Map<String, BigDecimal[]> grupos = new TreeMap<>();
+        jdbcTemplate.query(TOTAIS_DIARIO_DOS_CUPONS,
+                statement -> statement.setArray(1, statement.getConnection().createArrayOf("varchar", chavesCupom.toArray())),
+                rs -> {
+                    dias.put(rs.getDate(1).toLocalDate(), negativos(rs, 2, 5));
+                });
+        jdbcTemplate.query(TOTAIS_ITEM_DOS_CUPONS,
+                statement -> statement.setArray(1, statement.getConnection().createArrayOf("varchar", chavesCupom.toArray())),
+                rs -> {
+                    grupos.put(rs.getString(1) + ':' + rs.getString(2), negativos(rs, 3, 6));
+                });
+        atualizar(dias, grupos);
+    }
+
+    private void atualizar(Map<LocalDate, BigDecimal[]> dias, Map<String, BigDecimal[]> grupos) {
+        List<Object[]> linhasDiario = new ArrayList<>(dias.size());
+        dias.forEach((dia, t) -> linhasDiario.add(new Object[]{Date.valueOf(dia), t[0].longValue(), t[1], t[2], t[3], t[4]}));
+        List<Object[]> linhasItem = new ArrayList<>(grupos.size());
+        grupos.forEach((grupo, t) -> {
+            int separador = grupo.indexOf(':');
+            linhasItem.add(new Object[]{grupo.substring(0, separador), grupo.substring(separador + 1),
+                    t[0].longValue(), t[1], t[2], t[3], t[4], t[5]});
+        });
+
+        if (!linhasDiario.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPSERT_DIARIO, linhasDiario);
+        }
+        if (!linhasItem.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPSERT_ITEM, linhasItem);
+        }
+    }
+
+    /**
+     * Recalcula as tabelas a partir de cupom e item. O lock bloqueia os upserts da ingestão até o
+     * commit, então nenhum lote é contado duas vezes nem perdido durante a reconstrução.
+     */
+    public void reconstruir() {
+        jdbcTemplate.execute("LOCK TABLE resumo_diario, resumo_item IN EXCLUSIVE MODE");
+        jdbcTemplate.update("DELETE FROM resumo_diario");
+        jdbcTemplate.update("DELETE FROM resumo_item");
+        jdbcTemplate.update(RECONSTRUIR_DIARIO);
+        jdbcTemplate.update(RECONSTRUIR_ITEM);
+    }
+
+    public List<ResumoDiarioDTO> listarDiario(LocalDate de, LocalDate ate) {
+        return jdbcTemplate.query("SELECT * FROM resumo_diario WHERE data_emissao BETWEEN ? AND ? ORDER BY data_emissao",
+                (rs, linha) -> ResumoDiarioDTO.builder()
+                        .dataEmissao(rs.getDate("data_emissao").toLocalDate())
+                        .quantidadeCupons(rs.getLong("quantidade_cupons"))
+                        .valorTotalIcms(rs.getBigDecimal("valor_total_icms"))
+                        .valorTotalPis(rs.getBigDecimal("valor_total_pis"))
+                        .valorTotalCofins(rs.getBigDecimal("valor_total_cofins"))
+                        .valorTotalProdutos(rs.getBigDecimal("valor_total_produtos"))
+                        .build(),
+                Date.valueOf(de), Date.valueOf(ate));
+    }
+
+    public List<ResumoItemDTO> listarPorDimensao(DimensaoItem dimensao) {
+        return jdbcTemplate.query("SELECT * FROM resumo_item WHERE dimensao = ? ORDER BY valor_total DESC, valor",
+                (rs, linha) -> ResumoItemDTO.builder()
+                        .dimensao(rs.getString("dimensao"))
+                        .valor(rs.getString("valor"))
+                        .quantidadeItens(rs.getLong("quantidade_itens"))
+                        .valorTotal(rs.getBigDecimal("valor_total"))
+                        .valorDesconto(rs.getBigDecimal("valor_desconto"))
+                        .valorIcms(rs.getBigDecimal("valor_icms"))
+                        .valorPis(rs.getBigDecimal("valor_pis"))
+                        .valorCofins(rs.getBigDecimal("valor_cofins"))
+                        .build(),
+                dimensao.name());
+    }
+
+    private static BigDecimal[] zeros(int tamanho) {
+        BigDecimal[] totais = new BigDecimal[tamanho];
+        Arrays.fill(totais, BigDecimal.ZERO);
+        return totais;
+    }
+
+    private static BigDecimal[] negativos(ResultSet rs, int primeiraColuna, int quantidade) throws SQLException {
+        BigDecimal[] totais = new BigDecimal[quantidade];
+        for (int i = 0; i < quantidade; i++) {
+            totais[i] = rs.getBigDecimal(primeiraColuna + i).negate();
+        }
+        return totais;
+    }
+
+    private static void somar(BigDecimal[] totais, BigDecimal... valores) {
+        for (int i = 0; i < totais.length; i++) {
+            if (valores[i] != null) {
+                totais[i] = totais[i].add(valores[i]);
+            }
+        }
+    }
+}
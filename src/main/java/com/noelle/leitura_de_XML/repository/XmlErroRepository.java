@@ -0,0 +1,103 @@
+package com.noelle.leitura_de_XML.repository;
+
+import com.noelle.leitura_de_XML.domain.XmlErro;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Quarentena dos XMLs que falharam na ingestão (V7__quarentena.sql). As consultas de pendentes
+ * andam pela chave primária em faixas de id, sem OFFSET.
+ */
+@Repository
+@RequiredArgsConstructor
+public class XmlErroRepository {
+
+    private static final String INSERIR = "INSERT INTO xml_erro (conteudo_compactado, tamanho_original, "
+            + "nome_arquivo, tipo, mensagem_erro, data_erro) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private static final String PENDENTES = "SELECT id, conteudo_compactado, conteudo_xml, tamanho_original, nome_arquivo "
+            + "FROM xml_erro WHERE id > ? AND id <= ? AND reprocessado_em IS NULL ORDER BY id LIMIT ?";
+
+    private static final String RECENTES = "SELECT id, tamanho_original, nome_arquivo, tipo, mensagem_erro, "
+            + "data_erro, reprocessado_em FROM xml_erro ORDER BY id DESC LIMIT ?";
+
+    private static final RowMapper<XmlErro> CONTEUDO = (rs, linha) -> XmlErro.builder()
+            .id(rs.getLong("id"))
+            .conteudoCompactado(rs.getBytes("conteudo_compactado"))
+            .conteudoXml(rs.getString("conteudo_xml"))
+            .tamanhoOriginal((Integer) rs.getObject("tamanho_original"))
+            .nomeArquivo(rs.getString("nome_arquivo"))
+            .build();
+
+    private static final RowMapper<XmlErro> RESUMO = (rs, linha) -> XmlErro.builder()
+            .id(rs.getLong("id"))
+            .tamanhoOriginal((Integer) rs.getObject("tamanho_original"))
+            .nomeArquivo(rs.getString("nome_arquivo"))
+            .tipo(rs.getString("tipo"))
+            .mensagemErro(rs.getString("mensagem_erro"))
+            .dataErro(paraLocalDateTime(rs.getTimestamp("data_erro")))
+            .reprocessadoEm(paraLocalDateTime(rs.getTimestamp("reprocessado_em")))
+            .build();
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Grava os registros em um único batch (o driver junta os inserts com reWriteBatchedInserts)
+     */
+    public void inserirEmLote(List<XmlErro> erros) {
+        jdbcTemplate.batchUpdate(INSERIR, erros, erros.size(), (ps, erro) -> {
+            ps.setBytes(1, erro.getConteudoCompactado());
+            ps.setObject(2, erro.getTamanhoOriginal());
+            ps.setString(3, erro.getNomeArquivo());
+            ps.setString(4, erro.getTipo());
+            ps.setString(5, erro.getMensagemErro());
+            ps.setTimestamp(6, Timestamp.valueOf(erro.getDataErro()));
+        });
+    }
+
+    /**
+     * Maior id gravado até agora, ou 0 com a quarentena vazia
+     */
+    public long ultimoId() {
+        Long id = jdbcTemplate.queryForObject("SELECT MAX(id) FROM xml_erro", Long.class);
+        return id != null ? id : 0;
+    }
+
+    /**
+     * Próximos pendentes com id em (aposId, ateId], com o conteúdo
+     */
+    public List<XmlErro> buscarPendentes(long aposId, long ateId, int limite) {
+        return jdbcTemplate.query(PENDENTES, CONTEUDO, aposId, ateId, limite);
+    }
+
+    /**
+     * Marca como reprocessados os pendentes com id em (aposId, ateId]
+     */
+    public int marcarReprocessados(long aposId, long ateId) {
+        return jdbcTemplate.update("UPDATE xml_erro SET reprocessado_em = now() "
+                + "WHERE id > ? AND id <= ? AND reprocessado_em IS NULL", aposId, ateId);
+    }
+
+    public long contarPendentes() {
+        Long quantidade = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM xml_erro WHERE reprocessado_em IS NULL", Long.class);
+        return quantidade != null ? quantidade : 0;
+    }
+
+    /**
+     * Registros mais recentes, sem o conteúdo
+     */
+    public List<XmlErro> listarRecentes(int limite) {
+        return jdbcTemplate.query(RECENTES, RESUMO, limite);
+    }
+
+    private static LocalDateTime paraLocalDateTime(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+}
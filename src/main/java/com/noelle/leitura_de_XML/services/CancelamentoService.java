@@ -0,0 +1,101 @@
+package com.noelle.leitura_de_XML.services;
+
+import com.noelle.leitura_de_XML.domain.Cupom;
+import com.noelle.leitura_de_XML.repository.CancelamentoRepository;
+import com.noelle.leitura_de_XML.repository.ResumoRepository;
+import com.noelle.leitura_de_XML.xml.CancelamentoCfe;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aplica os cancelamentos (CFeCanc) da ingestão como uma marcação no cupom cancelado.
+ * <p>
+ * Cada lote de cancelamentos é registrado na tabela cancelamento e marca, no mesmo UPDATE, os cupons
+ * que já estão no banco. Um cupom que chega depois do seu cancelamento é marcado antes de ser
+ * inserido, por {@link #marcarCancelados(List)}; enquanto a tabela está vazia essa consulta nem é feita.
+ * Os dois caminhos travam as chaves dos cupons envolvidos ({@link CancelamentoRepository#travarCupons})
+ * até o commit, para que um cupom e o seu cancelamento em transações simultâneas não deixem de se ver.
+ * Os cupons cancelados ficam fora dos totais dos relatórios: os já gravados são descontados na mesma
+ * transação que os marca, e os que chegam marcados não são somados.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CancelamentoService {
+
+    private final CancelamentoRepository cancelamentoRepository;
+    private final ResumoRepository resumoRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Bulkhead bulkheadIngestaoBanco;
+    private final ApplicationEventPublisher eventPublisher;
+
+    // Até a subida confirmar que a tabela está vazia, os cupons novos são sempre conferidos
+    private volatile boolean algumRegistrado = true;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void aoIniciar() {
+        algumRegistrado = cancelamentoRepository.existeAlgum();
+    }
+
+    /**
+     * Registra o lote e marca os cupons cancelados, em uma transação; retorna quantos cupons foram marcados.
+     * As chaves marcadas saem em um {@link CuponsCanceladosEvent}, entregue depois do commit.
+     */
+    public int aplicar(List<CancelamentoCfe> cancelamentos) {
+        algumRegistrado = true;
+        List<String> chavesCupom = new ArrayList<>(cancelamentos.size());
+        for (CancelamentoCfe cancelamento : cancelamentos) {
+            chavesCupom.add(cancelamento.chaveCupom());
+        }
+        List<String> marcados = bulkheadIngestaoBanco.executeSupplier(() -> transactionTemplate.execute(status -> {
+            cancelamentoRepository.travarCupons(chavesCupom);
+            cancelamentoRepository.gravar(cancelamentos);
+            List<String> chavesMarcadas = cancelamentoRepository.marcarCupons(cancelamentos);
+            resumoRepository.descontar(chavesMarcadas);
+            if (!chavesMarcadas.isEmpty()) {
+                eventPublisher.publishEvent(new CuponsCanceladosEvent(chavesMarcadas));
+            }
+            return chavesMarcadas;
+        }));
+        int quantidade = marcados != null ? marcados.size() : 0;
+        log.info("{} cancelamentos aplicados, {} cupons marcados como cancelados", cancelamentos.size(), quantidade);
+        return quantidade;
+    }
+
+    /**
+     * Marca os cupons ainda não gravados cujo cancelamento já chegou. Roda na transação que vai inseri-los,
+     * e as chaves ficam travadas até o commit dela.
+     */
+    public void marcarCancelados(List<Cupom> cupons) {
+        if (cupons.isEmpty()) {
+            return;
+        }
+        List<String> chaves = new ArrayList<>(cupons.size());
+        for (Cupom cupom : cupons) {
+            chaves.add(cupom.getChaveAcesso());
+        }
+        // A trava vem antes de ler algumRegistrado: um cancelamento que ainda não ligou a flag espera por esta trava
+        cancelamentoRepository.travarCupons(chaves);
+        if (!algumRegistrado) {
+            return;
+        }
+        Map<String, String> cancelamentos = cancelamentoRepository.buscarPorCupons(chaves);
+        for (Cupom cupom : cupons) {
+            String chaveCancelamento = cancelamentos.get(cupom.getChaveAcesso());
+            if (chaveCancelamento != null) {
+                cupom.setCancelado(true);
+                cupom.setChaveCancelamento(chaveCancelamento);
+            }
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.noelle.leitura_de_XML.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.noelle.leitura_de_XML.domain.Cupom;
+import com.noelle.leitura_de_XML.domain.Item;
+import com.noelle.leitura_de_XML.domain.Produto;
+import com.noelle.leitura_de_XML.repository.ProdutoRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Liga os itens dos cupons ao dicionário de produtos. Cada produto conhecido tem uma única
+ * instância em memória, compartilhada por todos os itens que o referenciam; só os que não estão
+ * no cache vão ao banco.
+ * <p>
+ * Os produtos novos são gravados na transação de quem chama (o lote da ingestão), na mesma conexão:
+ * uma transação à parte tomaria uma segunda conexão do pool por lote. Por isso eles só entram no
+ * cache depois do commit; se o lote voltar, a próxima tentativa os grava de novo.
+ */
+@Service
+@Slf4j
+public class CatalogoProdutosService {
+
+    private final ProdutoRepository produtoRepository;
+    private final Cache<ChaveProduto, Produto> produtos;
+
+    public CatalogoProdutosService(ProdutoRepository produtoRepository,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${app.produtos.cache-maximo:100000}") long cacheMaximo) {
+        this.produtoRepository = produtoRepository;
+        this.produtos = Caffeine.newBuilder()
+                .maximumSize(cacheMaximo)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, produtos, "produtos");
+    }
+
+    /**
+     * Troca o produto de cada item pela instância do catálogo (com id), gravando os produtos novos
+     */
+    public void resolver(List<Cupom> cupons) {
+        // Ordenados para que lotes concorrentes insiram na mesma ordem
+        Map<ChaveProduto, List<Item>> faltantes = new TreeMap<>();
+        for (Cupom cupom : cupons) {
+            String cnpjEmitente = cnpjEmitente(cupom.getChaveAcesso());
+            for (Item item : cupom.getItens()) {
+                ChaveProduto chave = new ChaveProduto(cnpjEmitente, item.getProduto().getCodigo(),
+                        item.getProduto().getDescricao());
+                Produto conhecido = produtos.getIfPresent(chave);
+                if (conhecido != null) {
+                    item.setProduto(conhecido);
+                } else {
+                    faltantes.computeIfAbsent(chave, c -> new ArrayList<>()).add(item);
+                }
+            }
+        }
+        if (faltantes.isEmpty()) {
+            return;
+        }
+
+        List<Produto> novos = new ArrayList<>(faltantes.size());
+        for (ChaveProduto chave : faltantes.keySet()) {
+            novos.add(Produto.builder()
+                    .cnpjEmitente(chave.cnpjEmitente())
+                    .codigo(chave.codigo())
+                    .descricao(chave.descricao())
+                    .build());
+        }
+        List<Produto> gravados = produtoRepository.garantir(novos);
+        for (Produto produto : gravados) {
+            for (Item item : faltantes.get(chave(produto))) {
+                item.setProduto(produto);
+            }
+        }
+        guardarAposCommit(gravados);
+        log.debug("{} produtos resolvidos no banco", gravados.size());
+    }
+
+    /**
+     * Um id só vai para o cache quando a linha dele está confirmada no banco
+     */
+    private void guardarAposCommit(List<Produto> gravados) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            guardar(gravados);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                guardar(gravados);
+            }
+        });
+    }
+
+    private void guardar(List<Produto> gravados) {
+        for (Produto produto : gravados) {
+            produtos.put(chave(produto), produto);
+        }
+    }
+
+    private static ChaveProduto chave(Produto produto) {
+        return new ChaveProduto(produto.getCnpjEmitente(), produto.getCodigo(), produto.getDescricao());
+    }
+
+    /**
+     * CNPJ do emitente, que ocupa as posições 7 a 20 da chave de acesso
+     */
+    static String cnpjEmitente(String chaveAcesso) {
+        return chaveAcesso != null && chaveAcesso.length() >= 20 ? chaveAcesso.substring(6, 20) : "";
+    }
+
+    private record ChaveProduto(String cnpjEmitente, String codigo, String descricao)
+            implements Comparable<ChaveProduto> {
+
+        @Override
+        public int compareTo(ChaveProduto outra) {
+            int comparacao = cnpjEmitente.compareTo(outra.cnpjEmitente);
+            if (comparacao == 0) {
+                comparacao = codigo.compareTo(outra.codigo);
+            }
+            return comparacao != 0 ? comparacao : descricao.compareTo(outra.descricao);
+        }
+    }
+}
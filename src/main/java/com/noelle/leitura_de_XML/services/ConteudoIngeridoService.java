@@ -0,0 +1,263 @@
+package com.noelle.leitura_de_XML.services;
+
+import com.noelle.leitura_de_XML.repository.ConteudoIngeridoRepository;
+import com.noelle.leitura_de_XML.repository.ConteudoIngeridoRepository.ArquivoIngerido;
+import com.noelle.leitura_de_XML.repository.ConteudoIngeridoRepository.ConteudoIngerido;
+import com.noelle.leitura_de_XML.services.MetricasIngestao.Desfecho;
+import com.noelle.leitura_de_XML.util.HashConteudo;
+import com.noelle.leitura_de_XML.util.MapaHashConteudo;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Índice dos conteúdos já ingeridos, para que o reenvio do mesmo ZIP (ou de XMLs repetidos em ZIPs
+ * diferentes) não passe de novo pelo parse.
+ * <p>
+ * Cada XML é identificado pelo {@link HashConteudo} dos seus bytes e guarda só o desfecho: processado
+ * ou duplicado (o cupom já está no banco) ou cancelado. Inválidos não são guardados, porque a rejeição
+ * depende do schema e de app.xml.validacao-xsd.modo, que podem mudar; nem erros inesperados, que podem não
+ * se repetir. O mapa inteiro fica em memória (~28 bytes por XML), carregado da tabela
+ * conteudo_ingerido na subida, então a consulta nunca vai ao banco; os registros novos entram no mapa
+ * na hora e são gravados em lote pelo {@link IngestaoPipeline} a cada lote de cupons.
+ * <p>
+ * ZIPs inteiros também são registrados, com as contagens do processamento: um ZIP já visto é respondido
+ * sem abrir o arquivo. Só entram ZIPs processados sem nenhuma falha, para que um reenvio depois da
+ * correção pela quarentena volte a ser processado.
+ * <p>
+ * O índice supõe que cupons gravados não são apagados; se forem, as tabelas conteudo_ingerido e
+ * arquivo_ingerido precisam ser limpas junto.
+ */
+@Service
+@Slf4j
+public class ConteudoIngeridoService {
+
+    private static final int TAMANHO_FETCH = 10_000;
+    private static final Desfecho[] DESFECHOS = Desfecho.values();
+    private static final Set<Desfecho> GUARDADOS = EnumSet.of(Desfecho.PROCESSADO, Desfecho.DUPLICADO, Desfecho.CANCELADO);
+
+    private final ConteudoIngeridoRepository repository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean habilitado;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final MapaHashConteudo conhecidos = new MapaHashConteudo(0);
+    private final Queue<ConteudoIngerido> pendentes = new ConcurrentLinkedQueue<>();
+    private final Counter xmlsConhecidos;
+    private final Counter xmlsNovos;
+    private final Counter arquivosConhecidos;
+
+    private volatile boolean pronto;
+
+    public ConteudoIngeridoService(ConteudoIngeridoRepository repository,
+                                   PlatformTransactionManager transactionManager,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${app.conteudo-ingerido.habilitado:true}") boolean habilitado) {
+        this.repository = repository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.habilitado = habilitado;
+
+        this.xmlsConhecidos = Counter.builder("ingestao.conteudo.consultas")
+                .description("XMLs consultados no índice de conteúdo; conhecido = desfecho reaproveitado sem parse")
+                .tag("resultado", "conhecido")
+                .register(meterRegistry);
+        this.xmlsNovos = Counter.builder("ingestao.conteudo.consultas")
+                .description("XMLs consultados no índice de conteúdo; conhecido = desfecho reaproveitado sem parse")
+                .tag("resultado", "novo")
+                .register(meterRegistry);
+        this.arquivosConhecidos = Counter.builder("ingestao.conteudo.arquivos.conhecidos")
+                .description("ZIPs reenviados respondidos com as contagens do primeiro processamento")
+                .register(meterRegistry);
+        Gauge.builder("ingestao.conteudo.hashes", this, indice -> indice.tamanho())
+                .description("XMLs no índice de conteúdo")
+                .register(meterRegistry);
+        Gauge.builder("ingestao.conteudo.memoria", this, indice -> indice.bytesOcupados())
+                .description("Memória ocupada pelo índice de conteúdo")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void aoIniciar() {
+        if (habilitado) {
+            Thread.ofVirtual().name("conteudo-ingerido").start(this::carregar);
+        }
+    }
+
+    /**
+     * Carrega os hashes da tabela com um cursor. Registros feitos durante a carga são mais novos que
+     * os lidos do banco, então a carga não substitui o que já está no mapa.
+     */
+    void carregar() {
+        long inicio = System.currentTimeMillis();
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                    repository.percorrer(TAMANHO_FETCH, (hash, resultado) -> colocar(hash, desfecho(resultado), false)));
+            pronto = true;
+            log.info("Índice de conteúdo carregado: {} XMLs, {} bytes, em {} ms",
+                    tamanho(), bytesOcupados(), System.currentTimeMillis() - inicio);
+        } catch (Exception e) {
+            log.error("Erro ao carregar índice de conteúdo, todos os XMLs passarão pelo parse: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Desfecho anterior do XML com este hash, ou null se ele é novo (ou o índice ainda não carregou)
+     */
+    public Desfecho consultar(HashConteudo hash) {
+        if (!pronto) {
+            return null;
+        }
+        byte codigo;
+        lock.readLock().lock();
+        try {
+            codigo = conhecidos.buscar(hash);
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (codigo == 0) {
+            xmlsNovos.increment();
+            return null;
+        }
+        xmlsConhecidos.increment();
+        return DESFECHOS[codigo - 1];
+    }
+
+    /**
+     * Registra o desfecho de um XML. Vale para as próximas consultas imediatamente; no banco,
+     * só depois do próximo {@link #gravarPendentes()}.
+     */
+    public void registrar(HashConteudo hash, String chaveAcesso, Desfecho desfecho) {
+        if (!habilitado || hash == null || !GUARDADOS.contains(desfecho)) {
+            return;
+        }
+        colocar(hash, desfecho, true);
+        pendentes.add(new ConteudoIngerido(hash, chaveAcesso, desfecho.name().toLowerCase()));
+    }
+
+    /**
+     * Grava no banco os registros acumulados. Uma falha aqui só é logada: o índice é uma otimização,
+     * e os XMLs não gravados passam pelo parse de novo depois de um restart.
+     */
+    public void gravarPendentes() {
+        if (pendentes.isEmpty()) {
+            return;
+        }
+        // Ordenados pelo hash, para que gravações concorrentes travem as linhas na mesma ordem;
+        // o mapa também elimina hashes repetidos, que o ON CONFLICT não aceita no mesmo comando
+        Map<UUID, ConteudoIngerido> lote = new TreeMap<>();
+        ConteudoIngerido registro;
+        while ((registro = pendentes.poll()) != null) {
+            lote.put(registro.hash().paraUuid(), registro);
+        }
+        try {
+            repository.gravar(new ArrayList<>(lote.values()));
+        } catch (Exception e) {
+            log.warn("Erro ao gravar {} registros do índice de conteúdo: {}", lote.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * Hash do ZIP, ou null se o índice está desligado ou o arquivo não pôde ser lido
+     */
+    public HashConteudo hashArquivo(Path arquivo) {
+        if (!habilitado) {
+            return null;
+        }
+        try {
+            return HashConteudo.de(arquivo);
+        } catch (IOException e) {
+            log.warn("Não foi possível calcular o hash do arquivo {}: {}", arquivo, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Contagens do primeiro processamento de um ZIP com o mesmo conteúdo
+     */
+    public Optional<ArquivoIngerido> buscarArquivo(HashConteudo hash) {
+        if (hash == null) {
+            return Optional.empty();
+        }
+        Optional<ArquivoIngerido> arquivo = repository.buscarArquivo(hash);
+        if (arquivo.isPresent()) {
+            arquivosConhecidos.increment();
+        }
+        return arquivo;
+    }
+
+    /**
+     * Registra um ZIP processado; ignorado se algum XML falhou, já que o reenvio pode ter outro resultado
+     */
+    public void registrarArquivo(HashConteudo hash, String nomeArquivo, ResultadoIngestao resultado) {
+        if (hash == null || resultado.getFalhas() > 0) {
+            return;
+        }
+        try {
+            repository.gravarArquivo(hash, nomeArquivo, new ArquivoIngerido(resultado.getTotal(),
+                    resultado.getProcessados(), resultado.getDuplicados(), resultado.getFalhas()));
+        } catch (Exception e) {
+            log.warn("Erro ao registrar o arquivo {} no índice de conteúdo: {}", nomeArquivo, e.getMessage());
+        }
+    }
+
+    private void colocar(HashConteudo hash, Desfecho desfecho, boolean substituir) {
+        if (!GUARDADOS.contains(desfecho)) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            conhecidos.colocar(hash, (byte) (desfecho.ordinal() + 1), substituir);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static Desfecho desfecho(String resultado) {
+        for (Desfecho desfecho : DESFECHOS) {
+            if (desfecho.name().equalsIgnoreCase(resultado)) {
+                return desfecho;
+            }
+        }
+        return null;
+    }
+
+    private int tamanho() {
+        lock.readLock().lock();
+        try {
+            return conhecidos.tamanho();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private long bytesOcupados() {
+        lock.readLock().lock();
+        try {
+            return conhecidos.bytesOcupados();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.noelle.leitura_de_XML.services;
+
+import com.noelle.leitura_de_XML.config.CacheConfig;
+import com.noelle.leitura_de_XML.domain.Cupom;
+import com.noelle.leitura_de_XML.dto.CupomDTO;
+import com.noelle.leitura_de_XML.mapper.CupomMapper;
+import com.noelle.leitura_de_XML.mapper.ItemMapper;
+import com.noelle.leitura_de_XML.repository.CupomRepository;
+import com.noelle.leitura_de_XML.repository.ItemRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+
+/**
+ * Consulta de cupom por chave de acesso, servida pelo cache "cupons". A ingestão alimenta o cache
+ * com os cupons recém-gravados, que são justamente os mais consultados na conciliação.
+ */
+@Service
+@RequiredArgsConstructor
+public class CupomConsultaService {
+
+    private final CupomRepository cupomRepository;
+    private final ItemRepository itemRepository;
+    private final CupomMapper cupomMapper;
+    private final ItemMapper itemMapper;
+    private final CacheManager cacheManager;
+
+    /**
+     * Busca o cupom e seus itens; retorna null (sem guardar no cache) quando a chave não existe
+     */
+    @Cacheable(cacheNames = CacheConfig.CACHE_CUPONS, key = "#chaveAcesso", unless = "#result == null")
+    @Transactional(readOnly = true)
+    public CupomDTO buscarPorChave(String chaveAcesso) {
+        return cupomRepository.findById(chaveAcesso)
+                .map(cupom -> {
+                    CupomDTO dto = cupomMapper.toDto(cupom, false);
+                    dto.setItens(itemMapper.toDtoList(itemRepository.findByCupomChaveAcesso(chaveAcesso)));
+                    return dto;
+                })
+                .orElse(null);
+    }
+
+    /**
+     * Coloca no cache os cupons gravados pela ingestão, depois do commit
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void aoGravar(CuponsGravadosEvent evento) {
+        popular(evento.cupons());
+    }
+
+    /**
+     * Tira do cache os cupons marcados como cancelados, depois do commit; a próxima consulta relê do banco
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void aoCancelar(CuponsCanceladosEvent evento) {
+        Cache cache = cacheManager.getCache(CacheConfig.CACHE_CUPONS);
+        if (cache == null) {
+            return;
+        }
+        for (String chave : evento.chavesCupom()) {
+            cache.evict(chave);
+        }
+    }
+
+    private void popular(List<Cupom> cupons) {
+        Cache cache = cacheManager.getCache(CacheConfig.CACHE_CUPONS);
+        if (cache == null) {
+            return;
+        }
+        for (Cupom cupom : cupons) {
+            cache.put(cupom.getChaveAcesso(), cupomMapper.toDto(cupom));
+        }
+    }
+}
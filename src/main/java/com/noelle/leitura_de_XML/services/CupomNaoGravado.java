@@ -0,0 +1,10 @@
+package com.noelle.leitura_de_XML.services;
+
+import com.noelle.leitura_de_XML.domain.Cupom;
+
+/**
+ * Cupom extraído que o banco recusou mesmo na regravação um a um, com o motivo; o pipeline da
+ * ingestão manda o XML dele para a quarentena
+ */
+public record CupomNaoGravado(Cupom cupom, String motivo) {
+}
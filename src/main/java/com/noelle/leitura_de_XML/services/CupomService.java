@@ -1,71 +1,162 @@
 package com.noelle.leitura_de_XML.services;
 import com.noelle.leitura_de_XML.domain.Cupom;
 
+import com.noelle.leitura_de_XML.exception.CupomCanceladoException;
 import com.noelle.leitura_de_XML.exception.DuplicidadeException;
 import com.noelle.leitura_de_XML.exception.ProcessamentoException;
 import com.noelle.leitura_de_XML.repository.CupomRepository;
+import com.noelle.leitura_de_XML.repository.ResumoRepository;
+import com.noelle.leitura_de_XML.repository.XmlErroRepository;
+import com.noelle.leitura_de_XML.util.TokenPaginacao;
+import com.noelle.leitura_de_XML.xml.ArquivosXml;
+import com.noelle.leitura_de_XML.xml.BufferPool;
+import com.noelle.leitura_de_XML.xml.CancelamentoCfe;
+import com.noelle.leitura_de_XML.xml.TipoDocumento;
+import com.noelle.leitura_de_XML.xml.XmlEntrada;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class CupomService {
+
+    private static final String ORDEM_NUMERO = "numero";
+    private static final String ORDEM_VALOR = "valor";
     
     private final CupomRepository cupomRepository;
     private final ProcessadorXmlService processadorXmlService;
+    private final IngestaoPipeline ingestaoPipeline;
+    private final IndiceChavesService indiceChavesService;
+    private final GravadorCupons gravadorCupons;
+    private final CatalogoProdutosService catalogoProdutosService;
+    private final CancelamentoService cancelamentoService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ResumoRepository resumoRepository;
+    private final XmlErroRepository xmlErroRepository;
+    private final BufferPool bufferPool;
+    private final EntityManager entityManager;
+
+    /**
+     * Linhas buscadas por ida ao banco na exportação; também é o tamanho do bloco mapeado e descartado de cada vez
+     */
+    @Value("${app.exportacao.fetch-size:1000}")
+    private int fetchSizeExportacao;
+
+    @Value("${app.xml.tamanho-maximo-bytes:8388608}")
+    private int tamanhoMaximoXml;
     
     /**
-     * Processa um arquivo XML de CF-e SAT
+     * Processa um arquivo XML de CF-e SAT; um CFeCanc é aplicado ao cupom que ele cancela
      */
     @Transactional
-    public Cupom processarXml(String conteudoXml) {
-        Cupom cupom = processadorXmlService.processar(conteudoXml);
-        
+    public XmlProcessado processarXml(String conteudoXml) {
+        byte[] conteudo = conteudoXml.getBytes(StandardCharsets.UTF_8);
+        return processar(conteudo, conteudo.length, () -> processadorXmlService.processar(conteudoXml));
+    }
+
+    /**
+     * Processa um XML de CF-e SAT a partir dos bytes, sem convertê-lo para String
+     */
+    @Transactional
+    public XmlProcessado processarXml(InputStream conteudoXml) {
+        try (XmlEntrada xml = XmlEntrada.ler("xml", -1, conteudoXml, bufferPool, tamanhoMaximoXml)) {
+            return processar(xml.getConteudo(), xml.getTamanho(), () -> processadorXmlService.processar(xml.abrir()));
+        } catch (IOException e) {
+            throw new ProcessamentoException("Erro ao ler XML: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Como na ingestão de ZIPs, o elemento raiz ({@link TipoDocumento}) decide entre gravar o cupom
+     * e aplicar o cancelamento
+     */
+    private XmlProcessado processar(byte[] conteudo, int tamanho, Supplier<Cupom> extracao) {
+        if (TipoDocumento.identificar(conteudo, tamanho) != TipoDocumento.CANCELAMENTO) {
+            Cupom cupom = null;
+            try {
+                cupom = extracao.get();
+            } catch (CupomCanceladoException e) {
+                // CFeCanc que o TipoDocumento não reconheceu pelos bytes (encoding não ASCII, por exemplo)
+            }
+            if (cupom != null) {
+                return XmlProcessado.deCupom(salvarSeNovo(cupom));
+            }
+        }
+        CancelamentoCfe cancelamento = processadorXmlService.extrairCancelamento(
+                new ByteArrayInputStream(conteudo, 0, tamanho));
+        cancelamentoService.aplicar(List.of(cancelamento));
+        return XmlProcessado.deCancelamento(cancelamento);
+    }
+
+    private Cupom salvarSeNovo(Cupom cupom) {
         // Verifica se o cupom já existe
-        if (cupomRepository.existsByChaveAcesso(cupom.getChaveAcesso())) {
+        if (jaExiste(cupom.getChaveAcesso())) {
             throw new DuplicidadeException("Cupom com chave de acesso " + cupom.getChaveAcesso() + " já existe");
         }
         
         // Salva o cupom
-        return cupomRepository.save(cupom);
+        cancelamentoService.marcarCancelados(List.of(cupom));
+        catalogoProdutosService.resolver(List.of(cupom));
+        Cupom salvo = cupomRepository.save(cupom);
+        indiceChavesService.adicionar(salvo.getChaveAcesso());
+        resumoRepository.acumular(List.of(cupom));
+        eventPublisher.publishEvent(new CuponsGravadosEvent(List.of(salvo)));
+        return salvo;
     }
 
+    /**
+     * Consulta o banco só quando o índice de chaves não descarta a existência
+     */
+    private boolean jaExiste(String chaveAcesso) {
+        return indiceChavesService.podeExistir(chaveAcesso) && cupomRepository.existsByChaveAcesso(chaveAcesso);
+    }
 
 
 
-    // Adicione este método na classe CupomService
-@Transactional
-public Cupom processarXmlUnico(String caminhoArquivo) throws IOException {
-    // Ler o arquivo XML
-    String conteudoXml = new String(Files.readAllBytes(Paths.get(caminhoArquivo)), StandardCharsets.UTF_8);
-    
-    // Processar o XML
-    Cupom cupom = processadorXmlService.processar(conteudoXml);
-    
-    // Verificar se o cupom já existe
-    if (cupomRepository.existsByChaveAcesso(cupom.getChaveAcesso())) {
-        log.warn("Cupom com chave de acesso {} já existe, atualizando", cupom.getChaveAcesso());
-        // Opcional: você pode optar por atualizar em vez de lançar exceção
-        // return cupomRepository.save(cupom);
-        throw new DuplicidadeException("Cupom com chave de acesso " + cupom.getChaveAcesso() + " já existe");
+
+    /**
+     * Processa um XML de CF-e SAT lido de um arquivo em disco; grava pelo mesmo caminho de processarXml
+     */
+    @Transactional
+    public XmlProcessado processarXmlUnico(String caminhoArquivo) throws IOException {
+        XmlProcessado processado;
+        try (InputStream conteudoXml = new BufferedInputStream(Files.newInputStream(Paths.get(caminhoArquivo)))) {
+            processado = processarXml(conteudoXml);
+        }
+        if (processado.isCancelamento()) {
+            log.info("Cancelamento aplicado: chave={}, cupom cancelado={}",
+                    processado.cancelamento().chaveAcesso(), processado.cancelamento().chaveCupom());
+        } else {
+            Cupom cupomSalvo = processado.cupom();
+            log.info("Cupom persistido com sucesso: chave={}, número={}, itens={}",
+                    cupomSalvo.getChaveAcesso(), cupomSalvo.getNumeroCfe(), cupomSalvo.getItens().size());
+        }
+        return processado;
     }
-    
-    // Salvar o cupom
-    Cupom cupomSalvo = cupomRepository.save(cupom);
-    log.info("Cupom persistido com sucesso: chave={}, número={}, itens={}", 
-             cupomSalvo.getChaveAcesso(), cupomSalvo.getNumeroCfe(), cupomSalvo.getItens().size());
-    
-    return cupomSalvo;
-}
 
     
 
@@ -79,59 +170,144 @@ public Cupom processarXmlUnico(String caminhoArquivo) throws IOException {
     /**
      * Processa um arquivo ZIP contendo múltiplos XMLs de CF-e SAT
      */
-    @Transactional
-public int processarArquivoZip(byte[] conteudoZip) {
-    log.info("Iniciando processamento de arquivo ZIP, tamanho: {} bytes", conteudoZip.length);
-    List<String> xmls = processadorXmlService.extrairXmlsDoZip(conteudoZip);
-    log.info("Extração concluída. Total de XMLs encontrados: {}", xmls.size());
-    
-    int processados = 0;
-    int falhas = 0;
-    
-    for (String xml : xmls) {
-        try {
-            // Validar o XML antes de processá-lo
-            if (!processadorXmlService.validarXml(xml)) {
-                falhas++;
-                log.error("XML inválido, ignorando processamento");
-                continue;
-            }
-            
-            processarXml(xml);
-            processados++;
-            log.info("XML processado com sucesso: {}/{}", processados, xmls.size());
-        } catch (DuplicidadeException e) {
-            log.warn("XML ignorado (duplicado): {}", e.getMessage());
-        } catch (ProcessamentoException e) {
-            falhas++;
-            log.error("Erro ao processar XML: {}", e.getMessage());
-        } catch (Exception e) {
-            falhas++;
-            log.error("Erro inesperado ao processar XML: {}", e.getMessage(), e);
-        }
+    public int processarArquivoZip(byte[] conteudoZip) {
+        log.info("Iniciando processamento de arquivo ZIP, tamanho: {} bytes", conteudoZip.length);
+        return processarArquivoZip(new ByteArrayInputStream(conteudoZip));
+    }
+
+    /**
+     * Processa um arquivo ZIP lendo uma entrada por vez; o parse roda em paralelo no IngestaoPipeline
+     * e os cupons voltam para esta thread em lotes, cada lote commitado em sua própria transação
+     * (sem @Transactional aqui de propósito)
+     */
+    public int processarArquivoZip(InputStream conteudoZip) {
+        return processarArquivoZip(conteudoZip, new ResultadoIngestao()).getProcessados();
+    }
+
+    /**
+     * Processa um ZIP já gravado em disco, descompactando as entradas em paralelo
+     */
+    public ResultadoIngestao processarArquivoZip(Path arquivoZip, ResultadoIngestao resultado) {
+        ingestaoPipeline.executar(arquivoZip, resultado, gravadorCupons::gravar);
+
+        log.info("Processamento concluído. Total: {}, Sucesso: {}, Duplicados: {}, Falhas: {}",
+                 resultado.getTotal(), resultado.getProcessados(), resultado.getDuplicados(), resultado.getFalhas());
+
+        return resultado;
+    }
+
+    /**
+     * Processa um arquivo ZIP acumulando as contagens no resultado informado, usado pelos jobs para expor o andamento
+     */
+    public ResultadoIngestao processarArquivoZip(InputStream conteudoZip, ResultadoIngestao resultado) {
+        ingestaoPipeline.executar(conteudoZip, resultado, gravadorCupons::gravar);
+
+        log.info("Processamento concluído. Total: {}, Sucesso: {}, Duplicados: {}, Falhas: {}",
+                 resultado.getTotal(), resultado.getProcessados(), resultado.getDuplicados(), resultado.getFalhas());
+
+        return resultado;
+    }
+
+    /**
+     * Processa XMLs avulsos em disco pelo mesmo pipeline dos ZIPs (parse em paralelo, gravação em lotes)
+     */
+    public ResultadoIngestao processarArquivosXml(ArquivosXml arquivos, ResultadoIngestao resultado) {
+        return ingestaoPipeline.executar(arquivos, resultado, gravadorCupons::gravar);
+    }
+
+    /**
+     * Reenvia ao pipeline até limite XMLs pendentes da quarentena, na ordem em que entraram.
+     * Só os registros que já existiam no início participam; os que falharem de novo voltam à
+     * quarentena como registros novos, e os reenviados ficam marcados com reprocessado_em.
+     */
+    public ResultadoIngestao reprocessarQuarentena(int limite, ResultadoIngestao resultado) {
+        FonteQuarentena fonte = new FonteQuarentena(xmlErroRepository, bufferPool, tamanhoMaximoXml,
+                xmlErroRepository.ultimoId(), limite);
+        ingestaoPipeline.reprocessar(fonte, resultado, gravadorCupons::gravar);
+        int marcados = xmlErroRepository.marcarReprocessados(0, fonte.getUltimoId());
+
+        log.info("Reprocessamento da quarentena concluído. Reenviados: {}, Sucesso: {}, Duplicados: {}, Falhas: {}",
+                 marcados, resultado.getProcessados(), resultado.getDuplicados(), resultado.getFalhas());
+
+        return resultado;
     }
-    
-    log.info("Processamento concluído. Total: {}, Sucesso: {}, Falhas: {}", 
-             xmls.size(), processados, falhas);
-    
-    return processados;
-}
 
 
     
     /**
-     * Lista todos os cupons ordenados pelo número do CF-e
+     * Lista uma página de cupons ordenados pelo número do CF-e, continuando após o token informado.
+     * Com comItens, os itens da página inteira são carregados em uma única consulta.
      */
     @Transactional(readOnly = true)
-    public List<Cupom> listarPorNumero() {
-        return cupomRepository.findAllByOrderByNumeroCfeAsc();
+    public PaginaCupons listarPorNumero(int tamanho, String token, boolean comItens) {
+        Limit limite = Limit.of(tamanho + 1);
+        List<Cupom> cupons;
+        if (token == null || token.isBlank()) {
+            cupons = cupomRepository.findPrimeirosPorNumero(limite);
+        } else {
+            String[] chaves = TokenPaginacao.ler(token, ORDEM_NUMERO, 2);
+            cupons = cupomRepository.findProximosPorNumero(chaves[0], chaves[1], limite);
+        }
+        return paginar(cupons, tamanho, comItens, ultimo -> TokenPaginacao.gerar(ORDEM_NUMERO, ultimo.getNumeroCfe(), ultimo.getChaveAcesso()));
     }
     
     /**
-     * Lista todos os cupons ordenados pelo valor total
+     * Lista uma página de cupons ordenados pelo valor total, continuando após o token informado.
+     * Com comItens, os itens da página inteira são carregados em uma única consulta.
+     */
+    @Transactional(readOnly = true)
+    public PaginaCupons listarPorValor(int tamanho, String token, boolean comItens) {
+        Limit limite = Limit.of(tamanho + 1);
+        List<Cupom> cupons;
+        if (token == null || token.isBlank()) {
+            cupons = cupomRepository.findPrimeirosPorValor(limite);
+        } else {
+            String[] chaves = TokenPaginacao.ler(token, ORDEM_VALOR, 2);
+            BigDecimal valor;
+            try {
+                valor = new BigDecimal(chaves[0]);
+            } catch (NumberFormatException e) {
+                throw new ProcessamentoException("Token de paginação inválido");
+            }
+            cupons = cupomRepository.findProximosPorValor(valor, chaves[1], limite);
+        }
+        return paginar(cupons, tamanho, comItens, ultimo -> TokenPaginacao.gerar(ORDEM_VALOR, ultimo.getValorTotalProdutos().toPlainString(), ultimo.getChaveAcesso()));
+    }
+
+    /**
+     * Percorre todos os cupons na ordem do número do CF-e, entregando blocos de fetch-size cupons.
+     * Depois de cada bloco o contexto de persistência é limpo, então a memória usada não depende
+     * do tamanho da tabela. Com comItens, os itens de cada bloco vêm em uma única consulta.
      */
     @Transactional(readOnly = true)
-    public List<Cupom> listarPorValor() {
-        return cupomRepository.findAllByOrderByValorTotalProdutosAsc();
+    public void exportarPorNumero(boolean comItens, Consumer<List<Cupom>> consumidor) {
+        try (Stream<Cupom> cupons = cupomRepository.streamPorNumero(fetchSizeExportacao)) {
+            List<Cupom> bloco = new ArrayList<>(fetchSizeExportacao);
+            Iterator<Cupom> iterator = cupons.iterator();
+            while (iterator.hasNext()) {
+                bloco.add(iterator.next());
+                if (bloco.size() >= fetchSizeExportacao || !iterator.hasNext()) {
+                    if (comItens) {
+                        cupomRepository.findComItens(bloco.stream().map(Cupom::getChaveAcesso).toList());
+                    }
+                    consumidor.accept(bloco);
+                    entityManager.clear();
+                    bloco = new ArrayList<>(fetchSizeExportacao);
+                }
+            }
+        }
+    }
+
+    /**
+     * A consulta traz uma linha a mais que a página só para saber se existe continuação
+     */
+    private PaginaCupons paginar(List<Cupom> cupons, int tamanho, boolean comItens, Function<Cupom, String> token) {
+        List<Cupom> pagina = cupons.size() > tamanho ? cupons.subList(0, tamanho) : cupons;
+        if (comItens && !pagina.isEmpty()) {
+            // Evita o N+1 do mapeamento: uma consulta traz os itens de todos os cupons da página
+            cupomRepository.findComItens(pagina.stream().map(Cupom::getChaveAcesso).toList());
+        }
+        String proximoToken = cupons.size() > tamanho ? token.apply(pagina.get(tamanho - 1)) : null;
+        return new PaginaCupons(pagina, proximoToken);
     }
 }
\ No newline at end of file
@@ -0,0 +1,10 @@
+package com.noelle.leitura_de_XML.services;
+
+import java.util.List;
+
+/**
+ * Publicado quando cupons já gravados são marcados como cancelados. Como o {@link CuponsGravadosEvent},
+ * os ouvintes só recebem o evento depois do commit.
+ */
+public record CuponsCanceladosEvent(List<String> chavesCupom) {
+}
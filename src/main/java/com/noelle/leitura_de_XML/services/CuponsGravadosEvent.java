@@ -0,0 +1,12 @@
+package com.noelle.leitura_de_XML.services;
+
+import com.noelle.leitura_de_XML.domain.Cupom;
+
+import java.util.List;
+
+/**
+ * Publicado quando cupons novos são gravados. Os ouvintes usam @TransactionalEventListener,
+ * então só recebem o evento depois do commit (ou na hora, se publicado fora de transação).
+ */
+public record CuponsGravadosEvent(List<Cupom> cupons) {
+}
@@ -0,0 +1,160 @@
+package com.noelle.leitura_de_XML.services;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Workers do parse, compartilhados por todas as ingestões em andamento (uploads, diretórios, quarentena)
+ * com divisão justa: cada execução do pipeline abre a sua {@link Fila}, e os workers atendem as filas
+ * que têm tarefas em rodízio, uma tarefa de cada vez. Com três ZIPs ao mesmo tempo cada um recebe
+ * ~1/3 dos workers, por maior que seja, em vez de quem chegou primeiro ocupar o pool inteiro.
+ * <p>
+ * O número de workers (app.ingestao.workers, 0 = núcleos) é o orçamento global de CPU da ingestão.
+ */
+@Component
+@Slf4j
+public class EscalonadorIngestao {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition temTarefa = lock.newCondition();
+    private final ArrayDeque<Fila> rodizio = new ArrayDeque<>();
+    private final List<Thread> workers = new ArrayList<>();
+    private int pendentes;
+    private boolean ativo = true;
+
+    public EscalonadorIngestao(MeterRegistry meterRegistry, @Value("${app.ingestao.workers:0}") int workers) {
+        int threads = workers > 0 ? workers : Runtime.getRuntime().availableProcessors();
+        for (int i = 1; i <= threads; i++) {
+            this.workers.add(Thread.ofPlatform()
+                    .name("ingestao-" + i)
+                    .daemon()
+                    .start(this::trabalhar));
+        }
+        Gauge.builder("ingestao.escalonador.tarefas", this, EscalonadorIngestao::getPendentes)
+                .description("Documentos aguardando um worker do parse")
+                .register(meterRegistry);
+        Gauge.builder("ingestao.escalonador.filas", this, EscalonadorIngestao::getFilasAtivas)
+                .description("Ingestões com documentos aguardando um worker")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Abre a fila de uma execução do pipeline. Não precisa ser fechada: sem tarefas, ela só sai do rodízio.
+     */
+    public Fila abrirFila() {
+        return new Fila();
+    }
+
+    public int getPendentes() {
+        lock.lock();
+        try {
+            return pendentes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getFilasAtivas() {
+        lock.lock();
+        try {
+            return rodizio.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @PreDestroy
+    void encerrar() throws InterruptedException {
+        lock.lock();
+        try {
+            ativo = false;
+            temTarefa.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+        for (Thread worker : workers) {
+            worker.join(TimeUnit.SECONDS.toMillis(5));
+        }
+    }
+
+    private void trabalhar() {
+        while (true) {
+            Runnable tarefa;
+            lock.lock();
+            try {
+                while (rodizio.isEmpty()) {
+                    if (!ativo) {
+                        return;
+                    }
+                    temTarefa.await();
+                }
+                Fila fila = rodizio.poll();
+                tarefa = fila.tarefas.poll();
+                pendentes--;
+                if (fila.tarefas.isEmpty()) {
+                    fila.noRodizio = false;
+                } else {
+                    rodizio.add(fila);
+                }
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+            try {
+                tarefa.run();
+            } catch (Throwable e) {
+                // Nem um Error tira o worker do ar: o orçamento de workers não pode encolher em silêncio
+                log.error("Erro não tratado em tarefa da ingestão: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Tarefas de uma execução do pipeline, atendidas na ordem em que chegaram
+     */
+    public final class Fila {
+
+        private final ArrayDeque<Runnable> tarefas = new ArrayDeque<>();
+        private boolean noRodizio;
+
+        private Fila() {
+        }
+
+        /**
+         * Enfileira a tarefa; lança TaskRejectedException se a aplicação está encerrando
+         */
+        public void executar(Runnable tarefa) {
+            lock.lock();
+            try {
+                if (!ativo) {
+                    throw new TaskRejectedException("Escalonador da ingestão encerrado");
+                }
+                tarefas.add(tarefa);
+                pendentes++;
+                if (!noRodizio) {
+                    noRodizio = true;
+                    rodizio.add(this);
+                }
+                temTarefa.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.noelle.leitura_de_XML.services;
+
+import com.noelle.leitura_de_XML.domain.XmlErro;
+import com.noelle.leitura_de_XML.repository.XmlErroRepository;
+import com.noelle.leitura_de_XML.xml.BufferPool;
+import com.noelle.leitura_de_XML.xml.FonteXml;
+import com.noelle.leitura_de_XML.xml.XmlEntrada;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.List;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Entrega ao pipeline os XMLs pendentes da quarentena com id até ateId, buscados em páginas e
+ * descompactados um de cada vez para buffers do pool
+ */
+class FonteQuarentena implements FonteXml {
+
+    private static final int TAMANHO_PAGINA = 100;
+
+    private final XmlErroRepository xmlErroRepository;
+    private final BufferPool bufferPool;
+    private final int tamanhoMaximo;
+    private final long ateId;
+    private final int limite;
+
+    private Iterator<XmlErro> pagina = List.<XmlErro>of().iterator();
+    private long ultimoId;
+    private int entregues;
+    private boolean esgotada;
+
+    FonteQuarentena(XmlErroRepository xmlErroRepository, BufferPool bufferPool, int tamanhoMaximo, long ateId, int limite) {
+        this.xmlErroRepository = xmlErroRepository;
+        this.bufferPool = bufferPool;
+        this.tamanhoMaximo = tamanhoMaximo;
+        this.ateId = ateId;
+        this.limite = limite;
+    }
+
+    @Override
+    public XmlEntrada proximo() throws IOException {
+        if (entregues >= limite) {
+            return null;
+        }
+        if (!pagina.hasNext()) {
+            if (esgotada) {
+                return null;
+            }
+            List<XmlErro> proximos = xmlErroRepository.buscarPendentes(ultimoId, ateId,
+                    Math.min(TAMANHO_PAGINA, limite - entregues));
+            esgotada = proximos.size() < TAMANHO_PAGINA;
+            pagina = proximos.iterator();
+            if (!pagina.hasNext()) {
+                return null;
+            }
+        }
+        XmlErro erro = pagina.next();
+        ultimoId = erro.getId();
+        entregues++;
+        String nome = erro.getNomeArquivo() != null ? erro.getNomeArquivo() : "xml_erro-" + erro.getId();
+        try (InputStream conteudo = abrir(erro)) {
+            return XmlEntrada.ler(nome, erro.getTamanhoOriginal() != null ? erro.getTamanhoOriginal() : -1,
+                    conteudo, bufferPool, tamanhoMaximo);
+        }
+    }
+
+    /**
+     * Id do último registro entregue; os pendentes até ele já passaram pelo pipeline
+     */
+    long getUltimoId() {
+        return ultimoId;
+    }
+
+    @Override
+    public void close() {
+        pagina = List.<XmlErro>of().iterator();
+    }
+
+    private static InputStream abrir(XmlErro erro) {
+        if (erro.getConteudoCompactado() != null) {
+            return new InflaterInputStream(new ByteArrayInputStream(erro.getConteudoCompactado()));
+        }
+        // Registros anteriores à quarentena guardavam o texto sem compactar
+        String texto = erro.getConteudoXml() != null ? erro.getConteudoXml() : "";
+        return new ByteArrayInputStream(texto.getBytes(StandardCharsets.UTF_8));
+    }
+}
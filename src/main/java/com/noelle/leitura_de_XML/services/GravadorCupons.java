@@ -0,0 +1,233 @@
+package com.noelle.leitura_de_XML.services;
+
+import com.noelle.leitura_de_XML.domain.Cupom;
+import com.noelle.leitura_de_XML.domain.Item;
+import com.noelle.leitura_de_XML.repository.CupomCopyRepository;
+import com.noelle.leitura_de_XML.repository.CupomRepository;
+import com.noelle.leitura_de_XML.repository.ResumoRepository;
+import com.noelle.leitura_de_XML.services.MetricasIngestao.Desfecho;
+import com.noelle.leitura_de_XML.services.MetricasIngestao.Etapa;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Estágio de escrita da ingestão: grava cada lote de cupons em uma transação própria.
+ * Assim o contexto de persistência não cresce com o tamanho do ZIP, e um erro de banco
+ * só desfaz o lote em que aconteceu; nesse caso os cupons do lote são regravados um a um
+ * para que cada entrada ainda seja contada como sucesso, duplicada ou falha. Os que falham
+ * de novo voltam para o pipeline, que guarda o XML deles na quarentena.
+ * <p>
+ * Cada transação passa pelo bulkhead ingestaoBanco, que limita quantos lotes gravam ao mesmo tempo
+ * (somando todas as ingestões) e deixa o resto do pool de conexões para as consultas.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class GravadorCupons {
+
+    private static final String MODO_COPY = "copy";
+    private static final String MODO_SAVE = "save";
+
+    private final CupomRepository cupomRepository;
+    private final CupomCopyRepository cupomCopyRepository;
+    private final IndiceChavesService indiceChavesService;
+    private final CatalogoProdutosService catalogoProdutosService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ResumoRepository resumoRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final MetricasIngestao metricas;
+    private final ConteudoIngeridoService conteudoIngeridoService;
+    private final CancelamentoService cancelamentoService;
+    private final Bulkhead bulkheadIngestaoBanco;
+
+    /**
+     * Como os lotes do ZIP são gravados: "lote" (persist + batch JDBC), "copy" (COPY do PostgreSQL) ou "save"
+     */
+    @Value("${app.persistencia.modo:lote}")
+    private String modoPersistencia;
+
+    /**
+     * Grava um lote em uma transação e registra no resultado os processados, duplicados e falhas;
+     * retorna os cupons que o banco recusou
+     */
+    public List<CupomNaoGravado> gravar(List<Cupom> lote, ResultadoIngestao resultado) {
+        if (lote.isEmpty()) {
+            return List.of();
+        }
+        // Repetidas dentro do próprio lote ficam de fora da gravação; as de lotes anteriores já estão no banco
+        Set<String> chavesDoLote = new HashSet<>();
+        List<Cupom> candidatos = new ArrayList<>(lote.size());
+        List<Cupom> repetidos = new ArrayList<>();
+        for (Cupom cupom : lote) {
+            if (chavesDoLote.add(cupom.getChaveAcesso())) {
+                candidatos.add(cupom);
+            } else {
+                repetidos.add(cupom);
+            }
+        }
+
+        List<CupomNaoGravado> naoGravados = gravarCandidatos(candidatos, resultado);
+        Set<String> falharam = new HashSet<>();
+        for (CupomNaoGravado naoGravado : naoGravados) {
+            falharam.add(naoGravado.cupom().getChaveAcesso());
+        }
+
+        // Uma repetida só é duplicada se a primeira ocorrência foi gravada; senão ela tem a sua chance
+        List<Cupom> novaTentativa = new ArrayList<>();
+        for (Cupom cupom : repetidos) {
+            if (falharam.contains(cupom.getChaveAcesso())) {
+                novaTentativa.add(cupom);
+            } else {
+                registrarDuplicado(cupom, resultado);
+            }
+        }
+        if (novaTentativa.isEmpty()) {
+            return naoGravados;
+        }
+        List<CupomNaoGravado> todos = new ArrayList<>(naoGravados);
+        todos.addAll(gravar(novaTentativa, resultado));
+        return todos;
+    }
+
+    /**
+     * Grava cupons de chaves distintas; retorna os que não puderam ser gravados
+     */
+    private List<CupomNaoGravado> gravarCandidatos(List<Cupom> candidatos, ResultadoIngestao resultado) {
+        Set<Cupom> novos;
+        try {
+            novos = bulkheadIngestaoBanco.executeSupplier(() -> transactionTemplate.execute(status -> inserirNovos(candidatos)));
+        } catch (Exception e) {
+            log.warn("Falha ao gravar lote de {} cupons, regravando um a um: {}", candidatos.size(), e.getMessage());
+            return gravarUmAUm(candidatos, resultado);
+        }
+
+        List<Cupom> gravados = new ArrayList<>(novos.size());
+        for (Cupom cupom : candidatos) {
+            if (novos.contains(cupom)) {
+                registrarProcessado(cupom, resultado);
+                gravados.add(cupom);
+            } else {
+                registrarJaGravado(cupom, resultado);
+            }
+        }
+        if (!gravados.isEmpty()) {
+            eventPublisher.publishEvent(new CuponsGravadosEvent(gravados));
+        }
+        return List.of();
+    }
+
+    /**
+     * Confirma no banco só as chaves que o índice não descarta e insere as que não existem.
+     * Roda dentro da transação do lote.
+     */
+    private Set<Cupom> inserirNovos(List<Cupom> candidatos) {
+        long inicio = System.nanoTime();
+        List<String> aConfirmar = new ArrayList<>();
+        for (Cupom cupom : candidatos) {
+            if (indiceChavesService.podeExistir(cupom.getChaveAcesso())) {
+                aConfirmar.add(cupom.getChaveAcesso());
+            }
+        }
+        Set<String> existentes = aConfirmar.isEmpty()
+                ? Set.of()
+                : new HashSet<>(cupomRepository.findChavesExistentes(aConfirmar));
+        if (indiceChavesService.isPronto()) {
+            for (int i = existentes.size(); i < aConfirmar.size(); i++) {
+                indiceChavesService.registrarFalsoPositivo();
+            }
+        }
+
+        List<Cupom> novos = new ArrayList<>(candidatos.size());
+        for (Cupom cupom : candidatos) {
+            if (!existentes.contains(cupom.getChaveAcesso())) {
+                novos.add(cupom);
+            }
+        }
+        metricas.registrar(Etapa.DUPLICIDADE, inicio);
+        if (!novos.isEmpty()) {
+            inicio = System.nanoTime();
+            cancelamentoService.marcarCancelados(novos);
+            catalogoProdutosService.resolver(novos);
+            inserir(novos);
+            resumoRepository.acumular(novos);
+            metricas.registrar(Etapa.PERSISTENCIA, inicio);
+        }
+
+        Set<Cupom> inseridos = Collections.newSetFromMap(new IdentityHashMap<>());
+        inseridos.addAll(novos);
+        return inseridos;
+    }
+
+    private void inserir(List<Cupom> novos) {
+        if (MODO_COPY.equalsIgnoreCase(modoPersistencia)) {
+            cupomCopyRepository.inserirEmLote(novos);
+        } else if (MODO_SAVE.equalsIgnoreCase(modoPersistencia)) {
+            for (Cupom cupom : novos) {
+                cupomRepository.save(cupom);
+            }
+        } else {
+            cupomRepository.inserirEmLote(novos);
+        }
+    }
+
+    private List<CupomNaoGravado> gravarUmAUm(List<Cupom> cupons, ResultadoIngestao resultado) {
+        List<CupomNaoGravado> falharam = new ArrayList<>();
+        for (Cupom cupom : cupons) {
+            // A tentativa em lote pode ter atribuído ids aos itens antes do rollback
+            for (Item item : cupom.getItens()) {
+                item.setId(null);
+            }
+            try {
+                Set<Cupom> novos = bulkheadIngestaoBanco.executeSupplier(
+                        () -> transactionTemplate.execute(status -> inserirNovos(List.of(cupom))));
+                if (novos.contains(cupom)) {
+                    registrarProcessado(cupom, resultado);
+                    eventPublisher.publishEvent(new CuponsGravadosEvent(List.of(cupom)));
+                } else {
+                    registrarJaGravado(cupom, resultado);
+                }
+            } catch (Exception e) {
+                falharam.add(new CupomNaoGravado(cupom, "Erro ao gravar cupom: " + e.getMessage()));
+                resultado.registrarErro(cupom.getArquivoOrigem());
+                metricas.registrar(Desfecho.NAO_GRAVADO);
+                log.error("Erro inesperado ao persistir cupom {}: {}", cupom.getChaveAcesso(), e.getMessage(), e);
+            }
+        }
+        return falharam;
+    }
+
+    private void registrarProcessado(Cupom cupom, ResultadoIngestao resultado) {
+        indiceChavesService.adicionar(cupom.getChaveAcesso());
+        resultado.registrarProcessado();
+        metricas.registrar(Desfecho.PROCESSADO);
+        conteudoIngeridoService.registrar(cupom.getHashConteudo(), cupom.getChaveAcesso(), Desfecho.PROCESSADO);
+        log.info("XML processado com sucesso: {}", cupom.getChaveAcesso());
+    }
+
+    /**
+     * Duplicado confirmado pelo banco. Os repetidos dentro do mesmo lote não entram no índice de
+     * conteúdo, porque só se sabe que a primeira ocorrência foi gravada, não que o conteúdo é o mesmo.
+     */
+    private void registrarJaGravado(Cupom cupom, ResultadoIngestao resultado) {
+        registrarDuplicado(cupom, resultado);
+        conteudoIngeridoService.registrar(cupom.getHashConteudo(), cupom.getChaveAcesso(), Desfecho.DUPLICADO);
+    }
+
+    private void registrarDuplicado(Cupom cupom, ResultadoIngestao resultado) {
+        resultado.registrarDuplicado();
+        metricas.registrar(Desfecho.DUPLICADO);
+        log.warn("XML ignorado (duplicado): Cupom com chave de acesso {} já existe", cupom.getChaveAcesso());
+    }
+}
@@ -0,0 +1,158 @@
+package com.noelle.leitura_de_XML.services;
+
+import com.noelle.leitura_de_XML.util.ChaveAcessoSet;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Índice em memória das chaves de acesso já gravadas, para evitar a consulta ao banco
+ * na checagem de duplicidade. É carregado da tabela cupom na subida e atualizado a cada insert.
+ * Só responde com certeza que uma chave NÃO existe; enquanto não terminou de carregar,
+ * ou quando a chave pode existir, a decisão fica com o banco.
+ */
+@Service
+@Slf4j
+public class IndiceChavesService {
+
+    private static final int TAMANHO_FETCH = 10_000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean habilitado;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Counter descartadas;
+    private final Counter aConfirmar;
+    private final Counter falsosPositivos;
+
+    private final ChaveAcessoSet chaves = new ChaveAcessoSet(0);
+    private volatile boolean pronto;
+
+    public IndiceChavesService(JdbcTemplate jdbcTemplate,
+                               PlatformTransactionManager transactionManager,
+                               MeterRegistry meterRegistry,
+                               @Value("${app.indice-chaves.habilitado:true}") boolean habilitado) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.habilitado = habilitado;
+
+        this.descartadas = Counter.builder("cupom.indice.consultas")
+                .description("Checagens de duplicidade no índice; descartada = resolvida sem ir ao banco")
+                .tag("resultado", "descartada")
+                .register(meterRegistry);
+        this.aConfirmar = Counter.builder("cupom.indice.consultas")
+                .description("Checagens de duplicidade no índice; descartada = resolvida sem ir ao banco")
+                .tag("resultado", "confirmar")
+                .register(meterRegistry);
+        this.falsosPositivos = Counter.builder("cupom.indice.falsos.positivos")
+                .description("Chaves que o índice não pôde descartar e o banco mostrou que eram novas")
+                .register(meterRegistry);
+        Gauge.builder("cupom.indice.chaves", this, indice -> indice.tamanho())
+                .description("Chaves de acesso no índice")
+                .register(meterRegistry);
+        Gauge.builder("cupom.indice.memoria", this, indice -> indice.bytesOcupados())
+                .description("Memória ocupada pelo índice de chaves")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void aoIniciar() {
+        if (habilitado) {
+            Thread.ofVirtual().name("indice-chaves").start(this::carregar);
+        }
+    }
+
+    /**
+     * Carrega todas as chaves da tabela cupom com um cursor, sem trazer as entidades
+     */
+    void carregar() {
+        long inicio = System.currentTimeMillis();
+        try {
+            // Inserts feitos durante a carga já entram pelo adicionar, então o conjunto não é trocado aqui
+            transactionTemplate.executeWithoutResult(status -> {
+                JdbcTemplate cursor = new JdbcTemplate(jdbcTemplate.getDataSource());
+                cursor.setFetchSize(TAMANHO_FETCH);
+                cursor.query("select chave_acesso from cupom", rs -> {
+                    adicionar(rs.getString(1));
+                });
+            });
+            pronto = true;
+            log.info("Índice de chaves carregado: {} chaves, {} bytes, em {} ms",
+                    tamanho(), bytesOcupados(), System.currentTimeMillis() - inicio);
+        } catch (Exception e) {
+            log.error("Erro ao carregar índice de chaves, a duplicidade será checada só no banco: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * false quando a chave certamente ainda não foi gravada; true quando é preciso confirmar no banco
+     */
+    public boolean podeExistir(String chaveAcesso) {
+        if (!pronto || !ChaveAcessoSet.empacotavel(chaveAcesso)) {
+            return true;
+        }
+        boolean contem;
+        lock.readLock().lock();
+        try {
+            contem = chaves.contem(chaveAcesso);
+        } finally {
+            lock.readLock().unlock();
+        }
+        (contem ? aConfirmar : descartadas).increment();
+        return contem;
+    }
+
+    /**
+     * Registra que o banco confirmou como nova uma chave que o índice não pôde descartar
+     */
+    public void registrarFalsoPositivo() {
+        falsosPositivos.increment();
+    }
+
+    public void adicionar(String chaveAcesso) {
+        if (!habilitado || !ChaveAcessoSet.empacotavel(chaveAcesso)) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            chaves.adicionar(chaveAcesso);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isPronto() {
+        return pronto;
+    }
+
+    private int tamanho() {
+        lock.readLock().lock();
+        try {
+            return chaves.tamanho();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private long bytesOcupados() {
+        lock.readLock().lock();
+        try {
+            return chaves.bytesOcupados();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
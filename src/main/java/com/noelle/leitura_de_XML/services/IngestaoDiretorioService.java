@@ -0,0 +1,336 @@
+package com.noelle.leitura_de_XML.services;
+
+import com.noelle.leitura_de_XML.exception.ProcessamentoException;
+import com.noelle.leitura_de_XML.xml.ArquivoZipXml;
+import com.noelle.leitura_de_XML.xml.ArquivosXml;
+import com.noelle.leitura_de_XML.xml.BufferPool;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ingestão de XMLs e ZIPs colocados em um diretório do servidor, sem uma requisição por arquivo.
+ * <p>
+ * Os XMLs avulsos são agrupados (app.diretorio.arquivos-por-lote) e passam juntos pelo
+ * {@link IngestaoPipeline}, como as entradas de um ZIP; cada ZIP é processado como no upload.
+ * Ao fim de cada grupo, cada arquivo é movido para as subpastas processados/ ou erros/ da raiz,
+ * mantendo o caminho relativo. O rename é atômico quando as pastas estão no mesmo sistema de arquivos.
+ * <p>
+ * Com app.diretorio.entrada configurado, uma thread monitora o diretório (só o primeiro nível) com um
+ * WatchService e ingere os arquivos que estão há app.diretorio.espera-ms sem modificação, para não
+ * pegar um arquivo ainda sendo copiado. A importação avulsa de uma árvore inteira é feita pelo
+ * {@link IngestaoJobService}, com o mesmo processamento, e só aceita diretórios sob
+ * app.diretorio.importacao-raiz (ver {@link #resolverImportacao(String)}), já que os arquivos são movidos.
+ */
+@Service
+@Slf4j
+public class IngestaoDiretorioService {
+
+    static final String PASTA_PROCESSADOS = "processados";
+    static final String PASTA_ERROS = "erros";
+
+    private final CupomService cupomService;
+    private final BufferPool bufferPool;
+    private final int tamanhoMaximoXml;
+    private final String entrada;
+    private final String raizImportacao;
+    private final int arquivosPorLote;
+    private final long esperaMs;
+
+    private volatile boolean ativo = true;
+    private WatchService watchService;
+    private Thread monitor;
+
+    public IngestaoDiretorioService(CupomService cupomService,
+                                    BufferPool bufferPool,
+                                    @Value("${app.xml.tamanho-maximo-bytes:8388608}") int tamanhoMaximoXml,
+                                    @Value("${app.diretorio.entrada:}") String entrada,
+                                    @Value("${app.diretorio.importacao-raiz:}") String raizImportacao,
+                                    @Value("${app.diretorio.arquivos-por-lote:1000}") int arquivosPorLote,
+                                    @Value("${app.diretorio.espera-ms:2000}") long esperaMs) {
+        this.cupomService = cupomService;
+        this.bufferPool = bufferPool;
+        this.tamanhoMaximoXml = tamanhoMaximoXml;
+        this.entrada = entrada;
+        this.raizImportacao = raizImportacao;
+        this.arquivosPorLote = arquivosPorLote;
+        this.esperaMs = esperaMs;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void aoIniciar() throws IOException {
+        if (entrada == null || entrada.isBlank()) {
+            return;
+        }
+        Path raiz = Path.of(entrada).toAbsolutePath();
+        Files.createDirectories(raiz);
+        watchService = raiz.getFileSystem().newWatchService();
+        raiz.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        monitor = Thread.ofPlatform()
+                .name("diretorio-entrada")
+                .daemon()
+                .start(() -> monitorar(raiz));
+        log.info("Monitorando o diretório de entrada {}", raiz);
+    }
+
+    /**
+     * Diretório pedido para importação, relativo a app.diretorio.importacao-raiz ou absoluto dentro dela.
+     * Caminhos com "..", fora da raiz ou que só chegam nela por um link simbólico são recusados com
+     * ProcessamentoException; sem a raiz configurada, a importação fica desligada.
+     */
+    public Path resolverImportacao(String caminho) {
+        if (raizImportacao == null || raizImportacao.isBlank()) {
+            throw new ProcessamentoException("Importação de diretório desabilitada (app.diretorio.importacao-raiz não configurado)");
+        }
+        Path pedido;
+        try {
+            pedido = Path.of(caminho);
+        } catch (InvalidPathException e) {
+            throw new ProcessamentoException("Caminho inválido: " + caminho);
+        }
+        for (Path parte : pedido) {
+            if (parte.toString().equals("..")) {
+                throw new ProcessamentoException("Caminho não pode conter '..': " + caminho);
+            }
+        }
+        try {
+            Path raiz = Path.of(raizImportacao).toRealPath();
+            Path diretorio = raiz.resolve(pedido).toRealPath();
+            if (!diretorio.startsWith(raiz)) {
+                throw new ProcessamentoException("Diretório fora de app.diretorio.importacao-raiz: " + caminho);
+            }
+            if (!Files.isDirectory(diretorio)) {
+                throw new ProcessamentoException("Não é um diretório: " + caminho);
+            }
+            return diretorio;
+        } catch (IOException e) {
+            throw new ProcessamentoException("Diretório não encontrado: " + caminho);
+        }
+    }
+
+    /**
+     * XMLs e ZIPs da raiz (e das subpastas, se recursivo), em ordem de caminho, fora de processados/ e erros/.
+     * Links simbólicos não são seguidos.
+     */
+    public List<Path> listar(Path raiz, boolean recursivo) throws IOException {
+        Path processados = raiz.resolve(PASTA_PROCESSADOS);
+        Path erros = raiz.resolve(PASTA_ERROS);
+        List<Path> arquivos = new ArrayList<>();
+        Files.walkFileTree(raiz, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path diretorio, BasicFileAttributes atributos) {
+                if (diretorio.equals(raiz)) {
+                    return FileVisitResult.CONTINUE;
+                }
+                return recursivo && !diretorio.equals(processados) && !diretorio.equals(erros)
+                        ? FileVisitResult.CONTINUE
+                        : FileVisitResult.SKIP_SUBTREE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path arquivo, BasicFileAttributes atributos) {
+                if (atributos.isRegularFile() && (ehXml(arquivo) || ehZip(arquivo))) {
+                    arquivos.add(arquivo);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path arquivo, IOException e) {
+                log.warn("Não foi possível acessar {}: {}", arquivo, e.getMessage());
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        arquivos.sort(null);
+        return arquivos;
+    }
+
+    /**
+     * Quantidade de XMLs nos arquivos (contando as entradas dos ZIPs), ou -1 se algum ZIP não pôde ser lido
+     */
+    public int contarXmls(List<Path> arquivos) {
+        int total = 0;
+        for (Path arquivo : arquivos) {
+            if (!ehZip(arquivo)) {
+                total++;
+                continue;
+            }
+            try {
+                total += ArquivoZipXml.contarXmls(arquivo);
+            } catch (IOException e) {
+                return -1;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Ingere os arquivos listados sob a raiz e move cada um para processados/ ou erros/.
+     * Um ZIP vai para erros/ só se não pôde ser lido; as entradas com falha ficam na quarentena.
+     */
+    public ResultadoIngestao processar(Path raiz, List<Path> arquivos, ResultadoIngestao resultado) {
+        resultado.rastrearFalhas();
+        List<Path> xmls = new ArrayList<>(Math.min(arquivos.size(), arquivosPorLote));
+        for (Path arquivo : arquivos) {
+            if (ehZip(arquivo)) {
+                processarZip(raiz, arquivo, resultado);
+                continue;
+            }
+            xmls.add(arquivo);
+            if (xmls.size() >= arquivosPorLote) {
+                processarXmls(raiz, xmls, resultado);
+                xmls.clear();
+            }
+        }
+        if (!xmls.isEmpty()) {
+            processarXmls(raiz, xmls, resultado);
+        }
+        return resultado;
+    }
+
+    @PreDestroy
+    void encerrar() throws IOException, InterruptedException {
+        ativo = false;
+        if (watchService != null) {
+            watchService.close();
+        }
+        if (monitor != null) {
+            monitor.join(TimeUnit.SECONDS.toMillis(10));
+        }
+    }
+
+    private void processarXmls(Path raiz, List<Path> xmls, ResultadoIngestao resultado) {
+        ArquivosXml fonte = new ArquivosXml(List.copyOf(xmls), bufferPool, tamanhoMaximoXml);
+        cupomService.processarArquivosXml(fonte, resultado);
+        for (Path ilegivel : fonte.getIlegiveis()) {
+            resultado.registrarEntrada();
+            resultado.registrarFalha(ilegivel.toString());
+        }
+        for (Path xml : xmls) {
+            boolean falhou = resultado.falhou(xml.toString()) || fonte.getIlegiveis().contains(xml);
+            mover(raiz, xml, falhou ? PASTA_ERROS : PASTA_PROCESSADOS);
+        }
+        resultado.limparFalhas();
+    }
+
+    private void processarZip(Path raiz, Path zip, ResultadoIngestao resultado) {
+        try {
+            cupomService.processarArquivoZip(zip, resultado);
+            mover(raiz, zip, PASTA_PROCESSADOS);
+        } catch (ProcessamentoException e) {
+            log.error("Erro ao processar o ZIP {}: {}", zip, e.getMessage());
+            resultado.registrarEntrada();
+            resultado.registrarFalha(zip.toString());
+            mover(raiz, zip, PASTA_ERROS);
+        }
+        resultado.limparFalhas();
+    }
+
+    private void mover(Path raiz, Path arquivo, String pasta) {
+        Path destino = raiz.resolve(pasta).resolve(raiz.relativize(arquivo));
+        try {
+            Files.createDirectories(destino.getParent());
+            try {
+                Files.move(arquivo, destino, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(arquivo, destino, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (NoSuchFileException e) {
+            log.debug("Arquivo {} já não estava mais na entrada", arquivo);
+        } catch (IOException e) {
+            // Fica na entrada e é ingerido de novo na próxima varredura, agora sem parse (índice de conteúdo)
+            log.warn("Não foi possível mover {} para {}: {}", arquivo, destino, e.getMessage());
+        }
+    }
+
+    /**
+     * Espera eventos do WatchService e varre o diretório quando ele para de mudar por app.diretorio.espera-ms,
+     * ou a cada app.diretorio.espera-ms enquanto os arquivos continuam chegando
+     */
+    private void monitorar(Path raiz) {
+        // Arquivos deixados na entrada antes da subida também entram
+        boolean pendente = true;
+        long ultimaVarredura = 0;
+        while (ativo) {
+            try {
+                WatchKey chave = watchService.poll(esperaMs, TimeUnit.MILLISECONDS);
+                if (chave != null) {
+                    chave.pollEvents();
+                    chave.reset();
+                    pendente = true;
+                }
+                if (pendente && (chave == null || System.currentTimeMillis() - ultimaVarredura >= esperaMs)) {
+                    ultimaVarredura = System.currentTimeMillis();
+                    pendente = varrer(raiz);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ClosedWatchServiceException e) {
+                return;
+            } catch (Exception e) {
+                log.error("Erro ao ingerir o diretório {}: {}", raiz, e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Ingere os arquivos estáveis; retorna true se sobraram arquivos recentes demais para a próxima varredura
+     */
+    private boolean varrer(Path raiz) throws IOException {
+        long limite = System.currentTimeMillis() - esperaMs;
+        List<Path> arquivos = listar(raiz, false);
+        List<Path> prontos = new ArrayList<>(arquivos.size());
+        for (Path arquivo : arquivos) {
+            if (modificadoAntes(arquivo, limite)) {
+                prontos.add(arquivo);
+            }
+        }
+        if (!prontos.isEmpty()) {
+            long inicio = System.currentTimeMillis();
+            ResultadoIngestao resultado = processar(raiz, prontos, new ResultadoIngestao());
+            log.info("Diretório {}: {} arquivos ingeridos em {} ms. Total: {}, Sucesso: {}, Duplicados: {}, Falhas: {}",
+                    raiz, prontos.size(), System.currentTimeMillis() - inicio, resultado.getTotal(),
+                    resultado.getProcessados(), resultado.getDuplicados(), resultado.getFalhas());
+        }
+        return prontos.size() < arquivos.size();
+    }
+
+    private static boolean modificadoAntes(Path arquivo, long limiteMillis) {
+        try {
+            return Files.getLastModifiedTime(arquivo).toMillis() <= limiteMillis;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static boolean ehXml(Path arquivo) {
+        return arquivo.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".xml");
+    }
+
+    private static boolean ehZip(Path arquivo) {
+        return arquivo.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".zip");
+    }
+}
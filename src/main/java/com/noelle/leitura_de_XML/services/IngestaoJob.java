@@ -0,0 +1,97 @@
+package com.noelle.leitura_de_XML.services;
+
+import lombok.Getter;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Um ZIP enviado para processamento em segundo plano. O resultado é atualizado pela thread
+ * do job enquanto a API lê o andamento.
+ */
+@Getter
+public class IngestaoJob {
+
+    public enum Status {
+        AGUARDANDO, PROCESSANDO, CONCLUIDO, FALHOU
+    }
+
+    private final String id;
+    private final String nomeArquivo;
+    private final Instant criadoEm = Instant.now();
+    private final ResultadoIngestao resultado = new ResultadoIngestao();
+
+    private volatile Status status = Status.AGUARDANDO;
+    private volatile Instant iniciadoEm;
+    private volatile Instant concluidoEm;
+    /** Quantidade de XMLs no ZIP, ou -1 se não foi possível contar antes do processamento */
+    private volatile int totalEsperado = -1;
+    private volatile String erro;
+
+    IngestaoJob(String id, String nomeArquivo) {
+        this.id = id;
+        this.nomeArquivo = nomeArquivo;
+    }
+
+    void iniciar(int totalEsperado) {
+        this.totalEsperado = totalEsperado;
+        this.iniciadoEm = Instant.now();
+        this.status = Status.PROCESSANDO;
+    }
+
+    void concluir() {
+        this.concluidoEm = Instant.now();
+        this.status = Status.CONCLUIDO;
+    }
+
+    void falhar(String erro) {
+        this.erro = erro;
+        this.concluidoEm = Instant.now();
+        this.status = Status.FALHOU;
+    }
+
+    public boolean isFinalizado() {
+        return status == Status.CONCLUIDO || status == Status.FALHOU;
+    }
+
+    /**
+     * XMLs que já passaram pelo pipeline (processados, duplicados ou com falha)
+     */
+    public int getConcluidas() {
+        return resultado.getTotal();
+    }
+
+    /**
+     * Tempo de processamento até agora, ou total se o job já terminou
+     */
+    public Duration getDuracao() {
+        Instant inicio = iniciadoEm;
+        if (inicio == null) {
+            return Duration.ZERO;
+        }
+        Instant fim = concluidoEm;
+        return Duration.between(inicio, fim != null ? fim : Instant.now());
+    }
+
+    /**
+     * XMLs concluídos por segundo desde o início do processamento
+     */
+    public double getXmlsPorSegundo() {
+        long millis = getDuracao().toMillis();
+        return millis > 0 ? getConcluidas() * 1000.0 / millis : 0;
+    }
+
+    /**
+     * Estimativa de segundos até o fim, ou null enquanto não há total ou taxa para estimar
+     */
+    public Long getEtaSegundos() {
+        if (isFinalizado()) {
+            return 0L;
+        }
+        double taxa = getXmlsPorSegundo();
+        if (totalEsperado < 0 || taxa <= 0) {
+            return null;
+        }
+        return Math.round(Math.max(0, totalEsperado - getConcluidas()) / taxa);
+    }
+}
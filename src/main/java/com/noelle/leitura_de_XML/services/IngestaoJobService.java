@@ -0,0 +1,242 @@
+package com.noelle.leitura_de_XML.services;
+
+import com.noelle.leitura_de_XML.exception.IngestaoRejeitadaException;
+import com.noelle.leitura_de_XML.repository.ConteudoIngeridoRepository.ArquivoIngerido;
+import com.noelle.leitura_de_XML.util.HashConteudo;
+import com.noelle.leitura_de_XML.xml.ArquivoZipXml;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Recebe ZIPs para processamento em segundo plano e mantém o andamento de cada job.
+ * O upload é movido para um arquivo temporário, já que o do multipart some ao fim da requisição,
+ * e o ZIP é lido direto do disco, sem passar inteiro pelo heap. Um ZIP idêntico a outro já processado
+ * é concluído na hora com as contagens guardadas pelo {@link ConteudoIngeridoService}.
+ * <p>
+ * O jobsExecutor limita quantos jobs rodam ao mesmo tempo e quantos esperam; com a fila cheia, o envio
+ * é rejeitado com {@link IngestaoRejeitadaException} (429), com uma estimativa de quando tentar de novo.
+ */
+@Service
+@Slf4j
+public class IngestaoJobService {
+
+    private static final String NOME_QUARENTENA = "quarentena";
+    private static final long MAXIMO_RETRY_AFTER = 600;
+
+    private final CupomService cupomService;
+    private final QuarentenaService quarentenaService;
+    private final ConteudoIngeridoService conteudoIngeridoService;
+    private final IngestaoDiretorioService ingestaoDiretorioService;
+    private final ThreadPoolTaskExecutor jobsExecutor;
+    private final Duration retencao;
+    private final long retryAfterPadrao;
+    private final Map<String, IngestaoJob> jobs = new ConcurrentHashMap<>();
+
+    public IngestaoJobService(CupomService cupomService,
+                              QuarentenaService quarentenaService,
+                              ConteudoIngeridoService conteudoIngeridoService,
+                              IngestaoDiretorioService ingestaoDiretorioService,
+                              @Qualifier("jobsExecutor") ThreadPoolTaskExecutor jobsExecutor,
+                              @Value("${app.async.retencao-minutos:60}") long retencaoMinutos,
+                              @Value("${app.async.retry-after-segundos:5}") long retryAfterPadrao) {
+        this.cupomService = cupomService;
+        this.quarentenaService = quarentenaService;
+        this.conteudoIngeridoService = conteudoIngeridoService;
+        this.ingestaoDiretorioService = ingestaoDiretorioService;
+        this.jobsExecutor = jobsExecutor;
+        this.retencao = Duration.ofMinutes(retencaoMinutos);
+        this.retryAfterPadrao = retryAfterPadrao;
+    }
+
+    /**
+     * Registra o job e agenda o processamento; retorna sem esperar a leitura do ZIP.
+     * Lança IngestaoRejeitadaException quando a fila de jobs está cheia.
+     */
+    public IngestaoJob submeter(MultipartFile arquivo) throws IOException {
+        removerExpirados();
+        // Rejeita antes de mover o upload, que pode ser grande
+        if (!aceitaNovosJobs()) {
+            throw rejeicao(null);
+        }
+
+        Path temporario = Files.createTempFile("ingestao-", ".zip");
+        try {
+            arquivo.transferTo(temporario);
+            IngestaoJob job = new IngestaoJob(UUID.randomUUID().toString(), arquivo.getOriginalFilename());
+            agendar(job, () -> executar(job, temporario));
+            log.info("Job {} criado para o arquivo {}", job.getId(), job.getNomeArquivo());
+            return job;
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporario);
+            throw e;
+        }
+    }
+
+    /**
+     * Agenda o reprocessamento de até limite XMLs da quarentena como um job, acompanhado pela mesma API dos ZIPs.
+     * Lança IngestaoRejeitadaException quando a fila de jobs está cheia.
+     */
+    public IngestaoJob submeterReprocessamento(int limite) {
+        removerExpirados();
+
+        long pendentes = quarentenaService.contarPendentes();
+        IngestaoJob job = new IngestaoJob(UUID.randomUUID().toString(), NOME_QUARENTENA);
+        agendar(job, () -> executarReprocessamento(job, limite, (int) Math.min(limite, pendentes)));
+        log.info("Job {} criado para reprocessar até {} XMLs da quarentena", job.getId(), limite);
+        return job;
+    }
+
+    /**
+     * Agenda a importação de todos os XMLs e ZIPs sob um diretório de app.diretorio.importacao-raiz,
+     * movendo cada arquivo para processados/ ou erros/ dentro dele. Lança ProcessamentoException para um
+     * caminho fora da raiz e IngestaoRejeitadaException quando a fila de jobs está cheia.
+     */
+    public IngestaoJob submeterDiretorio(String caminho) {
+        Path raiz = ingestaoDiretorioService.resolverImportacao(caminho);
+        removerExpirados();
+
+        IngestaoJob job = new IngestaoJob(UUID.randomUUID().toString(), raiz.toString());
+        agendar(job, () -> executarDiretorio(job, raiz));
+        log.info("Job {} criado para importar o diretório {}", job.getId(), raiz);
+        return job;
+    }
+
+    /**
+     * Indica se um novo job seria aceito agora (há thread livre ou vaga na fila)
+     */
+    public boolean aceitaNovosJobs() {
+        ThreadPoolExecutor executor = jobsExecutor.getThreadPoolExecutor();
+        return executor.getQueue().remainingCapacity() > 0 || executor.getActiveCount() < executor.getMaximumPoolSize();
+    }
+
+    /**
+     * Estimativa de segundos até abrir uma vaga: duração média dos jobs concluídos vezes a fila à frente,
+     * dividida pelos jobs simultâneos. Sem histórico, usa app.async.retry-after-segundos.
+     */
+    public long segundosParaNovaTentativa() {
+        double mediaMillis = jobs.values().stream()
+                .filter(job -> job.getStatus() == IngestaoJob.Status.CONCLUIDO)
+                .mapToLong(job -> job.getDuracao().toMillis())
+                .average()
+                .orElse(-1);
+        if (mediaMillis < 0) {
+            return retryAfterPadrao;
+        }
+        ThreadPoolExecutor executor = jobsExecutor.getThreadPoolExecutor();
+        double segundos = mediaMillis * (executor.getQueue().size() + 1) / executor.getMaximumPoolSize() / 1000;
+        return Math.clamp((long) Math.ceil(segundos), 1, MAXIMO_RETRY_AFTER);
+    }
+
+    public Optional<IngestaoJob> buscar(String id) {
+        return Optional.ofNullable(jobs.get(id));
+    }
+
+    public Collection<IngestaoJob> listar() {
+        return jobs.values();
+    }
+
+    private void agendar(IngestaoJob job, Runnable tarefa) {
+        jobs.put(job.getId(), job);
+        try {
+            jobsExecutor.execute(tarefa);
+        } catch (TaskRejectedException e) {
+            jobs.remove(job.getId());
+            throw rejeicao(e);
+        }
+    }
+
+    private IngestaoRejeitadaException rejeicao(TaskRejectedException causa) {
+        return new IngestaoRejeitadaException("Fila de processamento cheia", segundosParaNovaTentativa(), causa);
+    }
+
+    private void executar(IngestaoJob job, Path arquivo) {
+        try {
+            HashConteudo hash = conteudoIngeridoService.hashArquivo(arquivo);
+            Optional<ArquivoIngerido> conhecido = conteudoIngeridoService.buscarArquivo(hash);
+            if (conhecido.isPresent()) {
+                concluirConhecido(job, conhecido.get());
+                return;
+            }
+            job.iniciar(contarXmls(arquivo));
+            cupomService.processarArquivoZip(arquivo, job.getResultado());
+            conteudoIngeridoService.registrarArquivo(hash, job.getNomeArquivo(), job.getResultado());
+            job.concluir();
+            log.info("Job {} concluído em {} ms", job.getId(), job.getDuracao().toMillis());
+        } catch (Exception e) {
+            log.error("Job {} falhou: {}", job.getId(), e.getMessage(), e);
+            job.falhar(e.getMessage());
+        } finally {
+            try {
+                Files.deleteIfExists(arquivo);
+            } catch (IOException e) {
+                log.warn("Não foi possível remover o arquivo temporário {}: {}", arquivo, e.getMessage());
+            }
+        }
+    }
+
+    private void concluirConhecido(IngestaoJob job, ArquivoIngerido arquivo) {
+        job.iniciar(arquivo.total());
+        job.getResultado().registrarArquivoConhecido(arquivo.total(),
+                arquivo.processados() + arquivo.duplicados(), arquivo.falhas());
+        job.concluir();
+        log.info("Job {}: arquivo {} idêntico a um já processado, concluído sem reprocessar ({} XMLs)",
+                job.getId(), job.getNomeArquivo(), arquivo.total());
+    }
+
+    private void executarDiretorio(IngestaoJob job, Path raiz) {
+        try {
+            List<Path> arquivos = ingestaoDiretorioService.listar(raiz, true);
+            job.iniciar(ingestaoDiretorioService.contarXmls(arquivos));
+            ingestaoDiretorioService.processar(raiz, arquivos, job.getResultado());
+            job.concluir();
+            log.info("Job {} concluído em {} ms ({} arquivos)", job.getId(), job.getDuracao().toMillis(), arquivos.size());
+        } catch (Exception e) {
+            log.error("Job {} falhou: {}", job.getId(), e.getMessage(), e);
+            job.falhar(e.getMessage());
+        }
+    }
+
+    private void executarReprocessamento(IngestaoJob job, int limite, int esperados) {
+        try {
+            job.iniciar(esperados);
+            cupomService.reprocessarQuarentena(limite, job.getResultado());
+            job.concluir();
+            log.info("Job {} concluído em {} ms", job.getId(), job.getDuracao().toMillis());
+        } catch (Exception e) {
+            log.error("Job {} falhou: {}", job.getId(), e.getMessage(), e);
+            job.falhar(e.getMessage());
+        }
+    }
+
+    private int contarXmls(Path arquivo) {
+        try {
+            return ArquivoZipXml.contarXmls(arquivo);
+        } catch (IOException e) {
+            log.warn("Não foi possível contar os XMLs do arquivo {}: {}", arquivo, e.getMessage());
+            return -1;
+        }
+    }
+
+    private void removerExpirados() {
+        Instant limite = Instant.now().minus(retencao);
+        jobs.values().removeIf(job -> job.isFinalizado() && job.getConcluidoEm().isBefore(limite));
+    }
+}
@@ -0,0 +1,489 @@
+package com.noelle.leitura_de_XML.services;
+
+import com.noelle.leitura_de_XML.domain.Cupom;
+import com.noelle.leitura_de_XML.exception.CupomCanceladoException;
+import com.noelle.leitura_de_XML.exception.ProcessamentoException;
+import com.noelle.leitura_de_XML.exception.XmlGrandeDemaisException;
+import com.noelle.leitura_de_XML.services.MetricasIngestao.Desfecho;
+import com.noelle.leitura_de_XML.services.MetricasIngestao.Etapa;
+import com.noelle.leitura_de_XML.util.HashConteudo;
+import com.noelle.leitura_de_XML.xml.ArquivoZipXml;
+import com.noelle.leitura_de_XML.xml.CancelamentoCfe;
+import com.noelle.leitura_de_XML.xml.FonteXml;
+import com.noelle.leitura_de_XML.xml.TipoDocumento;
+import com.noelle.leitura_de_XML.xml.XmlEntrada;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+import java.util.zip.ZipEntry;
+
+/**
+ * Processa um ZIP em três estágios:
+ * <ul>
+ *   <li>leitura: uma thread virtual percorre o ZIP e entrega cada entrada aos workers
+ *   (para ZIPs em disco, entrega só a referência e o worker descompacta);</li>
+ *   <li>parse: os workers do {@link EscalonadorIngestao} validam e extraem os cupons em paralelo,
+ *   dividindo-se em rodízio entre as ingestões simultâneas;</li>
+ *   <li>escrita: a thread que chamou executar recebe os cupons e os persiste em lotes.</li>
+ * </ul>
+ * Um semáforo limita quantos documentos estão entre a leitura e a escrita, então a leitura
+ * para quando os workers ou a persistência ficam para trás.
+ * <p>
+ * Cada documento entra no gauge de em andamento quando é lido e sai quando o lote dele é gravado
+ * ou quando falha; o tempo de cada etapa vai para {@link MetricasIngestao}. Os XMLs que falham
+ * são copiados para a {@link QuarentenaService}, inclusive os que o banco recusa na gravação:
+ * o XML de cada cupom extraído só é liberado depois que o lote dele é gravado.
+ * <p>
+ * Antes do parse, o worker calcula o hash dos bytes e consulta o {@link ConteudoIngeridoService}:
+ * um XML idêntico a outro já ingerido recebe o desfecho anterior sem passar pelo parse. Depois, o
+ * elemento raiz identifica o tipo do documento ({@link TipoDocumento}): de um CFeCanc só as chaves são
+ * lidas, e os cancelamentos são aplicados em lotes pelo {@link CancelamentoService}, como os cupons.
+ */
+@Component
+@Slf4j
+public class IngestaoPipeline {
+
+    private final ProcessadorXmlService processadorXmlService;
+    private final EscalonadorIngestao escalonador;
+    private final MetricasIngestao metricas;
+    private final QuarentenaService quarentenaService;
+    private final ConteudoIngeridoService conteudoIngeridoService;
+    private final CancelamentoService cancelamentoService;
+    private final int maxEmAndamento;
+    private final int tamanhoLote;
+
+    public IngestaoPipeline(ProcessadorXmlService processadorXmlService,
+                            EscalonadorIngestao escalonador,
+                            MetricasIngestao metricas,
+                            QuarentenaService quarentenaService,
+                            ConteudoIngeridoService conteudoIngeridoService,
+                            CancelamentoService cancelamentoService,
+                            @Value("${app.ingestao.max-em-andamento:64}") int maxEmAndamento,
+                            @Value("${app.ingestao.tamanho-lote:50}") int tamanhoLote) {
+        this.processadorXmlService = processadorXmlService;
+        this.escalonador = escalonador;
+        this.metricas = metricas;
+        this.quarentenaService = quarentenaService;
+        this.conteudoIngeridoService = conteudoIngeridoService;
+        this.cancelamentoService = cancelamentoService;
+        this.maxEmAndamento = maxEmAndamento;
+        this.tamanhoLote = tamanhoLote;
+    }
+
+    /**
+     * Estágio de escrita: grava um lote e devolve os cupons que o banco recusou
+     */
+    @FunctionalInterface
+    public interface Escritor {
+        List<CupomNaoGravado> gravar(List<Cupom> lote, ResultadoIngestao resultado);
+    }
+
+    /**
+     * Executa o pipeline. O escritor é chamado sempre na thread atual, com lotes de até
+     * app.ingestao.tamanho-lote cupons, e registra no resultado os processados e duplicados.
+     */
+    public ResultadoIngestao executar(InputStream conteudoZip, Escritor escritor) {
+        return executar(conteudoZip, new ResultadoIngestao(), escritor);
+    }
+
+    /**
+     * Executa o pipeline acumulando no resultado informado, que pode ser lido por outras threads durante o processamento
+     */
+    public ResultadoIngestao executar(InputStream conteudoZip, ResultadoIngestao resultado,
+                                      Escritor escritor) {
+        return executar(processadorXmlService.abrirZip(conteudoZip), resultado, escritor);
+    }
+
+    /**
+     * Executa o pipeline sobre uma origem sequencial qualquer, que é fechada ao fim da leitura
+     */
+    public ResultadoIngestao executar(FonteXml fonte, ResultadoIngestao resultado,
+                                      Escritor escritor) {
+        return processar((fila, eventos, emAndamento) -> ler(fonte, true, fila, eventos, emAndamento), resultado, escritor);
+    }
+
+    /**
+     * Como executar(FonteXml, ...), mas todos os XMLs passam pelo parse, mesmo os que o índice de
+     * conteúdo já conhece; usado no reprocessamento da quarentena, que existe para dar outra chance a eles
+     */
+    public ResultadoIngestao reprocessar(FonteXml fonte, ResultadoIngestao resultado,
+                                         Escritor escritor) {
+        return processar((fila, eventos, emAndamento) -> ler(fonte, false, fila, eventos, emAndamento), resultado, escritor);
+    }
+
+    /**
+     * Executa o pipeline sobre um ZIP em disco. A leitura só percorre o diretório central;
+     * cada worker descompacta a própria entrada, então a descompactação também roda em paralelo.
+     */
+    public ResultadoIngestao executar(Path arquivoZip, ResultadoIngestao resultado,
+                                      Escritor escritor) {
+        try (ArquivoZipXml arquivo = processadorXmlService.abrirZip(arquivoZip)) {
+            return processar((fila, eventos, emAndamento) -> ler(arquivo, fila, eventos, emAndamento), resultado, escritor);
+        } catch (IOException e) {
+            throw new ProcessamentoException("Erro ao abrir arquivo ZIP: " + e.getMessage(), e);
+        }
+    }
+
+    private ResultadoIngestao processar(Leitura leitura, ResultadoIngestao resultado,
+                                        Escritor escritor) {
+        BlockingQueue<Evento> eventos = new LinkedBlockingQueue<>();
+        Semaphore emAndamento = new Semaphore(maxEmAndamento);
+
+        Thread leitor = Thread.ofVirtual()
+                .name("ingestao-leitor")
+                .start(() -> leitura.ler(escalonador.abrirFila(), eventos, emAndamento));
+
+        List<Cupom> lote = new ArrayList<>(tamanhoLote);
+        Map<Cupom, XmlEntrada> xmlsDoLote = new IdentityHashMap<>();
+        List<Cancelado> cancelamentos = new ArrayList<>();
+        int esperados = -1;
+        int recebidos = 0;
+        try {
+            while (esperados < 0 || recebidos < esperados) {
+                Evento evento = eventos.take();
+                if (evento instanceof Fim fim) {
+                    esperados = fim.total();
+                    continue;
+                }
+                if (evento instanceof ErroLeitura erro) {
+                    throw new ProcessamentoException("Erro ao extrair XMLs do arquivo ZIP: " + erro.causa().getMessage(), erro.causa());
+                }
+
+                recebidos++;
+                emAndamento.release();
+                resultado.registrarEntrada();
+                if (evento instanceof Extraido extraido) {
+                    lote.add(extraido.cupom());
+                    xmlsDoLote.put(extraido.cupom(), extraido.xml());
+                    if (lote.size() >= tamanhoLote) {
+                        gravarLote(lote, xmlsDoLote, escritor, resultado);
+                        lote = new ArrayList<>(tamanhoLote);
+                        conteudoIngeridoService.gravarPendentes();
+                    }
+                } else if (evento instanceof Cancelado cancelado) {
+                    cancelamentos.add(cancelado);
+                    if (cancelamentos.size() >= tamanhoLote) {
+                        aplicarCancelamentos(cancelamentos, resultado);
+                        cancelamentos.clear();
+                        conteudoIngeridoService.gravarPendentes();
+                    }
+                } else if (evento instanceof Conhecido conhecido) {
+                    registrarConhecido(conhecido, resultado);
+                    metricas.sairam(1);
+                } else if (evento instanceof Falha falha) {
+                    if (falha.desfecho() == Desfecho.ERRO) {
+                        resultado.registrarErro(falha.nome());
+                    } else {
+                        resultado.registrarFalha(falha.nome());
+                    }
+                    registrarFalha(falha);
+                    metricas.sairam(1);
+                }
+            }
+            if (!lote.isEmpty()) {
+                gravarLote(lote, xmlsDoLote, escritor, resultado);
+                lote = List.of();
+            }
+            if (!cancelamentos.isEmpty()) {
+                aplicarCancelamentos(cancelamentos, resultado);
+                cancelamentos.clear();
+            }
+            conteudoIngeridoService.gravarPendentes();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ProcessamentoException("Processamento do ZIP interrompido", e);
+        } finally {
+            leitor.interrupt();
+            xmlsDoLote.values().forEach(XmlEntrada::close);
+            // Se o pipeline parou no meio, tira do gauge o lote não gravado e o que ainda estava com os workers
+            metricas.sairam(lote.size() + cancelamentos.size() + maxEmAndamento - emAndamento.availablePermits());
+        }
+        return resultado;
+    }
+
+    /**
+     * Grava o lote, manda para a quarentena os XMLs dos cupons que o banco recusou e libera os XMLs
+     */
+    private void gravarLote(List<Cupom> lote, Map<Cupom, XmlEntrada> xmlsDoLote, Escritor escritor,
+                            ResultadoIngestao resultado) {
+        try {
+            for (CupomNaoGravado naoGravado : escritor.gravar(lote, resultado)) {
+                XmlEntrada xml = xmlsDoLote.get(naoGravado.cupom());
+                if (xml != null) {
+                    quarentenaService.colocar(xml, naoGravado.motivo(), Desfecho.NAO_GRAVADO);
+                }
+            }
+        } finally {
+            xmlsDoLote.values().forEach(XmlEntrada::close);
+            xmlsDoLote.clear();
+        }
+        metricas.sairam(lote.size());
+    }
+
+    private void ler(FonteXml fonte, boolean consultarConhecidos, EscalonadorIngestao.Fila fila,
+                     BlockingQueue<Evento> eventos, Semaphore emAndamento) {
+        int total = 0;
+        try (FonteXml xmls = fonte) {
+            while (true) {
+                long inicio = System.nanoTime();
+                XmlEntrada entrada;
+                try {
+                    entrada = xmls.proximo();
+                } catch (XmlGrandeDemaisException e) {
+                    // Só esta entrada é rejeitada; a origem segue na próxima
+                    emAndamento.acquire();
+                    metricas.entrou();
+                    total++;
+                    eventos.add(grandeDemais(e));
+                    continue;
+                }
+                if (entrada == null) {
+                    break;
+                }
+                metricas.registrar(Etapa.DESCOMPACTAR, inicio);
+                emAndamento.acquire();
+                metricas.entrou();
+                total++;
+                XmlEntrada xml = entrada;
+                try {
+                    fila.executar(tarefa(xml.getNome(), () -> extrair(xml, consultarConhecidos), eventos));
+                } catch (RuntimeException e) {
+                    xml.close();
+                    throw e;
+                }
+            }
+            eventos.add(new Fim(total));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("Erro ao extrair XMLs do arquivo ZIP: {}", e.getMessage(), e);
+            eventos.add(new ErroLeitura(e));
+        }
+    }
+
+    private void ler(ArquivoZipXml arquivo, EscalonadorIngestao.Fila fila, BlockingQueue<Evento> eventos,
+                     Semaphore emAndamento) {
+        int total = 0;
+        try {
+            for (ZipEntry entry : arquivo.entradas()) {
+                emAndamento.acquire();
+                metricas.entrou();
+                total++;
+                fila.executar(tarefa(entry.getName(), () -> lerEExtrair(arquivo, entry), eventos));
+            }
+            eventos.add(new Fim(total));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("Erro ao extrair XMLs do arquivo ZIP: {}", e.getMessage(), e);
+            eventos.add(new ErroLeitura(e));
+        }
+    }
+
+    /**
+     * Tarefa de um worker: todo documento entregue ao escalonador produz exatamente um evento, mesmo
+     * que a extração lance algo inesperado (um Error, inclusive); sem ele, o escritor esperaria para sempre
+     * e a permissão do semáforo não voltaria
+     */
+    private static Runnable tarefa(String nome, Supplier<Evento> extracao, BlockingQueue<Evento> eventos) {
+        return () -> {
+            Evento evento = null;
+            try {
+                evento = extracao.get();
+            } catch (Throwable e) {
+                evento = new Falha(nome, "Erro inesperado ao processar XML: " + e, e, Desfecho.ERRO);
+            } finally {
+                eventos.add(evento != null ? evento
+                        : new Falha(nome, "Erro inesperado ao processar XML", null, Desfecho.ERRO));
+            }
+        };
+    }
+
+    private Evento lerEExtrair(ArquivoZipXml arquivo, ZipEntry entry) {
+        XmlEntrada xml;
+        long inicio = System.nanoTime();
+        try {
+            xml = arquivo.ler(entry);
+        } catch (XmlGrandeDemaisException e) {
+            return grandeDemais(e);
+        } catch (Exception e) {
+            return new Falha(entry.getName(), "Erro ao descompactar entrada: " + e.getMessage(), e, Desfecho.ERRO);
+        }
+        metricas.registrar(Etapa.DESCOMPACTAR, inicio);
+        return extrair(xml, true);
+    }
+
+    /**
+     * Entrada acima de app.xml.tamanho-maximo-bytes: conta como inválida, sem conteúdo para a quarentena
+     */
+    private static Falha grandeDemais(XmlGrandeDemaisException e) {
+        return new Falha(e.getNome(), e.getMessage(), null, Desfecho.INVALIDO);
+    }
+
+    /**
+     * Extrai o documento e libera o XML, exceto o de um cupom extraído, que fica com o evento até o lote ser gravado
+     */
+    private Evento extrair(XmlEntrada xml, boolean consultarConhecidos) {
+        metricas.registrarXml(xml.getTamanho());
+        Evento evento = null;
+        try {
+            HashConteudo hash = HashConteudo.de(xml.getConteudo(), xml.getTamanho());
+            if (consultarConhecidos) {
+                Desfecho anterior = conteudoIngeridoService.consultar(hash);
+                if (anterior != null) {
+                    return new Conhecido(xml.getNome(), anterior);
+                }
+            }
+            evento = TipoDocumento.identificar(xml.getConteudo(), xml.getTamanho()) == TipoDocumento.CANCELAMENTO
+                    ? extrairCancelamento(xml, hash)
+                    : extrairCupom(xml, hash);
+            if (evento instanceof Falha falha) {
+                quarentenaService.colocar(xml, falha.mensagem(), falha.desfecho());
+            }
+            return evento;
+        } finally {
+            if (!(evento instanceof Extraido)) {
+                xml.close();
+            }
+        }
+    }
+
+    private Evento extrairCupom(XmlEntrada xml, HashConteudo hash) {
+        try {
+            // Validar o XML antes de processá-lo (o extrator StAX já valida durante a extração)
+            if (!processadorXmlService.validaNoMesmoPasso()) {
+                long inicioValidacao = System.nanoTime();
+                boolean valido = processadorXmlService.validarXml(xml.abrir());
+                metricas.registrar(Etapa.VALIDAR, inicioValidacao);
+                if (!valido) {
+                    return new Falha(xml.getNome(), "XML inválido, ignorando processamento", null, Desfecho.INVALIDO);
+                }
+            }
+            long inicioParse = System.nanoTime();
+            Cupom cupom;
+            try {
+                cupom = processadorXmlService.processar(xml.abrir());
+            } finally {
+                metricas.registrar(Etapa.PARSE, inicioParse);
+            }
+            metricas.registrarItens(cupom.getItens().size());
+            cupom.setHashConteudo(hash);
+            cupom.setArquivoOrigem(xml.getNome());
+            return new Extraido(cupom, xml);
+        } catch (CupomCanceladoException e) {
+            // CFeCanc que o TipoDocumento não reconheceu pelos bytes (encoding não ASCII, por exemplo)
+            return extrairCancelamento(xml, hash);
+        } catch (ProcessamentoException e) {
+            return new Falha(xml.getNome(), e.getMessage(), null, Desfecho.INVALIDO);
+        } catch (Exception e) {
+            return new Falha(xml.getNome(), e.getMessage(), e, Desfecho.ERRO);
+        }
+    }
+
+    private Evento extrairCancelamento(XmlEntrada xml, HashConteudo hash) {
+        long inicioParse = System.nanoTime();
+        try {
+            return new Cancelado(xml.getNome(), hash, processadorXmlService.extrairCancelamento(xml.abrir()));
+        } catch (ProcessamentoException e) {
+            return new Falha(xml.getNome(), e.getMessage(), null, Desfecho.INVALIDO);
+        } catch (Exception e) {
+            return new Falha(xml.getNome(), e.getMessage(), e, Desfecho.ERRO);
+        } finally {
+            metricas.registrar(Etapa.PARSE, inicioParse);
+        }
+    }
+
+    /**
+     * Aplica um lote de cancelamentos em uma transação; se ela falha, o lote todo conta como erro
+     */
+    private void aplicarCancelamentos(List<Cancelado> cancelados, ResultadoIngestao resultado) {
+        List<CancelamentoCfe> cancelamentos = new ArrayList<>(cancelados.size());
+        for (Cancelado cancelado : cancelados) {
+            cancelamentos.add(cancelado.cancelamento());
+        }
+        try {
+            long inicio = System.nanoTime();
+            cancelamentoService.aplicar(cancelamentos);
+            metricas.registrar(Etapa.PERSISTENCIA, inicio);
+            for (Cancelado cancelado : cancelados) {
+                resultado.registrarCancelamento();
+                metricas.registrar(Desfecho.CANCELADO);
+                conteudoIngeridoService.registrar(cancelado.hash(), cancelado.cancelamento().chaveAcesso(), Desfecho.CANCELADO);
+            }
+        } catch (Exception e) {
+            log.error("Erro inesperado ao aplicar {} cancelamentos: {}", cancelados.size(), e.getMessage(), e);
+            for (Cancelado cancelado : cancelados) {
+                resultado.registrarErro(cancelado.nome());
+                metricas.registrar(Desfecho.ERRO);
+            }
+        }
+        metricas.sairam(cancelados.size());
+    }
+
+    private void registrarFalha(Falha falha) {
+        metricas.registrar(falha.desfecho());
+        if (falha.causa() != null) {
+            log.error("Erro inesperado ao processar XML {}: {}", falha.nome(), falha.mensagem(), falha.causa());
+        } else {
+            log.error("Erro ao processar XML {}: {}", falha.nome(), falha.mensagem());
+        }
+    }
+
+    /**
+     * XML idêntico a um já ingerido: processado ou duplicado antes conta como duplicado agora;
+     * um cancelamento já foi aplicado e conta como cancelamento de novo. Falhas não ficam no índice
+     * e passam sempre pelo parse.
+     */
+    private void registrarConhecido(Conhecido conhecido, ResultadoIngestao resultado) {
+        if (conhecido.desfecho() == Desfecho.PROCESSADO || conhecido.desfecho() == Desfecho.DUPLICADO) {
+            resultado.registrarDuplicado();
+            metricas.registrar(Desfecho.DUPLICADO);
+        } else {
+            resultado.registrarCancelamento();
+            metricas.registrar(Desfecho.CANCELADO);
+        }
+        log.debug("XML {} já ingerido antes ({}), ignorado sem parse", conhecido.nome(),
+                conhecido.desfecho().name().toLowerCase());
+    }
+
+    /**
+     * Estágio de leitura: entrega cada documento à fila do escalonador e, no fim, o evento Fim
+     */
+    @FunctionalInterface
+    private interface Leitura {
+        void ler(EscalonadorIngestao.Fila fila, BlockingQueue<Evento> eventos, Semaphore emAndamento);
+    }
+
+    private sealed interface Evento permits Extraido, Cancelado, Conhecido, Falha, Fim, ErroLeitura {
+    }
+
+    private record Extraido(Cupom cupom, XmlEntrada xml) implements Evento {
+    }
+
+    private record Cancelado(String nome, HashConteudo hash, CancelamentoCfe cancelamento) implements Evento {
+    }
+
+    private record Conhecido(String nome, Desfecho desfecho) implements Evento {
+    }
+
+    private record Falha(String nome, String mensagem, Throwable causa, Desfecho desfecho) implements Evento {
+    }
+
+    private record Fim(int total) implements Evento {
+    }
+
+    private record ErroLeitura(Exception causa) implements Evento {
+    }
+}
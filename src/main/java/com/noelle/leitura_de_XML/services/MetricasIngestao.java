@@ -0,0 +1,93 @@
+package com.noelle.leitura_de_XML.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Métricas da ingestão de ZIPs, expostas em /actuator/prometheus: tempo de cada etapa por documento
+ * (ou por lote, na duplicidade e na persistência), tamanho dos XMLs, itens por cupom, desfecho de
+ * cada documento e quantos estão em andamento. Os percentis das etapas saem dos histogramas
+ * configurados em management.metrics.distribution.
+ */
+@Component
+public class MetricasIngestao {
+
+    public enum Etapa {
+        DESCOMPACTAR, VALIDAR, PARSE, DUPLICIDADE, PERSISTENCIA
+    }
+
+    /**
+     * NAO_GRAVADO: extraído, mas recusado pelo banco na gravação. Novos valores vão no fim, porque o
+     * índice de conteúdo guarda o desfecho pela posição
+     */
+    public enum Desfecho {
+        PROCESSADO, DUPLICADO, CANCELADO, INVALIDO, ERRO, NAO_GRAVADO
+    }
+
+    private final Map<Etapa, Timer> etapas = new EnumMap<>(Etapa.class);
+    private final Map<Desfecho, Counter> desfechos = new EnumMap<>(Desfecho.class);
+    private final DistributionSummary tamanhoXml;
+    private final DistributionSummary itensPorCupom;
+    private final AtomicInteger emAndamento = new AtomicInteger();
+
+    public MetricasIngestao(MeterRegistry meterRegistry) {
+        for (Etapa etapa : Etapa.values()) {
+            etapas.put(etapa, Timer.builder("ingestao.etapa")
+                    .description("Tempo de cada etapa da ingestão")
+                    .tag("etapa", etapa.name().toLowerCase())
+                    .register(meterRegistry));
+        }
+        for (Desfecho desfecho : Desfecho.values()) {
+            desfechos.put(desfecho, Counter.builder("ingestao.documentos")
+                    .description("Documentos dos ZIPs por desfecho")
+                    .tag("resultado", desfecho.name().toLowerCase())
+                    .register(meterRegistry));
+        }
+        this.tamanhoXml = DistributionSummary.builder("ingestao.xml.tamanho")
+                .description("Tamanho dos XMLs descompactados")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.itensPorCupom = DistributionSummary.builder("ingestao.cupom.itens")
+                .description("Itens por cupom extraído")
+                .register(meterRegistry);
+        Gauge.builder("ingestao.documentos.em.andamento", emAndamento, AtomicInteger::get)
+                .description("Documentos lidos do ZIP que ainda não tiveram desfecho")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Registra a duração de uma etapa iniciada em inicioNanos (System.nanoTime())
+     */
+    public void registrar(Etapa etapa, long inicioNanos) {
+        etapas.get(etapa).record(System.nanoTime() - inicioNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void registrar(Desfecho desfecho) {
+        desfechos.get(desfecho).increment();
+    }
+
+    public void registrarXml(int tamanhoBytes) {
+        tamanhoXml.record(tamanhoBytes);
+    }
+
+    public void registrarItens(int quantidade) {
+        itensPorCupom.record(quantidade);
+    }
+
+    public void entrou() {
+        emAndamento.incrementAndGet();
+    }
+
+    public void sairam(int quantidade) {
+        emAndamento.addAndGet(-quantidade);
+    }
+}
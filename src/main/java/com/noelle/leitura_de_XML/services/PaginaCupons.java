@@ -0,0 +1,11 @@
+package com.noelle.leitura_de_XML.services;
+
+import com.noelle.leitura_de_XML.domain.Cupom;
+
+import java.util.List;
+
+/**
+ * Uma página de cupons e o token para continuar a listagem (null quando não há mais)
+ */
+public record PaginaCupons(List<Cupom> cupons, String proximoToken) {
+}
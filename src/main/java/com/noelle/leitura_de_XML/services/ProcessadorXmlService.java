@@ -2,99 +2,227 @@ package com.noelle.leitura_de_XML.services;
 
 import com.noelle.leitura_de_XML.domain.Cupom;
 import com.noelle.leitura_de_XML.domain.Item;
+import com.noelle.leitura_de_XML.domain.Produto;
+import com.noelle.leitura_de_XML.exception.CupomCanceladoException;
 import com.noelle.leitura_de_XML.exception.ProcessamentoException;
+import com.noelle.leitura_de_XML.xml.ArquivoZipXml;
+import com.noelle.leitura_de_XML.xml.BufferPool;
+import com.noelle.leitura_de_XML.xml.CancelamentoCfe;
+import com.noelle.leitura_de_XML.xml.CfeSatStaxExtractor;
+import com.noelle.leitura_de_XML.xml.EsquemaCfe;
+import com.noelle.leitura_de_XML.xml.LeitorZipXml;
+import com.noelle.leitura_de_XML.xml.TextosInternados;
+import com.noelle.leitura_de_XML.xml.TipoDocumento;
+import com.noelle.leitura_de_XML.xml.XmlEntrada;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.NodeList;
+import org.xml.sax.ContentHandler;
 import org.xml.sax.InputSource;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.transform.stream.StreamSource;
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.StringReader;
+import java.nio.file.Path;
+import java.nio.charset.StandardCharsets;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
 
 @Service
+@RequiredArgsConstructor
 @Slf4j
 public class ProcessadorXmlService {
     
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd");
-    
+
+    private static final String PARSER_DOM = "dom";
+
+    private static final DocumentBuilderFactory DOCUMENT_BUILDER_FACTORY = DocumentBuilderFactory.newInstance();
+
+    // DocumentBuilder não é thread-safe, então cada thread reaproveita o seu
+    private static final ThreadLocal<DocumentBuilder> DOCUMENT_BUILDER = ThreadLocal.withInitial(() -> {
+        try {
+            return DOCUMENT_BUILDER_FACTORY.newDocumentBuilder();
+        } catch (ParserConfigurationException e) {
+            throw new IllegalStateException("Não foi possível criar o DocumentBuilder", e);
+        }
+    });
+
+    private final CfeSatStaxExtractor staxExtractor;
+    private final EsquemaCfe esquemaCfe;
+    private final BufferPool bufferPool;
+    private final TextosInternados textosInternados;
+
+    /**
+     * Parser usado em processar: "stax" (padrão, passada única) ou "dom" (árvore completa, para comparação)
+     */
+    @Value("${app.xml.parser:stax}")
+    private String parser;
+
     /**
-     * Extrai os XMLs de um arquivo ZIP
+     * Maior XML aceito dentro de um ZIP; entradas maiores são rejeitadas sem alocar o tamanho declarado
      */
-   public List<String> extrairXmlsDoZip(byte[] conteudoZip) {
-    log.info("Iniciando extração de XMLs do arquivo ZIP, tamanho: {} bytes", conteudoZip.length);
-    List<String> xmls = new ArrayList<>();
+    @Value("${app.xml.tamanho-maximo-bytes:8388608}")
+    private int tamanhoMaximoXml;
     
-    try (ZipInputStream zipInputStream = new ZipInputStream(new ByteArrayInputStream(conteudoZip))) {
-        ZipEntry entry;
-        while ((entry = zipInputStream.getNextEntry()) != null) {
-            if (entry.getName().endsWith(".xml")) {
-                ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-                byte[] buffer = new byte[1024];
-                int len;
-                while ((len = zipInputStream.read(buffer)) > 0) {
-                    outputStream.write(buffer, 0, len);
+    /**
+     * Abre o ZIP para leitura sequencial: cada XML é entregue como bytes, um de cada vez
+     */
+    public LeitorZipXml abrirZip(InputStream conteudoZip) {
+        return new LeitorZipXml(conteudoZip, bufferPool, tamanhoMaximoXml);
+    }
+
+    /**
+     * Abre um ZIP em disco para leitura das entradas sob demanda, em qualquer ordem e por várias threads
+     */
+    public ArquivoZipXml abrirZip(Path arquivoZip) throws IOException {
+        return new ArquivoZipXml(arquivoZip, bufferPool, tamanhoMaximoXml);
+    }
+
+    /**
+     * Extrai os XMLs de um arquivo ZIP (todos em memória; o processamento em lote usa abrirZip)
+     */
+    public List<String> extrairXmlsDoZip(byte[] conteudoZip) {
+        log.info("Iniciando extração de XMLs do arquivo ZIP, tamanho: {} bytes", conteudoZip.length);
+        List<String> xmls = new ArrayList<>();
+
+        try (LeitorZipXml leitor = abrirZip(new ByteArrayInputStream(conteudoZip))) {
+            XmlEntrada entrada;
+            while ((entrada = leitor.proximo()) != null) {
+                try (XmlEntrada xml = entrada) {
+                    xmls.add(new String(xml.getConteudo(), 0, xml.getTamanho(), StandardCharsets.UTF_8));
                 }
-                String xml = outputStream.toString("UTF-8");
-                xmls.add(xml);
-                log.debug("XML extraído: {}, tamanho: {} bytes", entry.getName(), xml.length());
             }
+            log.info("Extração concluída. Total de XMLs encontrados: {}", xmls.size());
+        } catch (Exception e) {
+            log.error("Erro ao extrair XMLs do arquivo ZIP: {}", e.getMessage(), e);
+            throw new ProcessamentoException("Erro ao extrair XMLs do arquivo ZIP: " + e.getMessage(), e);
         }
-        log.info("Extração concluída. Total de XMLs encontrados: {}", xmls.size());
-    } catch (Exception e) {
-        log.error("Erro ao extrair XMLs do arquivo ZIP: {}", e.getMessage(), e);
-        throw new ProcessamentoException("Erro ao extrair XMLs do arquivo ZIP: " + e.getMessage(), e);
+
+        return xmls;
     }
-    
-    return xmls;
-}
 
-    
     /**
      * Processa um XML de CF-e SAT
      */
     public Cupom processar(String conteudoXml) {
         try {
-            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-            DocumentBuilder builder = factory.newDocumentBuilder();
-            Document document = builder.parse(new InputSource(new StringReader(conteudoXml)));
-            
-            // Verifica se é um cupom cancelado
-            NodeList cancelamentoList = document.getElementsByTagName("CFeCanc");
-            if (cancelamentoList.getLength() > 0) {
-                throw new ProcessamentoException("Cupom cancelado, ignorando processamento");
+            if (usaDom()) {
+                return processarDom(parseDom(new InputSource(new StringReader(conteudoXml))));
             }
-            
-            Element infCFe = (Element) document.getElementsByTagName("infCFe").item(0);
-            String chaveAcesso = infCFe.getAttribute("Id").replace("CFe", "");
-            
-            Element ide = (Element) infCFe.getElementsByTagName("ide").item(0);
-            String numeroCfe = getElementTextContent(ide, "nCFe");
-            String dataEmissaoStr = getElementTextContent(ide, "dEmi");
-            LocalDate dataEmissao = LocalDate.parse(dataEmissaoStr, DATE_FORMATTER);
-            
-            Element total = (Element) infCFe.getElementsByTagName("total").item(0);
-            Element icmsTot = (Element) total.getElementsByTagName("ICMSTot").item(0);
-            
-            BigDecimal valorTotalIcms = new BigDecimal(getElementTextContent(icmsTot, "vICMS"));
-            BigDecimal valorTotalProdutos = new BigDecimal(getElementTextContent(icmsTot, "vProd"));
-            BigDecimal valorTotalDescontos = new BigDecimal(getElementTextContent(icmsTot, "vDesc"));
-            BigDecimal valorTotalPis = new BigDecimal(getElementTextContent(icmsTot, "vPIS"));
-            BigDecimal valorTotalCofins = new BigDecimal(getElementTextContent(icmsTot, "vCOFINS"));
-            BigDecimal valorTotalOutros = new BigDecimal(getElementTextContent(icmsTot, "vOutro"));
-            
-            // Em vez de usar o Builder, crie uma instância diretamente
+            return extrairStax(validador -> staxExtractor.extrair(new StringReader(conteudoXml), validador));
+        } catch (CupomCanceladoException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new ProcessamentoException("Erro ao processar XML: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Processa um XML de CF-e SAT direto dos bytes, com o encoding da declaração XML
+     */
+    public Cupom processar(InputStream conteudoXml) {
+        try {
+            if (usaDom()) {
+                return processarDom(parseDom(new InputSource(conteudoXml)));
+            }
+            return extrairStax(validador -> staxExtractor.extrair(conteudoXml, validador));
+        } catch (CupomCanceladoException e) {
+            // Sem embrulhar, para que a ingestão reconheça o cancelamento e o aplique
+            throw e;
+        } catch (Exception e) {
+            throw new ProcessamentoException("Erro ao processar XML: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Extrai as chaves de um CFeCanc (identificado por {@link TipoDocumento}); sempre pelo StAX,
+     * já que só o começo do documento é lido
+     */
+    public CancelamentoCfe extrairCancelamento(InputStream conteudoXml) {
+        try {
+            return staxExtractor.extrairCancelamento(conteudoXml);
+        } catch (ProcessamentoException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new ProcessamentoException("Erro ao processar cancelamento: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Indica se processar já valida o XML (bem formado e, nos documentos sorteados, o schema),
+     * dispensando a chamada prévia a validarXml
+     */
+    public boolean validaNoMesmoPasso() {
+        return !usaDom();
+    }
+
+    /**
+     * Extração StAX com a validação do schema na mesma passada, quando o documento é sorteado
+     */
+    private Cupom extrairStax(ExtracaoStax extracao) throws XMLStreamException {
+        if (!esquemaCfe.sortear()) {
+            return extracao.extrair(null);
+        }
+        try {
+            return extracao.extrair(esquemaCfe.handler());
+        } catch (XMLStreamException | RuntimeException e) {
+            esquemaCfe.descartarHandler();
+            throw e;
+        }
+    }
+
+    @FunctionalInterface
+    private interface ExtracaoStax {
+        Cupom extrair(ContentHandler validador) throws XMLStreamException;
+    }
+
+    private boolean usaDom() {
+        return PARSER_DOM.equalsIgnoreCase(parser);
+    }
+
+    /**
+     * Implementação original sobre a árvore DOM, mantida para comparação com o extrator StAX
+     */
+    private Cupom processarDom(Document document) {
+        // Verifica se é um cupom cancelado
+        NodeList cancelamentoList = document.getElementsByTagName("CFeCanc");
+        if (cancelamentoList.getLength() > 0) {
+            throw new CupomCanceladoException("Cupom cancelado, ignorando processamento");
+        }
+        
+        Element infCFe = (Element) document.getElementsByTagName("infCFe").item(0);
+        String chaveAcesso = infCFe.getAttribute("Id").replace("CFe", "");
+        
+        Element ide = (Element) infCFe.getElementsByTagName("ide").item(0);
+        String numeroCfe = getElementTextContent(ide, "nCFe");
+        String dataEmissaoStr = getElementTextContent(ide, "dEmi");
+        LocalDate dataEmissao = LocalDate.parse(dataEmissaoStr, DATE_FORMATTER);
+        
+        Element total = (Element) infCFe.getElementsByTagName("total").item(0);
+        Element icmsTot = (Element) total.getElementsByTagName("ICMSTot").item(0);
+        
+        BigDecimal valorTotalIcms = new BigDecimal(getElementTextContent(icmsTot, "vICMS"));
+        BigDecimal valorTotalProdutos = new BigDecimal(getElementTextContent(icmsTot, "vProd"));
+        BigDecimal valorTotalDescontos = new BigDecimal(getElementTextContent(icmsTot, "vDesc"));
+        BigDecimal valorTotalPis = new BigDecimal(getElementTextContent(icmsTot, "vPIS"));
+        BigDecimal valorTotalCofins = new BigDecimal(getElementTextContent(icmsTot, "vCOFINS"));
+        BigDecimal valorTotalOutros = new BigDecimal(getElementTextContent(icmsTot, "vOutro"));
+        
+        // Em vez de usar o Builder, crie uma instância diretamente
         Cupom cupom = new Cupom();
         cupom.setChaveAcesso(chaveAcesso);
         cupom.setNumeroCfe(numeroCfe);
@@ -105,128 +233,130 @@ public class ProcessadorXmlService {
         cupom.setValorTotalPis(valorTotalPis);
         cupom.setValorTotalCofins(valorTotalCofins);
         cupom.setValorTotalOutros(valorTotalOutros);
+    
         
+        // Processa os itens
+        NodeList detList = infCFe.getElementsByTagName("det");
+        for (int i = 0; i < detList.getLength(); i++) {
+            Element det = (Element) detList.item(i);
+            int numeroSequencial = Integer.parseInt(det.getAttribute("nItem"));
+            
+            Element prod = (Element) det.getElementsByTagName("prod").item(0);
+            String codigo = getElementTextContent(prod, "cProd");
+            String descricao = getElementTextContent(prod, "xProd");
+            String ncm = textosInternados.internar(getElementTextContent(prod, "NCM"));
+            String cfop = textosInternados.internar(getElementTextContent(prod, "CFOP"));
+            String unidadeMedida = textosInternados.internar(getElementTextContent(prod, "uCom"));
+            // BigDecimal quantidade = new BigDecimal(getElementTextContent(prod, "qCom"));
+            BigDecimal quantidade = new BigDecimal(getElementTextContent(prod, "qCom", "0.00"));
+            BigDecimal valorUnitario = new BigDecimal(getElementTextContent(prod, "vUnCom"));
+            BigDecimal valorTotal = new BigDecimal(getElementTextContent(prod, "vProd"));
+            BigDecimal valorDesconto = new BigDecimal(getElementTextContent(prod, "vDesc", "0.00"));
+            
+            Element imposto = (Element) det.getElementsByTagName("imposto").item(0);
+            
+            // ICMS
+            String cst = "";
+            BigDecimal aliquotaIcms = BigDecimal.ZERO;
+            BigDecimal valorIcms = BigDecimal.ZERO;
             
-            // Processa os itens
-            NodeList detList = infCFe.getElementsByTagName("det");
-            for (int i = 0; i < detList.getLength(); i++) {
-                Element det = (Element) detList.item(i);
-                int numeroSequencial = Integer.parseInt(det.getAttribute("nItem"));
-                
-                Element prod = (Element) det.getElementsByTagName("prod").item(0);
-                String codigo = getElementTextContent(prod, "cProd");
-                String descricao = getElementTextContent(prod, "xProd");
-                String ncm = getElementTextContent(prod, "NCM");
-                String cfop = getElementTextContent(prod, "CFOP");
-                String unidadeMedida = getElementTextContent(prod, "uCom");
-                // BigDecimal quantidade = new BigDecimal(getElementTextContent(prod, "qCom"));
-                BigDecimal quantidade = new BigDecimal(getElementTextContent(prod, "qCom", "0.00"));
-                BigDecimal valorUnitario = new BigDecimal(getElementTextContent(prod, "vUnCom"));
-                BigDecimal valorTotal = new BigDecimal(getElementTextContent(prod, "vProd"));
-                BigDecimal valorDesconto = new BigDecimal(getElementTextContent(prod, "vDesc", "0.00"));
-                
-                Element imposto = (Element) det.getElementsByTagName("imposto").item(0);
-                
-                // ICMS
-                String cst = "";
-                BigDecimal aliquotaIcms = BigDecimal.ZERO;
-                BigDecimal valorIcms = BigDecimal.ZERO;
-                
-                NodeList icmsList = imposto.getElementsByTagName("ICMS");
-                if (icmsList.getLength() > 0) {
-                    Element icms = (Element) icmsList.item(0);
-                    NodeList icmsChildren = icms.getChildNodes();
-                    for (int j = 0; j < icmsChildren.getLength(); j++) {
-                        if (icmsChildren.item(j).getNodeType() == org.w3c.dom.Node.ELEMENT_NODE) {
-                            Element icmsType = (Element) icmsChildren.item(j);
-                            try {
-                                cst = getElementTextContent(icmsType, "CST", "");
-                            } catch (Exception e) {
-                                log.warn("CST não encontrado para o item {}", numeroSequencial);
-                            }
-                            try {
-                                aliquotaIcms = new BigDecimal(getElementTextContent(icmsType, "pICMS", "0.00"));
-                            } catch (Exception e) {
-                                log.warn("pICMS não encontrado para o item {}", numeroSequencial);
-                            }
-                            try {
-                                valorIcms = new BigDecimal(getElementTextContent(icmsType, "vICMS", "0.00"));
-                            } catch (Exception e) {
-                                log.warn("vICMS não encontrado para o item {}", numeroSequencial);
-                            }
-                            break;
+            NodeList icmsList = imposto.getElementsByTagName("ICMS");
+            if (icmsList.getLength() > 0) {
+                Element icms = (Element) icmsList.item(0);
+                NodeList icmsChildren = icms.getChildNodes();
+                for (int j = 0; j < icmsChildren.getLength(); j++) {
+                    if (icmsChildren.item(j).getNodeType() == org.w3c.dom.Node.ELEMENT_NODE) {
+                        Element icmsType = (Element) icmsChildren.item(j);
+                        try {
+                            cst = textosInternados.internar(getElementTextContent(icmsType, "CST", ""));
+                        } catch (Exception e) {
+                            log.warn("CST não encontrado para o item {}", numeroSequencial);
                         }
+                        try {
+                            aliquotaIcms = new BigDecimal(getElementTextContent(icmsType, "pICMS", "0.00"));
+                        } catch (Exception e) {
+                            log.warn("pICMS não encontrado para o item {}", numeroSequencial);
+                        }
+                        try {
+                            valorIcms = new BigDecimal(getElementTextContent(icmsType, "vICMS", "0.00"));
+                        } catch (Exception e) {
+                            log.warn("vICMS não encontrado para o item {}", numeroSequencial);
+                        }
+                        break;
                     }
                 }
-                    // PIS
-                BigDecimal basePis = BigDecimal.ZERO;
-                BigDecimal aliquotaPis = BigDecimal.ZERO;
-                BigDecimal valorPis = BigDecimal.ZERO;
-                
-                NodeList pisList = imposto.getElementsByTagName("PIS");
-                if (pisList.getLength() > 0) {
-                    Element pis = (Element) pisList.item(0);
-                    NodeList pisChildren = pis.getChildNodes();
-                    for (int j = 0; j < pisChildren.getLength(); j++) {
-                        if (pisChildren.item(j).getNodeType() == org.w3c.dom.Node.ELEMENT_NODE) {
-                            Element pisType = (Element) pisChildren.item(j);
-                            basePis = new BigDecimal(getElementTextContent(pisType, "vBC", "0.00"));
-                            aliquotaPis = new BigDecimal(getElementTextContent(pisType, "pPIS", "0.00"));
-                            valorPis = new BigDecimal(getElementTextContent(pisType, "vPIS", "0.00"));
-                            break;
-                        }
+            }
+                // PIS
+            BigDecimal basePis = BigDecimal.ZERO;
+            BigDecimal aliquotaPis = BigDecimal.ZERO;
+            BigDecimal valorPis = BigDecimal.ZERO;
+            
+            NodeList pisList = imposto.getElementsByTagName("PIS");
+            if (pisList.getLength() > 0) {
+                Element pis = (Element) pisList.item(0);
+                NodeList pisChildren = pis.getChildNodes();
+                for (int j = 0; j < pisChildren.getLength(); j++) {
+                    if (pisChildren.item(j).getNodeType() == org.w3c.dom.Node.ELEMENT_NODE) {
+                        Element pisType = (Element) pisChildren.item(j);
+                        basePis = new BigDecimal(getElementTextContent(pisType, "vBC", "0.00"));
+                        aliquotaPis = new BigDecimal(getElementTextContent(pisType, "pPIS", "0.00"));
+                        valorPis = new BigDecimal(getElementTextContent(pisType, "vPIS", "0.00"));
+                        break;
                     }
                 }
-                
-                // COFINS
-                BigDecimal baseCofins = BigDecimal.ZERO;
-                BigDecimal aliquotaCofins = BigDecimal.ZERO;
-                BigDecimal valorCofins = BigDecimal.ZERO;
-                
-                NodeList cofinsList = imposto.getElementsByTagName("COFINS");
-                if (cofinsList.getLength() > 0) {
-                    Element cofins = (Element) cofinsList.item(0);
-                    NodeList cofinsChildren = cofins.getChildNodes();
-                    for (int j = 0; j < cofinsChildren.getLength(); j++) {
-                        if (cofinsChildren.item(j).getNodeType() == org.w3c.dom.Node.ELEMENT_NODE) {
-                            Element cofinsType = (Element) cofinsChildren.item(j);
-                            baseCofins = new BigDecimal(getElementTextContent(cofinsType, "vBC", "0.00"));
-                            aliquotaCofins = new BigDecimal(getElementTextContent(cofinsType, "pCOFINS", "0.00"));
-                            valorCofins = new BigDecimal(getElementTextContent(cofinsType, "vCOFINS", "0.00"));
-                            break;
-                        }
+            }
+            
+            // COFINS
+            BigDecimal baseCofins = BigDecimal.ZERO;
+            BigDecimal aliquotaCofins = BigDecimal.ZERO;
+            BigDecimal valorCofins = BigDecimal.ZERO;
+            
+            NodeList cofinsList = imposto.getElementsByTagName("COFINS");
+            if (cofinsList.getLength() > 0) {
+                Element cofins = (Element) cofinsList.item(0);
+                NodeList cofinsChildren = cofins.getChildNodes();
+                for (int j = 0; j < cofinsChildren.getLength(); j++) {
+                    if (cofinsChildren.item(j).getNodeType() == org.w3c.dom.Node.ELEMENT_NODE) {
+                        Element cofinsType = (Element) cofinsChildren.item(j);
+                        baseCofins = new BigDecimal(getElementTextContent(cofinsType, "vBC", "0.00"));
+                        aliquotaCofins = new BigDecimal(getElementTextContent(cofinsType, "pCOFINS", "0.00"));
+                        valorCofins = new BigDecimal(getElementTextContent(cofinsType, "vCOFINS", "0.00"));
+                        break;
                     }
                 }
-                
-                Item item = Item.builder()
-                        .codigo(codigo)
-                        .descricao(descricao)
-                        .quantidade(quantidade)
-                        .cfop(cfop)
-                        .valorUnitario(valorUnitario)
-                        .valorTotal(valorTotal)
-                        .valorDesconto(valorDesconto)
-                        .cst(cst)
-                        .aliquotaIcms(aliquotaIcms)
-                        .valorIcms(valorIcms)
-                        .basePis(basePis)
-                        .aliquotaPis(aliquotaPis)
-                        .valorPis(valorPis)
-                        .baseCofins(baseCofins)
-                        .aliquotaCofins(aliquotaCofins)
-                        .valorCofins(valorCofins)
-                        .unidadeMedida(unidadeMedida)
-                        .ncm(ncm)
-                        .numeroSequencial(numeroSequencial)
-                        .build();
-                
-                cupom.adicionarItem(item);
             }
             
-            return cupom;
-        } catch (Exception e) {
-            throw new ProcessamentoException("Erro ao processar XML: " + e.getMessage(), e);
+            Item item = Item.builder()
+                    .produto(Produto.builder().codigo(codigo).descricao(descricao).build())
+                    .quantidade(quantidade)
+                    .cfop(cfop)
+                    .valorUnitario(valorUnitario)
+                    .valorTotal(valorTotal)
+                    .valorDesconto(valorDesconto)
+                    .cst(cst)
+                    .aliquotaIcms(aliquotaIcms)
+                    .valorIcms(valorIcms)
+                    .basePis(basePis)
+                    .aliquotaPis(aliquotaPis)
+                    .valorPis(valorPis)
+                    .baseCofins(baseCofins)
+                    .aliquotaCofins(aliquotaCofins)
+                    .valorCofins(valorCofins)
+                    .unidadeMedida(unidadeMedida)
+                    .ncm(ncm)
+                    .numeroSequencial(numeroSequencial)
+                    .build();
+            
+            cupom.adicionarItem(item);
         }
+        
+        return cupom;
+    }
+
+    private Document parseDom(InputSource origem) throws Exception {
+        DocumentBuilder builder = DOCUMENT_BUILDER.get();
+        builder.reset();
+        return builder.parse(origem);
     }
     
     private String getElementTextContent(Element parent, String tagName) {
@@ -245,14 +375,32 @@ public class ProcessadorXmlService {
         return defaultValue;
     }
     
-        /**
-     * Valida se o XML está bem formado antes de processá-lo
+    /**
+     * Valida o XML contra o schema do CF-e SAT ({@link EsquemaCfe}) antes de processá-lo, em streaming.
+     * Segue app.xml.validacao-xsd.modo como a extração StAX: documento fora da amostra passa sem ser lido
      */
     public boolean validarXml(String conteudoXml) {
+        if (!esquemaCfe.sortear()) {
+            return true;
+        }
+        try {
+            esquemaCfe.validar(new StreamSource(new StringReader(conteudoXml)));
+            return true;
+        } catch (Exception e) {
+            log.warn("XML inválido: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Valida o XML contra o schema, lendo direto dos bytes
+     */
+    public boolean validarXml(InputStream conteudoXml) {
+        if (!esquemaCfe.sortear()) {
+            return true;
+        }
         try {
-            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-            DocumentBuilder builder = factory.newDocumentBuilder();
-            builder.parse(new InputSource(new StringReader(conteudoXml)));
+            esquemaCfe.validar(conteudoXml);
             return true;
         } catch (Exception e) {
             log.warn("XML inválido: {}", e.getMessage());
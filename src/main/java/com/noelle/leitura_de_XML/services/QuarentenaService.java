@@ -0,0 +1,182 @@
+package com.noelle.leitura_de_XML.services;
+
+import com.noelle.leitura_de_XML.domain.XmlErro;
+import com.noelle.leitura_de_XML.repository.XmlErroRepository;
+import com.noelle.leitura_de_XML.services.MetricasIngestao.Desfecho;
+import com.noelle.leitura_de_XML.xml.XmlEntrada;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+
+/**
+ * Guarda em xml_erro os documentos que falharam na ingestão, para reprocessá-los depois sem
+ * reenviar o ZIP inteiro.
+ * <p>
+ * Os workers só copiam os bytes e enfileiram; uma thread própria compacta e grava em lotes, então
+ * a ingestão nunca espera pelo banco. A fila é limitada em bytes (app.quarentena.fila-max-bytes):
+ * se o banco ficar para trás, os documentos que não couberem são descartados e contados em
+ * ingestao.quarentena.descartados, em vez de segurar a ingestão ou estourar o heap.
+ */
+@Service
+@Slf4j
+public class QuarentenaService {
+
+    private static final int TAMANHO_MENSAGEM = 2000;
+
+    private final XmlErroRepository xmlErroRepository;
+    private final long maximoBytesFila;
+    private final int tamanhoLote;
+    private final BlockingQueue<Pendente> fila = new LinkedBlockingQueue<>();
+    private final AtomicLong bytesNaFila = new AtomicLong();
+    private final Counter gravados;
+    private final Counter descartados;
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private final byte[] bufferCompactacao = new byte[16 * 1024];
+
+    private volatile boolean ativo = true;
+    private Thread gravador;
+
+    public QuarentenaService(XmlErroRepository xmlErroRepository,
+                             MeterRegistry meterRegistry,
+                             @Value("${app.quarentena.fila-max-bytes:67108864}") long maximoBytesFila,
+                             @Value("${app.quarentena.tamanho-lote:200}") int tamanhoLote) {
+        this.xmlErroRepository = xmlErroRepository;
+        this.maximoBytesFila = maximoBytesFila;
+        this.tamanhoLote = tamanhoLote;
+        this.gravados = Counter.builder("ingestao.quarentena.gravados")
+                .description("Documentos com falha gravados em xml_erro")
+                .register(meterRegistry);
+        this.descartados = Counter.builder("ingestao.quarentena.descartados")
+                .description("Documentos com falha que não entraram na quarentena (fila cheia ou erro ao gravar)")
+                .register(meterRegistry);
+        Gauge.builder("ingestao.quarentena.fila", fila, BlockingQueue::size)
+                .description("Documentos aguardando gravação na quarentena")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void iniciar() {
+        gravador = Thread.ofPlatform()
+                .name("quarentena-gravador")
+                .daemon()
+                .start(this::gravarContinuamente);
+    }
+
+    /**
+     * Enfileira uma cópia do XML; nunca bloqueia. Chamado pelos workers antes de devolver o buffer ao pool.
+     */
+    public void colocar(XmlEntrada xml, String mensagem, Desfecho desfecho) {
+        int tamanho = xml.getTamanho();
+        if (bytesNaFila.addAndGet(tamanho) > maximoBytesFila) {
+            bytesNaFila.addAndGet(-tamanho);
+            descartados.increment();
+            log.warn("Fila da quarentena cheia, XML {} não será guardado", xml.getNome());
+            return;
+        }
+        fila.add(new Pendente(xml.getNome(), Arrays.copyOf(xml.getConteudo(), tamanho), mensagem,
+                desfecho.name().toLowerCase(), LocalDateTime.now()));
+    }
+
+    public long contarPendentes() {
+        return xmlErroRepository.contarPendentes();
+    }
+
+    /**
+     * Registros mais recentes da quarentena, sem o conteúdo
+     */
+    public List<XmlErro> listarRecentes(int limite) {
+        return xmlErroRepository.listarRecentes(limite);
+    }
+
+    @PreDestroy
+    void encerrar() throws InterruptedException {
+        ativo = false;
+        if (gravador != null) {
+            gravador.join(TimeUnit.SECONDS.toMillis(10));
+        }
+        if (gravador == null || !gravador.isAlive()) {
+            deflater.end();
+        }
+    }
+
+    private void gravarContinuamente() {
+        List<Pendente> lote = new ArrayList<>(tamanhoLote);
+        while (ativo || !fila.isEmpty()) {
+            try {
+                Pendente primeiro = fila.poll(500, TimeUnit.MILLISECONDS);
+                if (primeiro == null) {
+                    continue;
+                }
+                lote.add(primeiro);
+                fila.drainTo(lote, tamanhoLote - 1);
+                gravar(lote);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                descartados.increment(lote.size());
+                log.error("Erro ao gravar {} XMLs na quarentena: {}", lote.size(), e.getMessage(), e);
+            } finally {
+                for (Pendente pendente : lote) {
+                    bytesNaFila.addAndGet(-pendente.conteudo().length);
+                }
+                lote.clear();
+            }
+        }
+    }
+
+    private void gravar(List<Pendente> lote) {
+        List<XmlErro> erros = new ArrayList<>(lote.size());
+        for (Pendente pendente : lote) {
+            erros.add(XmlErro.builder()
+                    .conteudoCompactado(compactar(pendente.conteudo()))
+                    .tamanhoOriginal(pendente.conteudo().length)
+                    .nomeArquivo(pendente.nome())
+                    .tipo(pendente.tipo())
+                    .mensagemErro(limitar(pendente.mensagem()))
+                    .dataErro(pendente.dataErro())
+                    .build());
+        }
+        xmlErroRepository.inserirEmLote(erros);
+        gravados.increment(erros.size());
+        log.debug("{} XMLs gravados na quarentena", erros.size());
+    }
+
+    private byte[] compactar(byte[] conteudo) {
+        deflater.reset();
+        deflater.setInput(conteudo);
+        deflater.finish();
+        ByteArrayOutputStream saida = new ByteArrayOutputStream(conteudo.length / 4 + 64);
+        while (!deflater.finished()) {
+            int gerados = deflater.deflate(bufferCompactacao);
+            saida.write(bufferCompactacao, 0, gerados);
+        }
+        return saida.toByteArray();
+    }
+
+    private static String limitar(String mensagem) {
+        if (mensagem == null || mensagem.length() <= TAMANHO_MENSAGEM) {
+            return mensagem;
+        }
+        return mensagem.substring(0, TAMANHO_MENSAGEM);
+    }
+
+    private record Pendente(String nome, byte[] conteudo, String mensagem, String tipo, LocalDateTime dataErro) {
+    }
+}
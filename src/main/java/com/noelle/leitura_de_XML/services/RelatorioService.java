@@ -0,0 +1,45 @@
+package com.noelle.leitura_de_XML.services;
+
+import com.noelle.leitura_de_XML.domain.DimensaoItem;
+import com.noelle.leitura_de_XML.dto.ResumoDiarioDTO;
+import com.noelle.leitura_de_XML.dto.ResumoItemDTO;
+import com.noelle.leitura_de_XML.repository.ResumoRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Relatórios fiscais lidos das tabelas de totais, com custo proporcional ao número de grupos
+ * (dias, CFOPs, NCMs, CSTs) e não ao de cupons ou itens
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RelatorioService {
+
+    private final ResumoRepository resumoRepository;
+
+    @Transactional(readOnly = true)
+    public List<ResumoDiarioDTO> totaisPorDia(LocalDate de, LocalDate ate) {
+        return resumoRepository.listarDiario(de, ate);
+    }
+
+    @Transactional(readOnly = true)
+    public List<ResumoItemDTO> totaisDeItens(DimensaoItem dimensao) {
+        return resumoRepository.listarPorDimensao(dimensao);
+    }
+
+    /**
+     * Recalcula os totais a partir das tabelas cupom e item, sem os cupons cancelados (backfill ou correção)
+     */
+    @Transactional
+    public void reconstruir() {
+        long inicio = System.currentTimeMillis();
+        resumoRepository.reconstruir();
+        log.info("Tabelas de resumo reconstruídas em {} ms", System.currentTimeMillis() - inicio);
+    }
+}
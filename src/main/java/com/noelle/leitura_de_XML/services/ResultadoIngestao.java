@@ -0,0 +1,95 @@
+package com.noelle.leitura_de_XML.services;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Contagem do processamento de um ZIP. Atualizada apenas pela thread que persiste os lotes;
+ * os contadores são voláteis para que o andamento possa ser lido por outras threads.
+ */
+@Getter
+public class ResultadoIngestao {
+
+    private volatile int total;
+    private volatile int processados;
+    private volatile int duplicados;
+    private volatile int falhas;
+    /** CFeCanc aplicados aos cupons que cancelam; não entram em falhas */
+    private volatile int cancelamentos;
+    /** Falhas inesperadas (não de layout nem cancelamento), já incluídas em falhas */
+    private volatile int erros;
+
+    @Getter(AccessLevel.NONE)
+    private Set<String> nomesComFalha;
+
+    void registrarEntrada() {
+        total++;
+    }
+
+    void registrarProcessado() {
+        processados++;
+    }
+
+    void registrarDuplicado() {
+        duplicados++;
+    }
+
+    void registrarCancelamento() {
+        cancelamentos++;
+    }
+
+    void registrarFalha(String nome) {
+        falhas++;
+        anotarFalha(nome);
+    }
+
+    void registrarErro(String nome) {
+        falhas++;
+        erros++;
+        anotarFalha(nome);
+    }
+
+    /**
+     * Passa a guardar o nome de cada documento com falha, para quem precisa saber quais foram
+     * (a ingestão de diretório, que move cada arquivo para processados ou erros)
+     */
+    void rastrearFalhas() {
+        nomesComFalha = new HashSet<>();
+    }
+
+    /**
+     * Indica se o documento falhou; só responde depois de rastrearFalhas()
+     */
+    boolean falhou(String nome) {
+        return nomesComFalha != null && nomesComFalha.contains(nome);
+    }
+
+    /**
+     * Esquece os nomes já consultados, para que o conjunto não cresça com o diretório inteiro
+     */
+    void limparFalhas() {
+        if (nomesComFalha != null) {
+            nomesComFalha.clear();
+        }
+    }
+
+    private void anotarFalha(String nome) {
+        if (nomesComFalha != null && nome != null) {
+            nomesComFalha.add(nome);
+        }
+    }
+
+    /**
+     * Preenche com as contagens de um ZIP idêntico já processado: o que foi gravado antes agora é duplicado
+     */
+    void registrarArquivoConhecido(int total, int gravadosAntes, int falhas) {
+        this.total = total;
+        this.duplicados = gravadosAntes;
+        this.falhas = falhas;
+        // Só ZIPs sem falhas são registrados, então o que sobra são os cancelamentos
+        this.cancelamentos = Math.max(0, total - gravadosAntes - falhas);
+    }
+}
@@ -0,0 +1,22 @@
+package com.noelle.leitura_de_XML.services;
+
+import com.noelle.leitura_de_XML.domain.Cupom;
+import com.noelle.leitura_de_XML.xml.CancelamentoCfe;
+
+/**
+ * Desfecho de um XML avulso: o cupom gravado ou, para um CFeCanc, o cancelamento aplicado
+ */
+public record XmlProcessado(Cupom cupom, CancelamentoCfe cancelamento) {
+
+    static XmlProcessado deCupom(Cupom cupom) {
+        return new XmlProcessado(cupom, null);
+    }
+
+    static XmlProcessado deCancelamento(CancelamentoCfe cancelamento) {
+        return new XmlProcessado(null, cancelamento);
+    }
+
+    public boolean isCancelamento() {
+        return cancelamento != null;
+    }
+}
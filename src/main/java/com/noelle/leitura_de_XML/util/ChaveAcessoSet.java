@@ -0,0 +1,146 @@
+package com.noelle.leitura_de_XML.util;
+
+/**
+ * Conjunto de chaves de acesso guardadas como pares de long, em endereçamento aberto.
+ * <p>
+ * Os 44 dígitos precisam de ~147 bits, então não cabem inteiros em 128: os 38 primeiros dígitos
+ * são empacotados sem perda (19 em cada long, sem sinal) e os 6 últimos (parte do cNF e o dígito
+ * verificador) são misturados no segundo long. Por isso o conjunto só responde com certeza o
+ * "não contém"; um "contém" precisa ser confirmado por quem usa.
+ * <p>
+ * Não é thread-safe.
+ */
+public class ChaveAcessoSet {
+
+    private static final int TAMANHO_CHAVE = 44;
+    private static final int DIGITOS_POR_LONG = 19;
+    private static final float CARGA_MAXIMA = 0.6f;
+
+    private long[] altos;
+    private long[] baixos;
+    private int mascara;
+    private int tamanho;
+
+    public ChaveAcessoSet(int capacidadeEsperada) {
+        int slots = Integer.highestOneBit(Math.max(16, (int) (capacidadeEsperada / CARGA_MAXIMA)) - 1) << 1;
+        altos = new long[slots];
+        baixos = new long[slots];
+        mascara = slots - 1;
+    }
+
+    /**
+     * Indica se a chave tem o formato esperado (44 dígitos) e pode ser guardada no conjunto
+     */
+    public static boolean empacotavel(String chave) {
+        if (chave == null || chave.length() != TAMANHO_CHAVE) {
+            return false;
+        }
+        for (int i = 0; i < TAMANHO_CHAVE; i++) {
+            char c = chave.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Adiciona a chave; retorna false se ela (ou outra com a mesma impressão) já estava lá
+     */
+    public boolean adicionar(String chave) {
+        long alto = digitos(chave, 0);
+        long baixo = baixo(chave);
+        if (tamanho + 1 > (altos.length * CARGA_MAXIMA)) {
+            redimensionar();
+        }
+        return inserir(altos, baixos, mascara, alto, baixo);
+    }
+
+    public boolean contem(String chave) {
+        long alto = digitos(chave, 0);
+        long baixo = baixo(chave);
+        int slot = slot(alto, baixo, mascara);
+        while (altos[slot] != 0 || baixos[slot] != 0) {
+            if (altos[slot] == alto && baixos[slot] == baixo) {
+                return true;
+            }
+            slot = (slot + 1) & mascara;
+        }
+        return false;
+    }
+
+    public int tamanho() {
+        return tamanho;
+    }
+
+    /**
+     * Memória ocupada pelos dois arrays
+     */
+    public long bytesOcupados() {
+        return 2L * Long.BYTES * altos.length;
+    }
+
+    private boolean inserir(long[] destinoAltos, long[] destinoBaixos, int destinoMascara, long alto, long baixo) {
+        int slot = slot(alto, baixo, destinoMascara);
+        while (destinoAltos[slot] != 0 || destinoBaixos[slot] != 0) {
+            if (destinoAltos[slot] == alto && destinoBaixos[slot] == baixo) {
+                return false;
+            }
+            slot = (slot + 1) & destinoMascara;
+        }
+        destinoAltos[slot] = alto;
+        destinoBaixos[slot] = baixo;
+        tamanho++;
+        return true;
+    }
+
+    private void redimensionar() {
+        long[] antigosAltos = altos;
+        long[] antigosBaixos = baixos;
+        int slots = antigosAltos.length << 1;
+        altos = new long[slots];
+        baixos = new long[slots];
+        mascara = slots - 1;
+        tamanho = 0;
+        for (int i = 0; i < antigosAltos.length; i++) {
+            if (antigosAltos[i] != 0 || antigosBaixos[i] != 0) {
+                inserir(altos, baixos, mascara, antigosAltos[i], antigosBaixos[i]);
+            }
+        }
+    }
+
+    private static long baixo(String chave) {
+        long baixo = digitos(chave, DIGITOS_POR_LONG);
+        long resto = 0;
+        for (int i = 2 * DIGITOS_POR_LONG; i < TAMANHO_CHAVE; i++) {
+            resto = resto * 10 + (chave.charAt(i) - '0');
+        }
+        baixo ^= misturar(resto + 1);
+        // (0, 0) marca slot vazio
+        return baixo == 0 ? 1 : baixo;
+    }
+
+    /**
+     * 19 dígitos decimais a partir de inicio, como long sem sinal (cabem em 64 bits)
+     */
+    private static long digitos(String chave, int inicio) {
+        long valor = 0;
+        for (int i = inicio; i < inicio + DIGITOS_POR_LONG; i++) {
+            valor = valor * 10 + (chave.charAt(i) - '0');
+        }
+        return valor;
+    }
+
+    private static int slot(long alto, long baixo, int mascara) {
+        return (int) misturar(alto * 0x9E3779B97F4A7C15L ^ baixo) & mascara;
+    }
+
+    private static long misturar(long valor) {
+        valor ^= valor >>> 33;
+        valor *= 0xFF51AFD7ED558CCDL;
+        valor ^= valor >>> 33;
+        valor *= 0xC4CEB9FE1A85EC53L;
+        valor ^= valor >>> 33;
+        return valor;
+    }
+}
@@ -0,0 +1,107 @@
+package com.noelle.leitura_de_XML.util;
+
+/**
+ * Mapa de {@link HashConteudo} para um código de 1 byte, em endereçamento aberto sobre três arrays
+ * (~28 bytes por entrada com a carga máxima). O código 0 é reservado para slot vazio.
+ * <p>
+ * Não é thread-safe.
+ */
+public class MapaHashConteudo {
+
+    private static final float CARGA_MAXIMA = 0.6f;
+
+    private long[] altos;
+    private long[] baixos;
+    private byte[] codigos;
+    private int mascara;
+    private int tamanho;
+
+    public MapaHashConteudo(int capacidadeEsperada) {
+        int slots = Integer.highestOneBit(Math.max(16, (int) (capacidadeEsperada / CARGA_MAXIMA)) - 1) << 1;
+        altos = new long[slots];
+        baixos = new long[slots];
+        codigos = new byte[slots];
+        mascara = slots - 1;
+    }
+
+    /**
+     * Código associado ao hash, ou 0 se ele não está no mapa
+     */
+    public byte buscar(HashConteudo hash) {
+        int slot = slot(hash.alto(), hash.baixo(), mascara);
+        while (codigos[slot] != 0) {
+            if (altos[slot] == hash.alto() && baixos[slot] == hash.baixo()) {
+                return codigos[slot];
+            }
+            slot = (slot + 1) & mascara;
+        }
+        return 0;
+    }
+
+    /**
+     * Associa o código ao hash; com substituir = false, mantém o código de um hash que já está no mapa
+     */
+    public void colocar(HashConteudo hash, byte codigo, boolean substituir) {
+        if (codigo == 0) {
+            throw new IllegalArgumentException("O código 0 marca slot vazio");
+        }
+        if (tamanho + 1 > codigos.length * CARGA_MAXIMA) {
+            redimensionar();
+        }
+        inserir(altos, baixos, codigos, mascara, hash.alto(), hash.baixo(), codigo, substituir);
+    }
+
+    public int tamanho() {
+        return tamanho;
+    }
+
+    /**
+     * Memória ocupada pelos três arrays
+     */
+    public long bytesOcupados() {
+        return (2L * Long.BYTES + 1) * codigos.length;
+    }
+
+    private void inserir(long[] destinoAltos, long[] destinoBaixos, byte[] destinoCodigos, int destinoMascara,
+                         long alto, long baixo, byte codigo, boolean substituir) {
+        int slot = slot(alto, baixo, destinoMascara);
+        while (destinoCodigos[slot] != 0) {
+            if (destinoAltos[slot] == alto && destinoBaixos[slot] == baixo) {
+                if (substituir) {
+                    destinoCodigos[slot] = codigo;
+                }
+                return;
+            }
+            slot = (slot + 1) & destinoMascara;
+        }
+        destinoAltos[slot] = alto;
+        destinoBaixos[slot] = baixo;
+        destinoCodigos[slot] = codigo;
+        tamanho++;
+    }
+
+    private void redimensionar() {
+        long[] antigosAltos = altos;
+        long[] antigosBaixos = baixos;
+        byte[] antigosCodigos = codigos;
+        int slots = antigosCodigos.length << 1;
+        altos = new long[slots];
+        baixos = new long[slots];
+        codigos = new byte[slots];
+        mascara = slots - 1;
+        tamanho = 0;
+        for (int i = 0; i < antigosCodigos.length; i++) {
+            if (antigosCodigos[i] != 0) {
+                inserir(altos, baixos, codigos, mascara, antigosAltos[i], antigosBaixos[i], antigosCodigos[i], true);
+            }
+        }
+    }
+
+    /**
+     * Os bits do SHA-256 já são uniformes, basta dobrar os dois longs
+     */
+    private static int slot(long alto, long baixo, int mascara) {
+        long valor = alto ^ baixo;
+        return (int) (valor ^ (valor >>> 32)) & mascara;
+    }
+}
@@ -0,0 +1,44 @@
+package com.noelle.leitura_de_XML.util;
+
+import com.noelle.leitura_de_XML.exception.ProcessamentoException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Token opaco de continuação das listagens paginadas por keyset: a ordenação e os valores
+ * da última linha entregue, serializados em Base64 URL-safe.
+ */
+public final class TokenPaginacao {
+
+    private static final String SEPARADOR = "\u001F";
+
+    private TokenPaginacao() {
+    }
+
+    /**
+     * Gera o token a partir da ordenação e das chaves da última linha da página
+     */
+    public static String gerar(String ordenacao, String... chaves) {
+        String conteudo = ordenacao + SEPARADOR + String.join(SEPARADOR, chaves);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(conteudo.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Lê as chaves de um token gerado para a ordenação informada
+     */
+    public static String[] ler(String token, String ordenacao, int quantidadeChaves) {
+        String[] partes;
+        try {
+            partes = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split(SEPARADOR, -1);
+        } catch (IllegalArgumentException e) {
+            throw new ProcessamentoException("Token de paginação inválido");
+        }
+        if (partes.length != quantidadeChaves + 1 || !partes[0].equals(ordenacao)) {
+            throw new ProcessamentoException("Token de paginação inválido para esta listagem");
+        }
+        String[] chaves = new String[quantidadeChaves];
+        System.arraycopy(partes, 1, chaves, 0, quantidadeChaves);
+        return chaves;
+    }
+}
@@ -0,0 +1,62 @@
+package com.noelle.leitura_de_XML.xml;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * ZIP em disco com acesso aleatório às entradas. A lista de XMLs vem do diretório central,
+ * e cada entrada é descompactada sob demanda, então várias threads podem ler entradas
+ * diferentes ao mesmo tempo sem que o arquivo inteiro passe pelo heap.
+ */
+public class ArquivoZipXml implements AutoCloseable {
+
+    private final ZipFile zipFile;
+    private final BufferPool bufferPool;
+    private final int tamanhoMaximo;
+
+    public ArquivoZipXml(Path arquivoZip, BufferPool bufferPool, int tamanhoMaximo) throws IOException {
+        this.zipFile = new ZipFile(arquivoZip.toFile());
+        this.bufferPool = bufferPool;
+        this.tamanhoMaximo = tamanhoMaximo;
+    }
+
+    /**
+     * Entradas .xml do ZIP, na ordem do diretório central
+     */
+    public List<ZipEntry> entradas() {
+        return zipFile.stream()
+                .filter(entry -> !entry.isDirectory() && entry.getName().endsWith(".xml"))
+                .map(ZipEntry.class::cast)
+                .toList();
+    }
+
+    /**
+     * Descompacta uma entrada para um buffer do pool. Pode ser chamado por várias threads.
+     * Acima de tamanhoMaximo lança XmlGrandeDemaisException.
+     */
+    public XmlEntrada ler(ZipEntry entry) throws IOException {
+        try (InputStream conteudo = zipFile.getInputStream(entry)) {
+            return XmlEntrada.ler(entry.getName(), entry.getSize(), conteudo, bufferPool, tamanhoMaximo);
+        }
+    }
+
+    /**
+     * Conta os XMLs de um ZIP em disco lendo só o diretório central, sem descompactar nada
+     */
+    public static int contarXmls(Path arquivoZip) throws IOException {
+        try (ZipFile zipFile = new ZipFile(arquivoZip.toFile())) {
+            return (int) zipFile.stream()
+                    .filter(entry -> !entry.isDirectory() && entry.getName().endsWith(".xml"))
+                    .count();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        zipFile.close();
+    }
+}
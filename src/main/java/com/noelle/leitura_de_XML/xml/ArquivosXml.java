@@ -0,0 +1,84 @@
+package com.noelle.leitura_de_XML.xml;
+
+import com.noelle.leitura_de_XML.exception.XmlGrandeDemaisException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Origem de XMLs avulsos em disco. Cada arquivo é lido por um FileChannel direto para um buffer do
+ * pool, do tamanho do arquivo, sem stream nem buffer intermediário. O nome de cada entrada é o
+ * caminho do arquivo. Arquivos que não puderem ser lidos, ou maiores que tamanhoMaximo, são pulados e
+ * ficam em {@link #getIlegiveis()}.
+ */
+@Slf4j
+public class ArquivosXml implements FonteXml {
+
+    private final Iterator<Path> arquivos;
+    private final BufferPool bufferPool;
+    private final int tamanhoMaximo;
+    private final Set<Path> ilegiveis = new HashSet<>();
+
+    public ArquivosXml(List<Path> arquivos, BufferPool bufferPool, int tamanhoMaximo) {
+        this.arquivos = arquivos.iterator();
+        this.bufferPool = bufferPool;
+        this.tamanhoMaximo = tamanhoMaximo;
+    }
+
+    @Override
+    public XmlEntrada proximo() {
+        while (arquivos.hasNext()) {
+            Path arquivo = arquivos.next();
+            try {
+                return ler(arquivo, bufferPool, tamanhoMaximo);
+            } catch (IOException e) {
+                log.warn("Não foi possível ler o arquivo {}: {}", arquivo, e.getMessage());
+                ilegiveis.add(arquivo);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Arquivos pulados por erro de leitura; completo depois que o pipeline termina
+     */
+    public Set<Path> getIlegiveis() {
+        return ilegiveis;
+    }
+
+    @Override
+    public void close() {
+        // Cada arquivo é fechado logo depois de lido
+    }
+
+    /**
+     * Lê o arquivo inteiro para um buffer do pool; acima de tamanhoMaximo lança XmlGrandeDemaisException
+     */
+    public static XmlEntrada ler(Path arquivo, BufferPool bufferPool, int tamanhoMaximo) throws IOException {
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            long tamanho = canal.size();
+            if (tamanho > tamanhoMaximo) {
+                throw new XmlGrandeDemaisException(arquivo.toString(), tamanho, tamanhoMaximo);
+            }
+            byte[] buffer = bufferPool.obter((int) tamanho);
+            try {
+                ByteBuffer destino = ByteBuffer.wrap(buffer, 0, (int) tamanho);
+                while (destino.hasRemaining() && canal.read(destino) >= 0) {
+                    // Um arquivo local normalmente vem inteiro na primeira leitura
+                }
+                return new XmlEntrada(arquivo.toString(), buffer, destino.position(), bufferPool);
+            } catch (IOException | RuntimeException e) {
+                bufferPool.devolver(buffer);
+                throw e;
+            }
+        }
+    }
+}
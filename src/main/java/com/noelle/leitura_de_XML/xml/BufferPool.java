@@ -0,0 +1,56 @@
+package com.noelle.leitura_de_XML.xml;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Pool de buffers de byte reaproveitados entre as entradas dos ZIPs.
+ * Só guarda uma quantidade limitada de buffers, e nenhum acima de TAMANHO_MAXIMO_RETIDO,
+ * para que um XML muito grande não fique preso no heap depois de processado.
+ */
+@Component
+public class BufferPool {
+
+    private static final int TAMANHO_MINIMO = 16 * 1024;
+    private static final int TAMANHO_MAXIMO_RETIDO = 4 * 1024 * 1024;
+    private static final int CAPACIDADE = 64;
+
+    private final BlockingQueue<byte[]> livres = new ArrayBlockingQueue<>(CAPACIDADE);
+
+    /**
+     * Retorna um buffer com pelo menos o tamanho pedido
+     */
+    public byte[] obter(int tamanhoMinimo) {
+        byte[] buffer = livres.poll();
+        if (buffer != null && buffer.length >= tamanhoMinimo) {
+            return buffer;
+        }
+        return new byte[arredondar(tamanhoMinimo)];
+    }
+
+    /**
+     * Copia o conteúdo para um buffer maior e devolve o antigo ao pool
+     */
+    public byte[] crescer(byte[] buffer, int usados) {
+        byte[] maior = obter(buffer.length + 1);
+        System.arraycopy(buffer, 0, maior, 0, usados);
+        devolver(buffer);
+        return maior;
+    }
+
+    public void devolver(byte[] buffer) {
+        if (buffer != null && buffer.length <= TAMANHO_MAXIMO_RETIDO) {
+            livres.offer(buffer);
+        }
+    }
+
+    private static int arredondar(int tamanho) {
+        if (tamanho <= TAMANHO_MINIMO) {
+            return TAMANHO_MINIMO;
+        }
+        int potencia = Integer.highestOneBit(tamanho - 1) << 1;
+        return potencia > 0 ? potencia : Integer.MAX_VALUE - 8;
+    }
+}
@@ -0,0 +1,10 @@
+package com.noelle.leitura_de_XML.xml;
+
+import java.time.LocalDate;
+
+/**
+ * Dados de um CFeCanc: a chave do próprio cancelamento, a chave do cupom cancelado (chCanc)
+ * e a data de emissão do cancelamento, quando presente
+ */
+public record CancelamentoCfe(String chaveAcesso, String chaveCupom, LocalDate dataEmissao) {
+}
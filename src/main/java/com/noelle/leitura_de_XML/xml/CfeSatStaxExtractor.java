@@ -0,0 +1,658 @@
+package com.noelle.leitura_de_XML.xml;
+
+import com.noelle.leitura_de_XML.domain.Cupom;
+import com.noelle.leitura_de_XML.domain.Item;
+import com.noelle.leitura_de_XML.domain.Produto;
+import com.noelle.leitura_de_XML.exception.CupomCanceladoException;
+import com.noelle.leitura_de_XML.exception.ProcessamentoException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.xml.sax.ContentHandler;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+
+/**
+ * Extrai o Cupom e seus Itens de um CF-e SAT em uma única passada StAX,
+ * sem montar a árvore DOM. A leitura vai até o fim do documento, então
+ * um XML mal formado (ou, com um validador, fora do schema) é rejeitado na mesma passada.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CfeSatStaxExtractor {
+
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    // Depois de configurada, a factory só cria readers e pode ser compartilhada entre threads
+    private static final XMLInputFactory INPUT_FACTORY = criarInputFactory();
+
+    private static final int SEM_TRIBUTO = 0;
+    private static final int ICMS = 1;
+    private static final int PIS = 2;
+    private static final int COFINS = 3;
+
+    // Posições dos valores decimais do ICMSTot
+    private static final int TOTAL_ICMS = 0;
+    private static final int TOTAL_PRODUTOS = 1;
+    private static final int TOTAL_DESCONTOS = 2;
+    private static final int TOTAL_PIS = 3;
+    private static final int TOTAL_COFINS = 4;
+    private static final int TOTAL_OUTROS = 5;
+    private static final int VALORES_TOTAIS = 6;
+
+    // Posições dos valores decimais de um det
+    private static final int QUANTIDADE = 0;
+    private static final int VALOR_UNITARIO = 1;
+    private static final int VALOR_TOTAL = 2;
+    private static final int VALOR_DESCONTO = 3;
+    private static final int ALIQUOTA_ICMS = 4;
+    private static final int VALOR_ICMS = 5;
+    private static final int BASE_PIS = 6;
+    private static final int ALIQUOTA_PIS = 7;
+    private static final int VALOR_PIS = 8;
+    private static final int BASE_COFINS = 9;
+    private static final int ALIQUOTA_COFINS = 10;
+    private static final int VALOR_COFINS = 11;
+    private static final int VALORES_ITEM = 12;
+
+    private final TextosInternados textosInternados;
+
+    private static XMLInputFactory criarInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        return factory;
+    }
+
+    /**
+     * Lê o documento inteiro e monta o Cupom com os mesmos valores do parser DOM
+     */
+    public Cupom extrair(Reader origem) throws XMLStreamException {
+        return extrair(INPUT_FACTORY.createXMLStreamReader(origem));
+    }
+
+    /**
+     * Igual a extrair(Reader), mas lendo os bytes direto; o encoding vem da declaração XML
+     */
+    public Cupom extrair(InputStream origem) throws XMLStreamException {
+        return extrair(INPUT_FACTORY.createXMLStreamReader(origem));
+    }
+
+    /**
+     * Como extrair(Reader), repassando cada evento ao validador, se houver (ver {@link EsquemaCfe}):
+     * o documento é validado contra o schema na mesma passada da extração
+     */
+    public Cupom extrair(Reader origem, ContentHandler validador) throws XMLStreamException {
+        return extrair(comValidacao(INPUT_FACTORY.createXMLStreamReader(origem), validador));
+    }
+
+    public Cupom extrair(InputStream origem, ContentHandler validador) throws XMLStreamException {
+        return extrair(comValidacao(INPUT_FACTORY.createXMLStreamReader(origem), validador));
+    }
+
+    private static XMLStreamReader comValidacao(XMLStreamReader reader, ContentHandler validador) throws XMLStreamException {
+        return validador != null ? new LeitorComValidacao(reader, validador) : reader;
+    }
+
+    /**
+     * Lê de um CFeCanc só as chaves (Id e chCanc do infCFe) e o dEmi, parando logo depois deles;
+     * o resto do documento (ide, emit, assinatura) não é percorrido
+     */
+    public CancelamentoCfe extrairCancelamento(InputStream origem) throws XMLStreamException {
+        XMLStreamReader reader = INPUT_FACTORY.createXMLStreamReader(origem);
+        try {
+            String id = null;
+            String chaveCupom = null;
+            String dataEmissao = null;
+            int profundidade = 0;
+            int infCFe = -1;
+            while (reader.hasNext()) {
+                int evento = reader.next();
+                if (evento == XMLStreamConstants.START_ELEMENT) {
+                    profundidade++;
+                    String nome = reader.getLocalName();
+                    if (infCFe < 0 && "infCFe".equals(nome)) {
+                        infCFe = profundidade;
+                        id = reader.getAttributeValue(null, "Id");
+                        chaveCupom = reader.getAttributeValue(null, "chCanc");
+                    } else if (infCFe >= 0 && "dEmi".equals(nome)) {
+                        dataEmissao = reader.getElementText();
+                        break;
+                    }
+                } else if (evento == XMLStreamConstants.END_ELEMENT) {
+                    if (profundidade == infCFe) {
+                        break;
+                    }
+                    profundidade--;
+                }
+            }
+            if (infCFe < 0) {
+                throw new ProcessamentoException("Tag infCFe não encontrada no cancelamento");
+            }
+            if (chaveCupom == null || chaveCupom.isBlank()) {
+                throw new ProcessamentoException("Atributo chCanc não encontrado no cancelamento");
+            }
+            return new CancelamentoCfe((id != null ? id : "").replace("CFe", ""), chaveCupom.replace("CFe", ""),
+                    dataEmissao != null ? LocalDate.parse(dataEmissao.trim(), DATE_FORMATTER) : null);
+        } catch (DateTimeParseException e) {
+            throw new ProcessamentoException("dEmi inválido no cancelamento: " + e.getParsedString(), e);
+        } finally {
+            reader.close();
+        }
+    }
+
+    private Cupom extrair(XMLStreamReader reader) throws XMLStreamException {
+        try {
+            return new Leitura(reader, textosInternados).executar();
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Estado de uma leitura. Cada escopo guarda a profundidade em que foi aberto (-1 quando fechado)
+     * e só o primeiro elemento de cada nome é considerado, como no getElementsByTagName(...).item(0).
+     */
+    private static final class Leitura {
+
+        private final XMLStreamReader reader;
+        private final TextosInternados textosInternados;
+        private int profundidade;
+
+        private int infCFe = -1;
+        private int ide = -1;
+        private int total = -1;
+        private int icmsTot = -1;
+        private boolean infCFeVisto;
+        private boolean ideVisto;
+        private boolean totalVisto;
+        private boolean icmsTotVisto;
+
+        private String id;
+        private String numeroCfe;
+        private String dataEmissao;
+        private final Decimais totais = new Decimais(VALORES_TOTAIS);
+
+        private int det = -1;
+        private int prod = -1;
+        private int imposto = -1;
+        private int tributo = -1;
+        private int grupo = -1;
+        private int tipoTributo = SEM_TRIBUTO;
+        // Um único ItemParcial por leitura, limpo a cada det
+        private final ItemParcial item = new ItemParcial();
+
+        // Buffer reaproveitado para os valores decimais e os códigos internados
+        private char[] caracteres = new char[32];
+
+        private final Cupom cupom = new Cupom();
+
+        private Leitura(XMLStreamReader reader, TextosInternados textosInternados) {
+            this.reader = reader;
+            this.textosInternados = textosInternados;
+        }
+
+        private Cupom executar() throws XMLStreamException {
+            while (reader.hasNext()) {
+                int evento = reader.next();
+                if (evento == XMLStreamConstants.START_ELEMENT) {
+                    profundidade++;
+                    inicioElemento(reader.getLocalName());
+                } else if (evento == XMLStreamConstants.END_ELEMENT) {
+                    fimElemento();
+                    profundidade--;
+                }
+            }
+            return montarCupom();
+        }
+
+        private void inicioElemento(String nome) throws XMLStreamException {
+            if ("CFeCanc".equals(nome)) {
+                throw new CupomCanceladoException("Cupom cancelado, ignorando processamento");
+            }
+            if (infCFe < 0) {
+                if (!infCFeVisto && "infCFe".equals(nome)) {
+                    infCFe = profundidade;
+                    infCFeVisto = true;
+                    id = reader.getAttributeValue(null, "Id");
+                }
+                return;
+            }
+
+            if (det >= 0) {
+                inicioElementoItem(nome);
+            } else if ("det".equals(nome)) {
+                det = profundidade;
+                item.limpar();
+                item.nItem = reader.getAttributeValue(null, "nItem");
+            } else if (ide >= 0) {
+                if ("nCFe".equals(nome) && numeroCfe == null) {
+                    numeroCfe = lerTexto();
+                } else if ("dEmi".equals(nome) && dataEmissao == null) {
+                    dataEmissao = lerTexto();
+                }
+            } else if (icmsTot >= 0) {
+                inicioElementoIcmsTot(nome);
+            } else if (total >= 0) {
+                if (!icmsTotVisto && "ICMSTot".equals(nome)) {
+                    icmsTot = profundidade;
+                    icmsTotVisto = true;
+                }
+            } else if (!ideVisto && "ide".equals(nome)) {
+                ide = profundidade;
+                ideVisto = true;
+            } else if (!totalVisto && "total".equals(nome)) {
+                total = profundidade;
+                totalVisto = true;
+            }
+        }
+
+        private void inicioElementoIcmsTot(String nome) throws XMLStreamException {
+            switch (nome) {
+                case "vICMS" -> lerDecimal(totais, TOTAL_ICMS);
+                case "vProd" -> lerDecimal(totais, TOTAL_PRODUTOS);
+                case "vDesc" -> lerDecimal(totais, TOTAL_DESCONTOS);
+                case "vPIS" -> lerDecimal(totais, TOTAL_PIS);
+                case "vCOFINS" -> lerDecimal(totais, TOTAL_COFINS);
+                case "vOutro" -> lerDecimal(totais, TOTAL_OUTROS);
+                default -> {
+                }
+            }
+        }
+
+        private void inicioElementoItem(String nome) throws XMLStreamException {
+            if (prod >= 0) {
+                inicioElementoProd(nome);
+            } else if (imposto >= 0) {
+                inicioElementoImposto(nome);
+            } else if (!item.prod && "prod".equals(nome)) {
+                prod = profundidade;
+                item.prod = true;
+            } else if (!item.imposto && "imposto".equals(nome)) {
+                imposto = profundidade;
+                item.imposto = true;
+            }
+        }
+
+        private void inicioElementoProd(String nome) throws XMLStreamException {
+            switch (nome) {
+                case "cProd" -> item.codigo = item.codigo != null ? item.codigo : lerTexto();
+                case "xProd" -> item.descricao = item.descricao != null ? item.descricao : lerTexto();
+                case "NCM" -> item.ncm = item.ncm != null ? item.ncm : lerTextoInternado();
+                case "CFOP" -> item.cfop = item.cfop != null ? item.cfop : lerTextoInternado();
+                case "uCom" -> item.unidadeMedida = item.unidadeMedida != null ? item.unidadeMedida : lerTextoInternado();
+                case "qCom" -> lerDecimal(item.valores, QUANTIDADE);
+                case "vUnCom" -> lerDecimal(item.valores, VALOR_UNITARIO);
+                case "vProd" -> lerDecimal(item.valores, VALOR_TOTAL);
+                case "vDesc" -> lerDecimal(item.valores, VALOR_DESCONTO);
+                default -> {
+                }
+            }
+        }
+
+        private void inicioElementoImposto(String nome) throws XMLStreamException {
+            if (tributo < 0) {
+                if (!item.icms && "ICMS".equals(nome)) {
+                    abrirTributo(ICMS);
+                    item.icms = true;
+                } else if (!item.pis && "PIS".equals(nome)) {
+                    abrirTributo(PIS);
+                    item.pis = true;
+                } else if (!item.cofins && "COFINS".equals(nome)) {
+                    abrirTributo(COFINS);
+                    item.cofins = true;
+                }
+                return;
+            }
+
+            // O primeiro filho do tributo é o grupo (ICMS00, ICMS40, PISAliq, PISNT...)
+            if (grupo < 0) {
+                if (profundidade == tributo + 1 && !grupoVisto()) {
+                    grupo = profundidade;
+                    marcarGrupo();
+                }
+                return;
+            }
+
+            switch (tipoTributo) {
+                case ICMS -> {
+                    switch (nome) {
+                        case "CST" -> item.cst = item.cst != null ? item.cst : lerTextoInternado();
+                        case "pICMS" -> lerDecimal(item.valores, ALIQUOTA_ICMS);
+                        case "vICMS" -> lerDecimal(item.valores, VALOR_ICMS);
+                        default -> {
+                        }
+                    }
+                }
+                case PIS -> {
+                    switch (nome) {
+                        case "vBC" -> lerDecimal(item.valores, BASE_PIS);
+                        case "pPIS" -> lerDecimal(item.valores, ALIQUOTA_PIS);
+                        case "vPIS" -> lerDecimal(item.valores, VALOR_PIS);
+                        default -> {
+                        }
+                    }
+                }
+                case COFINS -> {
+                    switch (nome) {
+                        case "vBC" -> lerDecimal(item.valores, BASE_COFINS);
+                        case "pCOFINS" -> lerDecimal(item.valores, ALIQUOTA_COFINS);
+                        case "vCOFINS" -> lerDecimal(item.valores, VALOR_COFINS);
+                        default -> {
+                        }
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+
+        private void abrirTributo(int tipo) {
+            tributo = profundidade;
+            tipoTributo = tipo;
+        }
+
+        private boolean grupoVisto() {
+            return switch (tipoTributo) {
+                case ICMS -> item.grupoIcms;
+                case PIS -> item.grupoPis;
+                case COFINS -> item.grupoCofins;
+                default -> true;
+            };
+        }
+
+        private void marcarGrupo() {
+            switch (tipoTributo) {
+                case ICMS -> item.grupoIcms = true;
+                case PIS -> item.grupoPis = true;
+                case COFINS -> item.grupoCofins = true;
+                default -> {
+                }
+            }
+        }
+
+        private void fimElemento() {
+            if (profundidade == grupo) {
+                grupo = -1;
+            } else if (profundidade == tributo) {
+                tributo = -1;
+                tipoTributo = SEM_TRIBUTO;
+            } else if (profundidade == prod) {
+                prod = -1;
+            } else if (profundidade == imposto) {
+                imposto = -1;
+            } else if (profundidade == det) {
+                det = -1;
+                cupom.adicionarItem(item.montar());
+            } else if (profundidade == ide) {
+                ide = -1;
+            } else if (profundidade == icmsTot) {
+                icmsTot = -1;
+            } else if (profundidade == total) {
+                total = -1;
+            } else if (profundidade == infCFe) {
+                infCFe = -1;
+            }
+        }
+
+        /**
+         * Equivalente ao getTextContent: concatena o texto do elemento e dos descendentes
+         * e consome o END_ELEMENT correspondente, fechando o nível aberto em executar.
+         */
+        private String lerTexto() throws XMLStreamException {
+            String texto = null;
+            StringBuilder acumulado = null;
+            int nivel = 1;
+            while (nivel > 0) {
+                int evento = reader.next();
+                if (evento == XMLStreamConstants.START_ELEMENT) {
+                    nivel++;
+                } else if (evento == XMLStreamConstants.END_ELEMENT) {
+                    nivel--;
+                } else if (evento == XMLStreamConstants.CHARACTERS || evento == XMLStreamConstants.CDATA
+                        || evento == XMLStreamConstants.SPACE) {
+                    if (texto == null) {
+                        texto = reader.getText();
+                    } else {
+                        if (acumulado == null) {
+                            acumulado = new StringBuilder(texto);
+                        }
+                        acumulado.append(reader.getText());
+                    }
+                }
+            }
+            profundidade--;
+            if (acumulado != null) {
+                return acumulado.toString();
+            }
+            return texto != null ? texto : "";
+        }
+
+        /**
+         * Guarda o valor em ponto fixo, sem criar Strings. Só o primeiro elemento de cada nome é lido.
+         */
+        private void lerDecimal(Decimais destino, int campo) throws XMLStreamException {
+            if (destino.presente(campo)) {
+                return;
+            }
+            int tamanho = lerCaracteres();
+            long valor = DecimalFixo.ler(caracteres, 0, tamanho);
+            destino.definir(campo, valor, valor == DecimalFixo.FORA_DO_FORMATO ? new String(caracteres, 0, tamanho) : null);
+        }
+
+        /**
+         * Texto dos códigos repetidos em todo item (CFOP, NCM, CST, unidade), vindo do dicionário compartilhado
+         */
+        private String lerTextoInternado() throws XMLStreamException {
+            int tamanho = lerCaracteres();
+            return textosInternados.internar(caracteres, 0, tamanho);
+        }
+
+        /**
+         * Como o lerTexto, mas copia os caracteres para o buffer reaproveitado e retorna quantos foram lidos
+         */
+        private int lerCaracteres() throws XMLStreamException {
+            int tamanho = 0;
+            int nivel = 1;
+            while (nivel > 0) {
+                int evento = reader.next();
+                if (evento == XMLStreamConstants.START_ELEMENT) {
+                    nivel++;
+                } else if (evento == XMLStreamConstants.END_ELEMENT) {
+                    nivel--;
+                } else if (evento == XMLStreamConstants.CHARACTERS || evento == XMLStreamConstants.CDATA
+                        || evento == XMLStreamConstants.SPACE) {
+                    int quantidade = reader.getTextLength();
+                    if (tamanho + quantidade > caracteres.length) {
+                        caracteres = Arrays.copyOf(caracteres, Math.max(caracteres.length * 2, tamanho + quantidade));
+                    }
+                    System.arraycopy(reader.getTextCharacters(), reader.getTextStart(), caracteres, tamanho, quantidade);
+                    tamanho += quantidade;
+                }
+            }
+            profundidade--;
+            return tamanho;
+        }
+
+        private Cupom montarCupom() {
+            if (!infCFeVisto) {
+                throw new ProcessamentoException("Tag infCFe não encontrada");
+            }
+            if (!ideVisto) {
+                throw new ProcessamentoException("Tag ide não encontrada");
+            }
+            if (!icmsTotVisto) {
+                throw new ProcessamentoException("Tag ICMSTot não encontrada");
+            }
+
+            cupom.setChaveAcesso((id != null ? id : "").replace("CFe", ""));
+            cupom.setNumeroCfe(obrigatorio(numeroCfe, "nCFe"));
+            cupom.setDataEmissao(LocalDate.parse(obrigatorio(dataEmissao, "dEmi"), DATE_FORMATTER));
+            cupom.setValorTotalIcms(totais.obrigatorio(TOTAL_ICMS, "vICMS"));
+            cupom.setValorTotalProdutos(totais.obrigatorio(TOTAL_PRODUTOS, "vProd"));
+            cupom.setValorTotalDescontos(totais.obrigatorio(TOTAL_DESCONTOS, "vDesc"));
+            cupom.setValorTotalPis(totais.obrigatorio(TOTAL_PIS, "vPIS"));
+            cupom.setValorTotalCofins(totais.obrigatorio(TOTAL_COFINS, "vCOFINS"));
+            cupom.setValorTotalOutros(totais.obrigatorio(TOTAL_OUTROS, "vOutro"));
+            return cupom;
+        }
+    }
+
+    /**
+     * Textos e valores de um det ainda não convertidos. Os flags marcam quais elementos já apareceram.
+     */
+    private static final class ItemParcial {
+
+        private String nItem;
+        private boolean prod;
+        private boolean imposto;
+        private boolean icms;
+        private boolean pis;
+        private boolean cofins;
+        private boolean grupoIcms;
+        private boolean grupoPis;
+        private boolean grupoCofins;
+
+        private String codigo;
+        private String descricao;
+        private String ncm;
+        private String cfop;
+        private String unidadeMedida;
+        private String cst;
+        private final Decimais valores = new Decimais(VALORES_ITEM);
+
+        private void limpar() {
+            nItem = null;
+            prod = false;
+            imposto = false;
+            icms = false;
+            pis = false;
+            cofins = false;
+            grupoIcms = false;
+            grupoPis = false;
+            grupoCofins = false;
+            codigo = null;
+            descricao = null;
+            ncm = null;
+            cfop = null;
+            unidadeMedida = null;
+            cst = null;
+            valores.limpar();
+        }
+
+        private Item montar() {
+            int numeroSequencial = Integer.parseInt(nItem != null ? nItem : "");
+            if (!prod) {
+                throw new ProcessamentoException("Tag prod não encontrada");
+            }
+            if (!imposto) {
+                throw new ProcessamentoException("Tag imposto não encontrada");
+            }
+
+            String cstIcms = "";
+            BigDecimal aliquotaIcmsItem = BigDecimal.ZERO;
+            BigDecimal valorIcmsItem = BigDecimal.ZERO;
+            if (grupoIcms) {
+                cstIcms = cst != null ? cst : "";
+                try {
+                    aliquotaIcmsItem = valores.valor(ALIQUOTA_ICMS, DecimalFixo.ZERO_CENTAVOS);
+                } catch (Exception e) {
+                    log.warn("pICMS não encontrado para o item {}", numeroSequencial);
+                }
+                try {
+                    valorIcmsItem = valores.valor(VALOR_ICMS, DecimalFixo.ZERO_CENTAVOS);
+                } catch (Exception e) {
+                    log.warn("vICMS não encontrado para o item {}", numeroSequencial);
+                }
+            }
+
+            return Item.builder()
+                    .produto(Produto.builder()
+                            .codigo(obrigatorio(codigo, "cProd"))
+                            .descricao(obrigatorio(descricao, "xProd"))
+                            .build())
+                    .quantidade(valores.valor(QUANTIDADE, DecimalFixo.ZERO_CENTAVOS))
+                    .cfop(obrigatorio(cfop, "CFOP"))
+                    .valorUnitario(valores.obrigatorio(VALOR_UNITARIO, "vUnCom"))
+                    .valorTotal(valores.obrigatorio(VALOR_TOTAL, "vProd"))
+                    .valorDesconto(valores.valor(VALOR_DESCONTO, DecimalFixo.ZERO_CENTAVOS))
+                    .cst(cstIcms)
+                    .aliquotaIcms(aliquotaIcmsItem)
+                    .valorIcms(valorIcmsItem)
+                    .basePis(grupoPis ? valores.valor(BASE_PIS, DecimalFixo.ZERO_CENTAVOS) : BigDecimal.ZERO)
+                    .aliquotaPis(grupoPis ? valores.valor(ALIQUOTA_PIS, DecimalFixo.ZERO_CENTAVOS) : BigDecimal.ZERO)
+                    .valorPis(grupoPis ? valores.valor(VALOR_PIS, DecimalFixo.ZERO_CENTAVOS) : BigDecimal.ZERO)
+                    .baseCofins(grupoCofins ? valores.valor(BASE_COFINS, DecimalFixo.ZERO_CENTAVOS) : BigDecimal.ZERO)
+                    .aliquotaCofins(grupoCofins ? valores.valor(ALIQUOTA_COFINS, DecimalFixo.ZERO_CENTAVOS) : BigDecimal.ZERO)
+                    .valorCofins(grupoCofins ? valores.valor(VALOR_COFINS, DecimalFixo.ZERO_CENTAVOS) : BigDecimal.ZERO)
+                    .unidadeMedida(obrigatorio(unidadeMedida, "uCom"))
+                    .ncm(obrigatorio(ncm, "NCM"))
+                    .numeroSequencial(numeroSequencial)
+                    .build();
+        }
+    }
+
+    /**
+     * Valores decimais de um escopo, guardados em ponto fixo até a montagem da entidade.
+     * O texto original só é guardado quando fica fora do formato simples.
+     */
+    private static final class Decimais {
+
+        private final long[] valores;
+        private final String[] textos;
+
+        private Decimais(int quantidade) {
+            valores = new long[quantidade];
+            textos = new String[quantidade];
+            Arrays.fill(valores, DecimalFixo.AUSENTE);
+        }
+
+        private boolean presente(int campo) {
+            return valores[campo] != DecimalFixo.AUSENTE;
+        }
+
+        private void definir(int campo, long valor, String texto) {
+            valores[campo] = valor;
+            textos[campo] = texto;
+        }
+
+        private BigDecimal valor(int campo, long padrao) {
+            long valor = presente(campo) ? valores[campo] : padrao;
+            if (valor == DecimalFixo.FORA_DO_FORMATO) {
+                return new BigDecimal(textos[campo]);
+            }
+            return DecimalFixo.paraBigDecimal(valor);
+        }
+
+        private BigDecimal obrigatorio(int campo, String tagName) {
+            if (!presente(campo)) {
+                throw new ProcessamentoException("Tag " + tagName + " não encontrada");
+            }
+            return valor(campo, DecimalFixo.AUSENTE);
+        }
+
+        private void limpar() {
+            Arrays.fill(valores, DecimalFixo.AUSENTE);
+            Arrays.fill(textos, null);
+        }
+    }
+
+    private static String obrigatorio(String valor, String tagName) {
+        if (valor == null) {
+            throw new ProcessamentoException("Tag " + tagName + " não encontrada");
+        }
+        return valor;
+    }
+}
@@ -0,0 +1,106 @@
+package com.noelle.leitura_de_XML.xml;
+
+import java.math.BigDecimal;
+
+/**
+ * Leitura de decimais em ponto fixo direto do buffer de caracteres do parser, sem String intermediária.
+ * <p>
+ * O valor lido vai empacotado num long: o valor sem escala nos bits altos e a escala nos 5 bits baixos.
+ * Só o formato simples ([+-]dígitos[.dígitos], até 17 dígitos) é lido aqui; o resto (expoente, espaços,
+ * texto inválido) volta como {@link #FORA_DO_FORMATO} para ser tratado pelo new BigDecimal(String),
+ * mantendo exatamente o mesmo resultado e os mesmos erros de antes.
+ */
+final class DecimalFixo {
+
+    /** Elemento não encontrado no documento */
+    static final long AUSENTE = Long.MIN_VALUE;
+
+    /** Texto presente, mas fora do formato simples */
+    static final long FORA_DO_FORMATO = Long.MIN_VALUE + 1;
+
+    private static final int BITS_ESCALA = 5;
+    private static final int MASCARA_ESCALA = (1 << BITS_ESCALA) - 1;
+    private static final int MAXIMO_DIGITOS = 17;
+
+    // Instâncias compartilhadas para os valores mais comuns (0.00, 1.0000, 2.000...), até a escala 4
+    private static final int MAXIMA_ESCALA_CANONICA = 4;
+    private static final int LIMITE_CANONICO = 256;
+    private static final BigDecimal[][] FRACOES = new BigDecimal[MAXIMA_ESCALA_CANONICA + 1][LIMITE_CANONICO];
+    private static final BigDecimal[][] INTEIROS = new BigDecimal[MAXIMA_ESCALA_CANONICA + 1][LIMITE_CANONICO];
+    private static final long[] POTENCIAS = {1L, 10L, 100L, 1_000L, 10_000L};
+
+    static {
+        for (int escala = 0; escala <= MAXIMA_ESCALA_CANONICA; escala++) {
+            for (int i = 0; i < LIMITE_CANONICO; i++) {
+                FRACOES[escala][i] = BigDecimal.valueOf(i, escala);
+                INTEIROS[escala][i] = BigDecimal.valueOf(i * POTENCIAS[escala], escala);
+            }
+        }
+    }
+
+    /** 0.00, o padrão usado quando um valor opcional não vem no XML */
+    static final long ZERO_CENTAVOS = empacotar(0, 2);
+
+    private DecimalFixo() {
+    }
+
+    /**
+     * Lê o trecho [inicio, inicio + tamanho) do buffer; retorna o valor empacotado ou FORA_DO_FORMATO
+     */
+    static long ler(char[] texto, int inicio, int tamanho) {
+        int fim = inicio + tamanho;
+        int i = inicio;
+        boolean negativo = false;
+        if (i < fim && (texto[i] == '-' || texto[i] == '+')) {
+            negativo = texto[i] == '-';
+            i++;
+        }
+
+        long valor = 0;
+        int digitos = 0;
+        int escala = 0;
+        boolean ponto = false;
+        for (; i < fim; i++) {
+            char c = texto[i];
+            if (c >= '0' && c <= '9') {
+                if (++digitos > MAXIMO_DIGITOS) {
+                    return FORA_DO_FORMATO;
+                }
+                valor = valor * 10 + (c - '0');
+                if (ponto) {
+                    escala++;
+                }
+            } else if (c == '.' && !ponto) {
+                ponto = true;
+            } else {
+                return FORA_DO_FORMATO;
+            }
+        }
+        if (digitos == 0) {
+            return FORA_DO_FORMATO;
+        }
+        return empacotar(negativo ? -valor : valor, escala);
+    }
+
+    static long empacotar(long semEscala, int escala) {
+        return (semEscala << BITS_ESCALA) | escala;
+    }
+
+    /**
+     * Monta o BigDecimal de um valor empacotado, reaproveitando as instâncias dos valores comuns
+     */
+    static BigDecimal paraBigDecimal(long empacotado) {
+        long semEscala = empacotado >> BITS_ESCALA;
+        int escala = (int) (empacotado & MASCARA_ESCALA);
+        if (escala <= MAXIMA_ESCALA_CANONICA && semEscala >= 0) {
+            if (semEscala < LIMITE_CANONICO) {
+                return FRACOES[escala][(int) semEscala];
+            }
+            long inteiro = semEscala / POTENCIAS[escala];
+            if (inteiro < LIMITE_CANONICO && inteiro * POTENCIAS[escala] == semEscala) {
+                return INTEIROS[escala][(int) inteiro];
+            }
+        }
+        return BigDecimal.valueOf(semEscala, escala);
+    }
+}
@@ -0,0 +1,126 @@
+package com.noelle.leitura_de_XML.xml;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+import org.xml.sax.SAXException;
+
+import javax.xml.XMLConstants;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+import javax.xml.validation.Validator;
+import javax.xml.validation.ValidatorHandler;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Schema do layout do CF-e SAT (xsd/cfe-sat.xsd), compilado uma vez na subida e compartilhado:
+ * o Schema é thread-safe, e cada thread reaproveita o seu ValidatorHandler (para a validação na
+ * mesma passada do extrator StAX) e o seu Validator (para validarXml).
+ * <p>
+ * app.xml.validacao-xsd.modo escolhe quais documentos a ingestão valida: "todos" (padrão), "amostra"
+ * (1 a cada app.xml.validacao-xsd.amostra, para janelas de carga pesada) ou "desligada", em que só
+ * se confere se o XML está bem formado.
+ */
+@Component
+@Slf4j
+public class EsquemaCfe {
+
+    private static final String ARQUIVO = "xsd/cfe-sat.xsd";
+    private static final String MODO_AMOSTRA = "amostra";
+    private static final String MODO_DESLIGADA = "desligada";
+
+    private final Schema schema;
+    private final ThreadLocal<ValidatorHandler> handlers;
+    private final ThreadLocal<Validator> validators;
+    private final boolean desligada;
+    private final int amostra;
+    private final AtomicLong documentos = new AtomicLong();
+
+    public EsquemaCfe(@Value("${app.xml.validacao-xsd.modo:todos}") String modo,
+                      @Value("${app.xml.validacao-xsd.amostra:100}") int amostra) {
+        this.schema = carregar();
+        this.handlers = ThreadLocal.withInitial(this::criarHandler);
+        this.validators = ThreadLocal.withInitial(this::criarValidator);
+        String modoNormalizado = modo.trim().toLowerCase(Locale.ROOT);
+        this.desligada = MODO_DESLIGADA.equals(modoNormalizado);
+        this.amostra = MODO_AMOSTRA.equals(modoNormalizado) ? Math.max(1, amostra) : 1;
+        log.info("Validação XSD do CF-e: {}", desligada ? "desligada"
+                : this.amostra > 1 ? "1 a cada " + this.amostra + " documentos" : "todos os documentos");
+    }
+
+    /**
+     * Indica se o próximo documento da ingestão deve ser validado, conforme o modo configurado
+     */
+    public boolean sortear() {
+        if (desligada) {
+            return false;
+        }
+        return amostra == 1 || documentos.getAndIncrement() % amostra == 0;
+    }
+
+    /**
+     * ValidatorHandler da thread atual, pronto para receber os eventos SAX de um documento
+     */
+    public ValidatorHandler handler() {
+        return handlers.get();
+    }
+
+    /**
+     * Descarta o ValidatorHandler da thread depois de um documento interrompido no meio,
+     * para que o próximo não herde o estado da validação
+     */
+    public void descartarHandler() {
+        handlers.remove();
+    }
+
+    /**
+     * Valida o documento inteiro contra o schema; lança SAXException com o primeiro erro
+     */
+    public void validar(InputStream conteudoXml) throws SAXException, IOException {
+        validar(new StreamSource(conteudoXml));
+    }
+
+    public void validar(StreamSource origem) throws SAXException, IOException {
+        // O Validator pode ser reaproveitado em sequência; reset() descartaria as propriedades de acesso externo
+        validators.get().validate(origem);
+    }
+
+    private static Schema carregar() {
+        ClassPathResource arquivo = new ClassPathResource(ARQUIVO);
+        try (InputStream conteudo = arquivo.getInputStream()) {
+            SchemaFactory factory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
+            factory.setProperty(XMLConstants.ACCESS_EXTERNAL_DTD, "");
+            factory.setProperty(XMLConstants.ACCESS_EXTERNAL_SCHEMA, "");
+            return factory.newSchema(new StreamSource(conteudo, arquivo.getURL().toString()));
+        } catch (SAXException | IOException e) {
+            throw new IllegalStateException("Não foi possível carregar o schema " + ARQUIVO, e);
+        }
+    }
+
+    private ValidatorHandler criarHandler() {
+        ValidatorHandler handler = schema.newValidatorHandler();
+        try {
+            handler.setProperty(XMLConstants.ACCESS_EXTERNAL_DTD, "");
+            handler.setProperty(XMLConstants.ACCESS_EXTERNAL_SCHEMA, "");
+        } catch (SAXException e) {
+            throw new IllegalStateException("Não foi possível configurar o ValidatorHandler", e);
+        }
+        return handler;
+    }
+
+    private Validator criarValidator() {
+        Validator validator = schema.newValidator();
+        try {
+            validator.setProperty(XMLConstants.ACCESS_EXTERNAL_DTD, "");
+            validator.setProperty(XMLConstants.ACCESS_EXTERNAL_SCHEMA, "");
+        } catch (SAXException e) {
+            throw new IllegalStateException("Não foi possível configurar o Validator", e);
+        }
+        return validator;
+    }
+}
@@ -0,0 +1,18 @@
+package com.noelle.leitura_de_XML.xml;
+
+import java.io.IOException;
+
+/**
+ * Origem sequencial de XMLs para o pipeline de ingestão: um ZIP ({@link LeitorZipXml}), arquivos
+ * avulsos em disco ({@link ArquivosXml}) ou os documentos em quarentena
+ */
+public interface FonteXml extends AutoCloseable {
+
+    /**
+     * Retorna o próximo XML, ou null quando não há mais
+     */
+    XmlEntrada proximo() throws IOException;
+
+    @Override
+    void close() throws IOException;
+}
@@ -0,0 +1,93 @@
+package com.noelle.leitura_de_XML.xml;
+
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.util.StreamReaderDelegate;
+
+/**
+ * XMLStreamReader que repassa cada evento lido, como SAX, a um ContentHandler (o ValidatorHandler
+ * do {@link EsquemaCfe}). Quem lê o documento pelo next() valida na mesma passada, sem reler os bytes;
+ * um erro de validação interrompe a leitura com XMLStreamException.
+ * <p>
+ * Só o next() repassa eventos: getElementText() e nextTag() não podem ser usados sobre este reader.
+ */
+final class LeitorComValidacao extends StreamReaderDelegate {
+
+    private final ContentHandler destino;
+    private final AttributesImpl atributos = new AttributesImpl();
+    private int profundidade;
+
+    LeitorComValidacao(XMLStreamReader reader, ContentHandler destino) throws XMLStreamException {
+        super(reader);
+        this.destino = destino;
+        try {
+            destino.startDocument();
+        } catch (SAXException e) {
+            throw erro(e);
+        }
+    }
+
+    @Override
+    public int next() throws XMLStreamException {
+        int evento = super.next();
+        try {
+            switch (evento) {
+                case XMLStreamConstants.START_ELEMENT -> inicioElemento();
+                case XMLStreamConstants.END_ELEMENT -> fimElemento();
+                case XMLStreamConstants.CHARACTERS, XMLStreamConstants.CDATA, XMLStreamConstants.SPACE -> {
+                    // Espaços fora do elemento raiz não fazem parte do conteúdo validado
+                    if (profundidade > 0) {
+                        destino.characters(getTextCharacters(), getTextStart(), getTextLength());
+                    }
+                }
+                case XMLStreamConstants.END_DOCUMENT -> destino.endDocument();
+                default -> {
+                }
+            }
+        } catch (SAXException e) {
+            throw erro(e);
+        }
+        return evento;
+    }
+
+    private void inicioElemento() throws SAXException {
+        profundidade++;
+        for (int i = 0; i < getNamespaceCount(); i++) {
+            destino.startPrefixMapping(texto(getNamespacePrefix(i)), texto(getNamespaceURI(i)));
+        }
+        atributos.clear();
+        for (int i = 0; i < getAttributeCount(); i++) {
+            String nome = getAttributeLocalName(i);
+            atributos.addAttribute(texto(getAttributeNamespace(i)), nome, qualificado(getAttributePrefix(i), nome),
+                    getAttributeType(i), getAttributeValue(i));
+        }
+        String nome = getLocalName();
+        destino.startElement(texto(getNamespaceURI()), nome, qualificado(getPrefix(), nome), atributos);
+    }
+
+    private void fimElemento() throws SAXException {
+        String nome = getLocalName();
+        destino.endElement(texto(getNamespaceURI()), nome, qualificado(getPrefix(), nome));
+        for (int i = 0; i < getNamespaceCount(); i++) {
+            destino.endPrefixMapping(texto(getNamespacePrefix(i)));
+        }
+        profundidade--;
+    }
+
+    private XMLStreamException erro(SAXException e) {
+        return new XMLStreamException("XML fora do layout do CF-e SAT: " + e.getMessage(), getLocation(), e);
+    }
+
+    private static String texto(String valor) {
+        return valor != null ? valor : "";
+    }
+
+    private static String qualificado(String prefixo, String nome) {
+        return prefixo == null || prefixo.isEmpty() ? nome : prefixo + ":" + nome;
+    }
+}
@@ -0,0 +1,58 @@
+package com.noelle.leitura_de_XML.xml;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Percorre um ZIP entrada por entrada, entregando os XMLs um de cada vez.
+ * Só a entrada corrente fica em memória, lida direto para um buffer do pool
+ * dimensionado por ZipEntry.getSize() quando o tamanho é conhecido.
+ */
+@Slf4j
+public class LeitorZipXml implements FonteXml {
+
+    private final ZipInputStream zipInputStream;
+    private final BufferPool bufferPool;
+    private final int tamanhoMaximo;
+    private int quantidade;
+
+    public LeitorZipXml(InputStream conteudoZip, BufferPool bufferPool, int tamanhoMaximo) {
+        this.zipInputStream = new ZipInputStream(conteudoZip);
+        this.bufferPool = bufferPool;
+        this.tamanhoMaximo = tamanhoMaximo;
+    }
+
+    /**
+     * Retorna o próximo XML do ZIP, ou null quando não há mais entradas. Uma entrada acima de
+     * tamanhoMaximo sai como XmlGrandeDemaisException, e a chamada seguinte continua na próxima.
+     */
+    @Override
+    public XmlEntrada proximo() throws IOException {
+        ZipEntry entry;
+        while ((entry = zipInputStream.getNextEntry()) != null) {
+            if (entry.getName().endsWith(".xml")) {
+                XmlEntrada xml = XmlEntrada.ler(entry.getName(), entry.getSize(), zipInputStream, bufferPool, tamanhoMaximo);
+                quantidade++;
+                log.debug("XML extraído: {}, tamanho: {} bytes", entry.getName(), xml.getTamanho());
+                return xml;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Quantidade de XMLs entregues até agora
+     */
+    public int getQuantidade() {
+        return quantidade;
+    }
+
+    @Override
+    public void close() throws IOException {
+        zipInputStream.close();
+    }
+}
@@ -0,0 +1,75 @@
+package com.noelle.leitura_de_XML.xml;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Dicionário dos textos curtos que se repetem em quase todo item (CFOP, NCM, CST, unidade), para
+ * que os itens de todos os cupons compartilhem a mesma String em vez de guardar uma cópia cada.
+ * <p>
+ * É uma tabela de mapeamento direto: cada posição guarda o último texto visto com aquele hash, então
+ * uma colisão só custa uma String nova. Como String é imutável, a escrita sem sincronização entre
+ * threads é segura; no pior caso duas threads criam o mesmo texto e uma das cópias se perde.
+ */
+@Component
+public class TextosInternados {
+
+    private static final int TAMANHO_TABELA = 4096;
+    private static final int MASCARA = TAMANHO_TABELA - 1;
+    // Acima disso o texto não é um código e quase nunca se repete
+    private static final int TAMANHO_MAXIMO = 16;
+
+    private final String[] tabela = new String[TAMANHO_TABELA];
+
+    /**
+     * Texto do trecho [inicio, inicio + tamanho); só cria uma String quando ele ainda não está na tabela
+     */
+    public String internar(char[] texto, int inicio, int tamanho) {
+        if (tamanho > TAMANHO_MAXIMO) {
+            return new String(texto, inicio, tamanho);
+        }
+        int hash = 0;
+        for (int i = inicio; i < inicio + tamanho; i++) {
+            hash = 31 * hash + texto[i];
+        }
+        int posicao = posicao(hash);
+        String atual = tabela[posicao];
+        if (atual != null && iguais(atual, texto, inicio, tamanho)) {
+            return atual;
+        }
+        String novo = new String(texto, inicio, tamanho);
+        tabela[posicao] = novo;
+        return novo;
+    }
+
+    /**
+     * Mesmo que internar(char[], ...), para textos que já chegaram como String (parser DOM)
+     */
+    public String internar(String texto) {
+        if (texto == null || texto.length() > TAMANHO_MAXIMO) {
+            return texto;
+        }
+        int posicao = posicao(texto.hashCode());
+        String atual = tabela[posicao];
+        if (texto.equals(atual)) {
+            return atual;
+        }
+        tabela[posicao] = texto;
+        return texto;
+    }
+
+    private static int posicao(int hash) {
+        return (hash ^ (hash >>> 12)) & MASCARA;
+    }
+
+    private static boolean iguais(String atual, char[] texto, int inicio, int tamanho) {
+        if (atual.length() != tamanho) {
+            return false;
+        }
+        for (int i = 0; i < tamanho; i++) {
+            if (atual.charAt(i) != texto[inicio + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
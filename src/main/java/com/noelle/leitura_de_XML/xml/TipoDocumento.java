@@ -0,0 +1,108 @@
+package com.noelle.leitura_de_XML.xml;
+
+/**
+ * Tipo de um documento fiscal, identificado pelo elemento raiz direto nos bytes, sem parse.
+ * <p>
+ * Só o começo do documento é lido: BOM, espaços, declaração XML, comentários e DOCTYPE são pulados
+ * até o primeiro elemento, cujo nome (sem prefixo de namespace) decide o tipo. Vale para os encodings
+ * compatíveis com ASCII (UTF-8, ISO-8859-1); em qualquer outro caso, ou se a raiz não aparece nos
+ * primeiros {@value #PREFIXO_MAXIMO} bytes, o tipo é DESCONHECIDO e o documento segue para o parse completo.
+ */
+public enum TipoDocumento {
+
+    CFE, CANCELAMENTO, DESCONHECIDO;
+
+    static final int PREFIXO_MAXIMO = 2048;
+
+    private static final byte[] RAIZ_CFE = {'C', 'F', 'e'};
+    private static final byte[] RAIZ_CANCELAMENTO = {'C', 'F', 'e', 'C', 'a', 'n', 'c'};
+
+    public static TipoDocumento identificar(byte[] conteudo, int tamanho) {
+        int fim = Math.min(tamanho, PREFIXO_MAXIMO);
+        int i = 0;
+        if (fim >= 3 && conteudo[0] == (byte) 0xEF && conteudo[1] == (byte) 0xBB && conteudo[2] == (byte) 0xBF) {
+            i = 3;
+        }
+        while (i < fim) {
+            byte atual = conteudo[i];
+            if (atual == ' ' || atual == '\t' || atual == '\r' || atual == '\n') {
+                i++;
+                continue;
+            }
+            if (atual != '<' || i + 1 >= fim) {
+                return DESCONHECIDO;
+            }
+            byte proximo = conteudo[i + 1];
+            if (proximo == '?') {
+                i = depoisDe(conteudo, i + 2, fim, '?', '>');
+            } else if (proximo == '!' && i + 3 < fim && conteudo[i + 2] == '-' && conteudo[i + 3] == '-') {
+                i = depoisDeComentario(conteudo, i + 4, fim);
+            } else if (proximo == '!') {
+                i = depoisDe(conteudo, i + 2, fim, (byte) 0, '>');
+            } else {
+                return raiz(conteudo, i + 1, fim);
+            }
+            if (i < 0) {
+                return DESCONHECIDO;
+            }
+        }
+        return DESCONHECIDO;
+    }
+
+    private static TipoDocumento raiz(byte[] conteudo, int inicio, int fim) {
+        int fimNome = inicio;
+        while (fimNome < fim && !terminaNome(conteudo[fimNome])) {
+            if (conteudo[fimNome] == ':') {
+                inicio = fimNome + 1;
+            }
+            fimNome++;
+        }
+        if (fimNome >= fim) {
+            return DESCONHECIDO;
+        }
+        if (nomeIgual(conteudo, inicio, fimNome, RAIZ_CFE)) {
+            return CFE;
+        }
+        if (nomeIgual(conteudo, inicio, fimNome, RAIZ_CANCELAMENTO)) {
+            return CANCELAMENTO;
+        }
+        return DESCONHECIDO;
+    }
+
+    private static boolean terminaNome(byte b) {
+        return b == ' ' || b == '\t' || b == '\r' || b == '\n' || b == '>' || b == '/';
+    }
+
+    private static boolean nomeIgual(byte[] conteudo, int inicio, int fim, byte[] nome) {
+        if (fim - inicio != nome.length) {
+            return false;
+        }
+        for (int i = 0; i < nome.length; i++) {
+            if (conteudo[inicio + i] != nome[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Posição logo depois do primeiro '>' (precedido de anterior, se não for 0), ou -1 se não aparece até fim
+     */
+    private static int depoisDe(byte[] conteudo, int inicio, int fim, int anterior, int fechamento) {
+        for (int i = inicio; i < fim; i++) {
+            if (conteudo[i] == fechamento && (anterior == 0 || conteudo[i - 1] == anterior)) {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    private static int depoisDeComentario(byte[] conteudo, int inicio, int fim) {
+        for (int i = inicio + 2; i < fim; i++) {
+            if (conteudo[i] == '>' && conteudo[i - 1] == '-' && conteudo[i - 2] == '-') {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+}
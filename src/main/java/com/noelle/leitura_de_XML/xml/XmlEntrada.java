@@ -0,0 +1,85 @@
+package com.noelle.leitura_de_XML.xml;
+
+import com.noelle.leitura_de_XML.exception.XmlGrandeDemaisException;
+import lombok.Getter;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Bytes de um XML extraído do ZIP, ainda sem decodificar. O encoding é resolvido pelo parser
+ * a partir da declaração XML. O buffer pertence ao BufferPool e volta para ele no close().
+ */
+@Getter
+public class XmlEntrada implements AutoCloseable {
+
+    private static final int TAMANHO_PADRAO = 16 * 1024;
+
+    private final String nome;
+    private final int tamanho;
+    private byte[] conteudo;
+    private final BufferPool bufferPool;
+
+    public XmlEntrada(String nome, byte[] conteudo, int tamanho, BufferPool bufferPool) {
+        this.nome = nome;
+        this.conteudo = conteudo;
+        this.tamanho = tamanho;
+        this.bufferPool = bufferPool;
+    }
+
+    /**
+     * Lê a entrada inteira para um buffer do pool, dimensionado pelo tamanho declarado no ZIP quando conhecido.
+     * O tamanho declarado vem de quem enviou o arquivo: acima de tamanhoMaximo a entrada é rejeitada
+     * antes de qualquer alocação, e a leitura também para se os bytes reais passarem do limite.
+     */
+    public static XmlEntrada ler(String nome, long tamanhoDeclarado, InputStream origem, BufferPool bufferPool,
+                                 int tamanhoMaximo) throws IOException {
+        if (tamanhoDeclarado > tamanhoMaximo) {
+            throw new XmlGrandeDemaisException(nome, tamanhoDeclarado, tamanhoMaximo);
+        }
+        int tamanhoInicial = tamanhoDeclarado >= 0
+                ? (int) tamanhoDeclarado + 1
+                : Math.min(TAMANHO_PADRAO, tamanhoMaximo + 1);
+        byte[] buffer = bufferPool.obter(tamanhoInicial);
+        int usados = 0;
+        try {
+            int lidos;
+            while (true) {
+                if (usados == buffer.length) {
+                    buffer = bufferPool.crescer(buffer, usados);
+                }
+                lidos = origem.read(buffer, usados, buffer.length - usados);
+                if (lidos < 0) {
+                    break;
+                }
+                usados += lidos;
+                if (usados > tamanhoMaximo) {
+                    throw new XmlGrandeDemaisException(nome, -1, tamanhoMaximo);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            bufferPool.devolver(buffer);
+            throw e;
+        }
+        return new XmlEntrada(nome, buffer, usados, bufferPool);
+    }
+
+    /**
+     * Abre um stream sobre os bytes, sem copiá-los. Pode ser chamado mais de uma vez.
+     */
+    public InputStream abrir() {
+        if (conteudo == null) {
+            throw new IllegalStateException("Entrada " + nome + " já foi liberada");
+        }
+        return new ByteArrayInputStream(conteudo, 0, tamanho);
+    }
+
+    @Override
+    public void close() {
+        if (conteudo != null) {
+            bufferPool.devolver(conteudo);
+            conteudo = null;
+        }
+    }
+}
@@ -0,0 +1,11 @@
+-- Sequence com incremento 50 para o otimizador pooled do Hibernate: cada valor obtido
+-- reserva os 50 ids anteriores a ele, o que permite o batch de inserts em item.
+CREATE SEQUENCE IF NOT EXISTS item_seq START WITH 50 INCREMENT BY 50;
+
+-- Em bancos que já têm itens (id gerado por IDENTITY), a sequence começa depois do maior id
+DO $$
+BEGIN
+    IF to_regclass('item') IS NOT NULL THEN
+        PERFORM setval('item_seq', (SELECT COALESCE(MAX(id), 0) + 50 FROM item), false);
+    END IF;
+END $$;
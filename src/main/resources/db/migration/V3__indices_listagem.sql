@@ -0,0 +1,10 @@
+-- Índices das listagens paginadas por keyset (ordenação + chave de acesso como desempate):
+-- cada página é uma busca por faixa no índice, com custo igual em qualquer profundidade.
+-- Em bancos novos a tabela ainda não existe aqui; o Hibernate cria os índices a partir de @Table.
+DO $$
+BEGIN
+    IF to_regclass('cupom') IS NOT NULL THEN
+        CREATE INDEX IF NOT EXISTS idx_cupom_numero_chave ON cupom (numero_cfe, chave_acesso);
+        CREATE INDEX IF NOT EXISTS idx_cupom_valor_chave ON cupom (valor_total_produtos, chave_acesso);
+    END IF;
+END $$;
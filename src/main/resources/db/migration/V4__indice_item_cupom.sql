@@ -0,0 +1,8 @@
+-- O PostgreSQL não indexa chaves estrangeiras: sem este índice, carregar os itens de uma
+-- página de cupons (cupom_chave_acesso IN (...)) percorre a tabela item inteira.
+DO $$
+BEGIN
+    IF to_regclass('item') IS NOT NULL THEN
+        CREATE INDEX IF NOT EXISTS idx_item_cupom ON item (cupom_chave_acesso);
+    END IF;
+END $$;
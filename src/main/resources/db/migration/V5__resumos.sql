@@ -0,0 +1,42 @@
+-- Totais agregados para os relatórios fiscais. São atualizados pela ingestão na mesma transação
+-- de cada lote de cupons (ResumoRepository.acumular), então os relatórios leem só estas tabelas.
+CREATE TABLE IF NOT EXISTS resumo_diario (
+    data_emissao         DATE PRIMARY KEY,
+    quantidade_cupons    BIGINT         NOT NULL,
+    valor_total_icms     NUMERIC(18, 2) NOT NULL,
+    valor_total_pis      NUMERIC(18, 2) NOT NULL,
+    valor_total_cofins   NUMERIC(18, 2) NOT NULL,
+    valor_total_produtos NUMERIC(18, 2) NOT NULL
+);
+
+-- Totais de itens por dimensão: CFOP, NCM ou CST
+CREATE TABLE IF NOT EXISTS resumo_item (
+    dimensao          VARCHAR(10)    NOT NULL,
+    valor             VARCHAR(10)    NOT NULL,
+    quantidade_itens  BIGINT         NOT NULL,
+    valor_total       NUMERIC(18, 2) NOT NULL,
+    valor_desconto    NUMERIC(18, 2) NOT NULL,
+    valor_icms        NUMERIC(18, 2) NOT NULL,
+    valor_pis         NUMERIC(18, 2) NOT NULL,
+    valor_cofins      NUMERIC(18, 2) NOT NULL,
+    PRIMARY KEY (dimensao, valor)
+);
+
+-- Bancos que já têm cupons: carga inicial (o mesmo que POST /api/relatorios/reconstruir)
+DO $$
+BEGIN
+    IF to_regclass('cupom') IS NOT NULL AND to_regclass('item') IS NOT NULL THEN
+        INSERT INTO resumo_diario
+        SELECT data_emissao, COUNT(*), SUM(valor_total_icms), SUM(valor_total_pis),
+               SUM(valor_total_cofins), SUM(valor_total_produtos)
+        FROM cupom
+        GROUP BY data_emissao;
+
+        INSERT INTO resumo_item
+        SELECT d.dimensao, d.valor, COUNT(*), SUM(i.valor_total), SUM(i.valor_desconto),
+               SUM(COALESCE(i.valor_icms, 0)), SUM(COALESCE(i.valor_pis, 0)), SUM(COALESCE(i.valor_cofins, 0))
+        FROM item i
+        CROSS JOIN LATERAL (VALUES ('CFOP', i.cfop), ('NCM', i.ncm), ('CST', i.cst)) AS d(dimensao, valor)
+        GROUP BY d.dimensao, d.valor;
+    END IF;
+END $$;
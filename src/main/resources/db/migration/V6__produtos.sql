@@ -0,0 +1,37 @@
+-- Dicionário de produtos: o item deixa de repetir código e descrição e passa a apontar para o produto.
+-- A chave é (emitente, código, descrição), para que um produto renomeado não altere itens já gravados.
+CREATE TABLE IF NOT EXISTS produto (
+    id            BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    cnpj_emitente VARCHAR(14)  NOT NULL,
+    codigo        VARCHAR(60)  NOT NULL,
+    descricao     VARCHAR(255) NOT NULL,
+    CONSTRAINT uk_produto_emitente_codigo UNIQUE (cnpj_emitente, codigo, descricao)
+);
+
+-- Bancos que já têm itens: cria os produtos a partir deles e troca as colunas pela referência.
+-- O CNPJ do emitente vem das posições 7 a 20 da chave de acesso (ver CatalogoProdutosService).
+DO $$
+BEGIN
+    IF to_regclass('item') IS NOT NULL AND EXISTS (
+            SELECT 1 FROM information_schema.columns
+            WHERE table_schema = current_schema() AND table_name = 'item' AND column_name = 'codigo') THEN
+        INSERT INTO produto (cnpj_emitente, codigo, descricao)
+        SELECT DISTINCT CASE WHEN length(cupom_chave_acesso) >= 20 THEN substring(cupom_chave_acesso FROM 7 FOR 14) ELSE '' END,
+               codigo, descricao
+        FROM item
+        ON CONFLICT DO NOTHING;
+
+        ALTER TABLE item ADD COLUMN IF NOT EXISTS produto_id BIGINT;
+        UPDATE item i
+        SET produto_id = p.id
+        FROM produto p
+        WHERE p.cnpj_emitente = CASE WHEN length(i.cupom_chave_acesso) >= 20
+                                     THEN substring(i.cupom_chave_acesso FROM 7 FOR 14) ELSE '' END
+          AND p.codigo = i.codigo
+          AND p.descricao = i.descricao;
+
+        ALTER TABLE item ALTER COLUMN produto_id SET NOT NULL;
+        ALTER TABLE item DROP COLUMN codigo, DROP COLUMN descricao;
+        ALTER TABLE item ADD CONSTRAINT fk_item_produto FOREIGN KEY (produto_id) REFERENCES produto (id);
+    END IF;
+END $$;
@@ -0,0 +1,9 @@
+-- Quarentena dos documentos que falharam na ingestão (QuarentenaService): o XML vai compactado,
+-- com o nome da entrada e o tipo da falha, e reprocessado_em marca os que já foram reenviados.
+-- Bancos novos recebem as colunas pelo Hibernate.
+ALTER TABLE IF EXISTS xml_erro ADD COLUMN IF NOT EXISTS conteudo_compactado BYTEA;
+ALTER TABLE IF EXISTS xml_erro ADD COLUMN IF NOT EXISTS tamanho_original INTEGER;
+ALTER TABLE IF EXISTS xml_erro ADD COLUMN IF NOT EXISTS nome_arquivo VARCHAR(255);
+ALTER TABLE IF EXISTS xml_erro ADD COLUMN IF NOT EXISTS tipo VARCHAR(20);
+ALTER TABLE IF EXISTS xml_erro ADD COLUMN IF NOT EXISTS reprocessado_em TIMESTAMP;
+ALTER TABLE IF EXISTS xml_erro ALTER COLUMN mensagem_erro TYPE TEXT;
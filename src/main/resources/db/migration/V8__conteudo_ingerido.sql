@@ -0,0 +1,21 @@
+-- Conteúdo já ingerido (ConteudoIngeridoService): hash de 128 bits dos bytes de cada XML com o desfecho,
+-- e de cada ZIP inteiro com as contagens, para que reenvios do mesmo arquivo não passem de novo pelo parse.
+-- Só entram desfechos definitivos (processado, duplicado ou cancelado) e ZIPs sem nenhuma falha: a rejeição
+-- de um XML depende do schema e do modo de validação em vigor, e um documento corrigido na quarentena
+-- precisa ser aceito num reenvio.
+CREATE TABLE IF NOT EXISTS conteudo_ingerido (
+    hash          UUID        PRIMARY KEY,
+    chave_acesso  VARCHAR(44),
+    resultado     VARCHAR(20) NOT NULL,
+    registrado_em TIMESTAMP   NOT NULL DEFAULT now()
+);
+
+CREATE TABLE IF NOT EXISTS arquivo_ingerido (
+    hash          UUID         PRIMARY KEY,
+    nome_arquivo  VARCHAR(255),
+    total_xmls    INTEGER      NOT NULL,
+    processados   INTEGER      NOT NULL,
+    duplicados    INTEGER      NOT NULL,
+    falhas        INTEGER      NOT NULL,
+    registrado_em TIMESTAMP    NOT NULL DEFAULT now()
+);
@@ -0,0 +1,14 @@
+-- Cancelamentos (CFeCanc) ligados ao cupom que cancelam (CancelamentoService). Cada cancelamento fica
+-- registrado pela chave do cupom, para que também seja aplicado a um cupom que só chega depois.
+CREATE TABLE IF NOT EXISTS cancelamento (
+    chave_acesso  VARCHAR(44) PRIMARY KEY,
+    chave_cupom   VARCHAR(44) NOT NULL,
+    data_emissao  DATE,
+    registrado_em TIMESTAMP   NOT NULL DEFAULT now()
+);
+
+CREATE INDEX IF NOT EXISTS idx_cancelamento_chave_cupom ON cancelamento (chave_cupom);
+
+-- Bancos novos recebem as colunas pelo Hibernate
+ALTER TABLE IF EXISTS cupom ADD COLUMN IF NOT EXISTS cancelado BOOLEAN NOT NULL DEFAULT false;
+ALTER TABLE IF EXISTS cupom ADD COLUMN IF NOT EXISTS chave_cancelamento VARCHAR(44);
@@ -0,0 +1,45 @@
+package com.noelle.leitura_de_XML.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EscalonadorIngestaoTest {
+
+    private EscalonadorIngestao escalonador;
+
+    @BeforeEach
+    void setUp() {
+        escalonador = new EscalonadorIngestao(new SimpleMeterRegistry(), 1);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        escalonador.encerrar();
+    }
+
+    @Test
+    void deveManterOWorkerDepoisDeUmErrorNaTarefa() throws InterruptedException {
+        EscalonadorIngestao.Fila fila = escalonador.abrirFila();
+        CountDownLatch executadas = new CountDownLatch(2);
+
+        fila.executar(() -> {
+            throw new StackOverflowError();
+        });
+        fila.executar(() -> {
+            throw new IllegalStateException("falha na tarefa");
+        });
+        fila.executar(executadas::countDown);
+        fila.executar(executadas::countDown);
+
+        // Com um único worker, as duas últimas só rodam se ele sobreviveu às duas primeiras
+        assertThat(executadas.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(escalonador.getPendentes()).isZero();
+    }
+}
@@ -0,0 +1,109 @@
+package com.noelle.leitura_de_XML.services;
+
+import com.noelle.leitura_de_XML.domain.Cupom;
+import com.noelle.leitura_de_XML.services.MetricasIngestao.Desfecho;
+import com.noelle.leitura_de_XML.xml.BufferPool;
+import com.noelle.leitura_de_XML.xml.FonteXml;
+import com.noelle.leitura_de_XML.xml.XmlEntrada;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Todo documento entregue aos workers precisa voltar como um evento, ou a ingestão nunca termina
+ */
+class IngestaoPipelineTest {
+
+    private final ProcessadorXmlService processador = mock(ProcessadorXmlService.class);
+    private final ConteudoIngeridoService conteudoIngerido = mock(ConteudoIngeridoService.class);
+    private final QuarentenaService quarentena = mock(QuarentenaService.class);
+    private EscalonadorIngestao escalonador;
+    private IngestaoPipeline pipeline;
+
+    @BeforeEach
+    void setUp() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        escalonador = new EscalonadorIngestao(registry, 2);
+        pipeline = new IngestaoPipeline(processador, escalonador, new MetricasIngestao(registry),
+                quarentena, conteudoIngerido, mock(CancelamentoService.class), 4, 50);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        escalonador.encerrar();
+    }
+
+    @Test
+    void deveTerminarMesmoQuandoOWorkerLancaAlgoInesperado() {
+        when(conteudoIngerido.consultar(any()))
+                .thenThrow(new StackOverflowError())
+                .thenThrow(new IllegalStateException("banco fora do ar"))
+                .thenReturn(null);
+        when(processador.validarXml(any(InputStream.class))).thenReturn(false);
+
+        ResultadoIngestao resultado = assertTimeoutPreemptively(Duration.ofSeconds(10), () ->
+                pipeline.executar(fonte("a.xml", "b.xml", "c.xml"), new ResultadoIngestao(), (lote, r) -> List.of()));
+
+        assertThat(resultado.getTotal()).isEqualTo(3);
+        assertThat(resultado.getFalhas()).isEqualTo(3);
+        // Os dois lançamentos inesperados são erros; o XML recusado pelo schema, não
+        assertThat(resultado.getErros()).isEqualTo(2);
+    }
+
+    @Test
+    void deveMandarParaAQuarentenaOXmlDoCupomQueOBancoRecusou() {
+        when(processador.validaNoMesmoPasso()).thenReturn(true);
+        when(processador.processar(any(InputStream.class))).thenAnswer(invocacao -> new Cupom());
+        List<String> quarentenados = new ArrayList<>();
+        doAnswer(invocacao -> {
+            // Os bytes precisam estar disponíveis quando a quarentena copia o XML
+            XmlEntrada xml = invocacao.getArgument(0);
+            quarentenados.add(xml.getNome() + " " + new String(xml.abrir().readAllBytes(), StandardCharsets.UTF_8)
+                    + " " + invocacao.getArgument(2));
+            return null;
+        }).when(quarentena).colocar(any(), any(), any());
+
+        pipeline.executar(fonte("a.xml", "b.xml", "c.xml"), new ResultadoIngestao(), (lote, resultado) -> lote.stream()
+                .filter(cupom -> cupom.getArquivoOrigem().equals("b.xml"))
+                .map(cupom -> new CupomNaoGravado(cupom, "violação de chave estrangeira"))
+                .toList());
+
+        assertThat(quarentenados).containsExactly("b.xml <CFe/> " + Desfecho.NAO_GRAVADO);
+    }
+
+    private static FonteXml fonte(String... nomes) {
+        BufferPool bufferPool = new BufferPool();
+        Queue<String> pendentes = new ArrayDeque<>(List.of(nomes));
+        return new FonteXml() {
+            @Override
+            public XmlEntrada proximo() {
+                String nome = pendentes.poll();
+                if (nome == null) {
+                    return null;
+                }
+                byte[] conteudo = "<CFe/>".getBytes(StandardCharsets.UTF_8);
+                return new XmlEntrada(nome, conteudo, conteudo.length, bufferPool);
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+}
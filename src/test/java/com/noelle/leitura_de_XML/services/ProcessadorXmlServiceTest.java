@@ -0,0 +1,134 @@
+package com.noelle.leitura_de_XML.services;
+
+import com.noelle.leitura_de_XML.domain.Cupom;
+import com.noelle.leitura_de_XML.exception.CupomCanceladoException;
+import com.noelle.leitura_de_XML.exception.ProcessamentoException;
+import com.noelle.leitura_de_XML.xml.BufferPool;
+import com.noelle.leitura_de_XML.xml.CfeSatStaxExtractor;
+import com.noelle.leitura_de_XML.xml.EsquemaCfe;
+import com.noelle.leitura_de_XML.xml.LeitorZipXml;
+import com.noelle.leitura_de_XML.xml.TextosInternados;
+import com.noelle.leitura_de_XML.xml.XmlEntrada;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * O extrator StAX precisa montar exatamente o mesmo Cupom que a implementação DOM original
+ */
+class ProcessadorXmlServiceTest {
+
+    private static final String XML_EXEMPLO = "exemplos/CFe35241260892858000130590014453660039237378714.xml";
+    private static final String ZIP_EXEMPLO = "exemplos/2024_12_28.zip";
+    private static final String CANCELAMENTO_EXEMPLO = "exemplos/CFeCanc35888888888888888888888888888888888888888881.xml";
+
+    private ProcessadorXmlService stax;
+    private ProcessadorXmlService dom;
+
+    @BeforeEach
+    void setUp() {
+        stax = criar("stax");
+        dom = criar("dom");
+    }
+
+    @Test
+    void deveExtrairOMesmoCupomQueODom() throws IOException {
+        String xml = new ClassPathResource(XML_EXEMPLO).getContentAsString(StandardCharsets.UTF_8);
+
+        Cupom cupom = stax.processar(xml);
+
+        assertThat(cupom.getChaveAcesso()).isEqualTo("35241260892858000130590014453660039237378714");
+        assertThat(cupom.getItens()).isNotEmpty();
+        assertMesmoCupom(cupom, dom.processar(xml));
+    }
+
+    @Test
+    void deveConcordarComODomEmTodoOZipDeExemplo() throws IOException {
+        int validos = 0;
+        int invalidos = 0;
+        try (InputStream zip = new ClassPathResource(ZIP_EXEMPLO).getInputStream();
+             LeitorZipXml leitor = stax.abrirZip(zip)) {
+            XmlEntrada entrada;
+            while ((entrada = leitor.proximo()) != null) {
+                try (XmlEntrada xml = entrada) {
+                    Cupom esperado;
+                    try {
+                        esperado = dom.processar(xml.abrir());
+                    } catch (ProcessamentoException e) {
+                        // O que o DOM rejeita o StAX também precisa rejeitar
+                        assertThatThrownBy(() -> stax.processar(xml.abrir()))
+                                .as(xml.getNome())
+                                .isInstanceOf(ProcessamentoException.class);
+                        invalidos++;
+                        continue;
+                    }
+                    assertMesmoCupom(stax.processar(xml.abrir()), esperado);
+                    validos++;
+                }
+            }
+        }
+        assertThat(validos).isEqualTo(97);
+        assertThat(invalidos).isEqualTo(2);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"stax", "dom"})
+    void deveReconhecerCancelamentoComValidacaoLigada(String parser) throws IOException {
+        ProcessadorXmlService service = criar(parser);
+        String xml = new ClassPathResource(CANCELAMENTO_EXEMPLO).getContentAsString(StandardCharsets.UTF_8);
+
+        // O CFeCanc precisa passar pelo schema para que a ingestão o aplique como cancelamento
+        assertThat(service.validarXml(xml)).isTrue();
+        assertThatThrownBy(() -> service.processar(xml)).isInstanceOf(CupomCanceladoException.class);
+        assertThatThrownBy(() -> service.processar(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8))))
+                .isInstanceOf(CupomCanceladoException.class);
+        // O documento interrompido não pode deixar estado para o próximo
+        assertThat(service.processar(new ClassPathResource(XML_EXEMPLO).getContentAsString(StandardCharsets.UTF_8)))
+                .isNotNull();
+    }
+
+    @Test
+    void deveValidarXmlConformeOModo() throws IOException {
+        String xml = new ClassPathResource(XML_EXEMPLO).getContentAsString(StandardCharsets.UTF_8)
+                .replace("<CFOP>5405</CFOP>", "<CFOP>ABC</CFOP>");
+
+        assertThat(stax.validarXml(xml)).isFalse();
+        assertThat(criar("dom", new EsquemaCfe("desligada", 100)).validarXml(xml)).isTrue();
+
+        ProcessadorXmlService amostra = criar("dom", new EsquemaCfe("amostra", 2));
+        assertThat(amostra.validarXml(xml)).isFalse();
+        assertThat(amostra.validarXml(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)))).isTrue();
+        assertThat(amostra.validarXml(xml)).isFalse();
+    }
+
+    private static void assertMesmoCupom(Cupom atual, Cupom esperado) {
+        assertThat(atual)
+                .usingRecursiveComparison()
+                .ignoringFields("itens.cupom")
+                .isEqualTo(esperado);
+    }
+
+    static ProcessadorXmlService criar(String parser) {
+        return criar(parser, new EsquemaCfe("todos", 100));
+    }
+
+    static ProcessadorXmlService criar(String parser, EsquemaCfe esquemaCfe) {
+        TextosInternados textos = new TextosInternados();
+        ProcessadorXmlService service = new ProcessadorXmlService(new CfeSatStaxExtractor(textos),
+                esquemaCfe, new BufferPool(), textos);
+        ReflectionTestUtils.setField(service, "parser", parser);
+        ReflectionTestUtils.setField(service, "tamanhoMaximoXml", 8 * 1024 * 1024);
+        return service;
+    }
+}
@@ -0,0 +1,89 @@
+package com.noelle.leitura_de_XML.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ChaveAcessoSetTest {
+
+    private static final String CHAVE = "35241260892858000130590014453660039237378714";
+
+    @Test
+    void deveEncontrarAsChavesAdicionadas() {
+        ChaveAcessoSet conjunto = new ChaveAcessoSet(16);
+        List<String> chaves = chavesAleatorias(new Random(42), 10_000);
+
+        for (String chave : chaves) {
+            assertThat(conjunto.adicionar(chave)).isTrue();
+        }
+
+        assertThat(conjunto.tamanho()).isEqualTo(chaves.size());
+        assertThat(chaves).allMatch(conjunto::contem);
+    }
+
+    @Test
+    void naoDeveEncontrarChavesNuncaAdicionadas() {
+        ChaveAcessoSet conjunto = new ChaveAcessoSet(1_000);
+        chavesAleatorias(new Random(1), 1_000).forEach(conjunto::adicionar);
+
+        assertThat(chavesAleatorias(new Random(2), 1_000)).noneMatch(conjunto::contem);
+    }
+
+    @Test
+    void deveRecusarChaveRepetida() {
+        ChaveAcessoSet conjunto = new ChaveAcessoSet(16);
+
+        assertThat(conjunto.adicionar(CHAVE)).isTrue();
+        assertThat(conjunto.adicionar(CHAVE)).isFalse();
+        assertThat(conjunto.tamanho()).isEqualTo(1);
+    }
+
+    @Test
+    void deveDistinguirChavesQueSoDiferemNosUltimosDigitos() {
+        ChaveAcessoSet conjunto = new ChaveAcessoSet(16);
+        String prefixo = CHAVE.substring(0, 38);
+
+        for (int i = 0; i < 1_000; i++) {
+            assertThat(conjunto.adicionar(prefixo + String.format("%06d", i))).isTrue();
+        }
+
+        assertThat(conjunto.contem(prefixo + "001000")).isFalse();
+        assertThat(conjunto.contem(prefixo + "000999")).isTrue();
+    }
+
+    @Test
+    void deveAceitarChaveDeZeros() {
+        ChaveAcessoSet conjunto = new ChaveAcessoSet(16);
+        String zeros = "0".repeat(44);
+
+        assertThat(conjunto.contem(zeros)).isFalse();
+        assertThat(conjunto.adicionar(zeros)).isTrue();
+        assertThat(conjunto.contem(zeros)).isTrue();
+    }
+
+    @Test
+    void deveConferirOFormatoDaChave() {
+        assertThat(ChaveAcessoSet.empacotavel(CHAVE)).isTrue();
+        assertThat(ChaveAcessoSet.empacotavel(null)).isFalse();
+        assertThat(ChaveAcessoSet.empacotavel(CHAVE.substring(1))).isFalse();
+        assertThat(ChaveAcessoSet.empacotavel(CHAVE + "0")).isFalse();
+        assertThat(ChaveAcessoSet.empacotavel("CFe" + CHAVE.substring(3))).isFalse();
+    }
+
+    private static List<String> chavesAleatorias(Random random, int quantidade) {
+        List<String> chaves = new ArrayList<>(quantidade);
+        StringBuilder chave = new StringBuilder(44);
+        for (int i = 0; i < quantidade; i++) {
+            chave.setLength(0);
+            for (int j = 0; j < 44; j++) {
+                chave.append((char) ('0' + random.nextInt(10)));
+            }
+            chaves.add(chave.toString());
+        }
+        return chaves;
+    }
+}
@@ -0,0 +1,68 @@
+package com.noelle.leitura_de_XML.util;
+
+import com.noelle.leitura_de_XML.exception.ProcessamentoException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TokenPaginacaoTest {
+
+    private static final String CHAVE = "35241260892858000130590014453660039237378714";
+
+    @Test
+    void deveDevolverAsChavesDoToken() {
+        String token = TokenPaginacao.gerar("numero", "445366", CHAVE);
+
+        assertThat(TokenPaginacao.ler(token, "numero", 2)).containsExactly("445366", CHAVE);
+    }
+
+    @Test
+    void deveGerarTokenSeguroParaUrl() {
+        String token = TokenPaginacao.gerar("valor", "1234.56", CHAVE);
+
+        assertThat(token).matches("[A-Za-z0-9_-]+");
+    }
+
+    @Test
+    void devePreservarChavesVaziasEComAcento() {
+        String token = TokenPaginacao.gerar("numero", "", "Ação");
+
+        assertThat(TokenPaginacao.ler(token, "numero", 2)).containsExactly("", "Ação");
+    }
+
+    @Test
+    void deveRejeitarTokenDeOutraListagem() {
+        String token = TokenPaginacao.gerar("numero", "445366", CHAVE);
+
+        assertThatThrownBy(() -> TokenPaginacao.ler(token, "valor", 2))
+                .isInstanceOf(ProcessamentoException.class);
+    }
+
+    @Test
+    void deveRejeitarTokenComQuantidadeErradaDeChaves() {
+        String token = TokenPaginacao.gerar("numero", "445366", CHAVE, "extra");
+
+        assertThatThrownBy(() -> TokenPaginacao.ler(token, "numero", 2))
+                .isInstanceOf(ProcessamentoException.class);
+    }
+
+    @Test
+    void deveRejeitarTokenQueNaoEBase64() {
+        assertThatThrownBy(() -> TokenPaginacao.ler("não é base64!", "numero", 2))
+                .isInstanceOf(ProcessamentoException.class);
+    }
+
+    @Test
+    void deveRejeitarTokenAdulterado() {
+        // Sem o separador, o conteúdo não se divide nas partes esperadas
+        String adulterado = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(("numero445366" + CHAVE).getBytes(StandardCharsets.UTF_8));
+
+        assertThatThrownBy(() -> TokenPaginacao.ler(adulterado, "numero", 2))
+                .isInstanceOf(ProcessamentoException.class);
+    }
+}
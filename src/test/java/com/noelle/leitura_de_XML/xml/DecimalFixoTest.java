@@ -0,0 +1,55 @@
+package com.noelle.leitura_de_XML.xml;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * DecimalFixo precisa dar exatamente o mesmo BigDecimal (valor e escala) que new BigDecimal(String)
+ */
+class DecimalFixoTest {
+
+    @ParameterizedTest
+    @ValueSource(strings = {"0", "0.00", "1.0000", "12.34", "-12.34", "+7.5", "5.", ".5", "255.00", "256.00",
+            "1000.0000", "123456.78", "0.001", "99999999999999999", "-0.00", "00012.300"})
+    void deveLerComoBigDecimal(String texto) {
+        long empacotado = ler(texto);
+
+        assertThat(empacotado).isNotEqualTo(DecimalFixo.FORA_DO_FORMATO);
+        BigDecimal valor = DecimalFixo.paraBigDecimal(empacotado);
+        assertThat(valor).isEqualTo(new BigDecimal(texto));
+        assertThat(valor.scale()).isEqualTo(new BigDecimal(texto).scale());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "-", ".", "1e3", "1E-2", " 1", "1 ", "1.2.3", "abc", "1,50", "--1",
+            "123456789012345678"})
+    void deveDevolverForaDoFormato(String texto) {
+        assertThat(ler(texto)).isEqualTo(DecimalFixo.FORA_DO_FORMATO);
+    }
+
+    @Test
+    void deveLerSoOTrechoPedido() {
+        char[] buffer = "<vProd>19.90</vProd>".toCharArray();
+
+        long empacotado = DecimalFixo.ler(buffer, 7, 5);
+
+        assertThat(DecimalFixo.paraBigDecimal(empacotado)).isEqualTo(new BigDecimal("19.90"));
+    }
+
+    @Test
+    void deveCompartilharAsInstanciasDosValoresComuns() {
+        assertThat(DecimalFixo.paraBigDecimal(ler("1.0000"))).isSameAs(DecimalFixo.paraBigDecimal(ler("1.0000")));
+        assertThat(DecimalFixo.paraBigDecimal(ler("0.65"))).isSameAs(DecimalFixo.paraBigDecimal(ler("0.65")));
+        assertThat(DecimalFixo.paraBigDecimal(DecimalFixo.ZERO_CENTAVOS)).isEqualTo(new BigDecimal("0.00"));
+    }
+
+    private static long ler(String texto) {
+        char[] buffer = texto.toCharArray();
+        return DecimalFixo.ler(buffer, 0, buffer.length);
+    }
+}
@@ -0,0 +1,125 @@
+package com.noelle.leitura_de_XML.xml;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.core.io.ClassPathResource;
+import org.xml.sax.SAXException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * O xsd/cfe-sat.xsd precisa aceitar os exemplos do repositório e recusar o que foge do layout
+ */
+class EsquemaCfeTest {
+
+    private static final String XML_EXEMPLO = "exemplos/CFe35241260892858000130590014453660039237378714.xml";
+    private static final String CANCELAMENTO_EXEMPLO = "exemplos/CFeCanc35888888888888888888888888888888888888888881.xml";
+    private static final String ZIP_EXEMPLO = "exemplos/2024_12_28.zip";
+
+    private static EsquemaCfe esquema;
+    private static String cupom;
+
+    @BeforeAll
+    static void setUp() throws IOException {
+        esquema = new EsquemaCfe("todos", 100);
+        cupom = new ClassPathResource(XML_EXEMPLO).getContentAsString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void deveAceitarOCupomDeExemplo() {
+        assertThatCode(() -> validar(cupom)).doesNotThrowAnyException();
+    }
+
+    @Test
+    void deveAceitarOCancelamentoDeExemplo() throws IOException {
+        String cancelamento = new ClassPathResource(CANCELAMENTO_EXEMPLO).getContentAsString(StandardCharsets.UTF_8);
+
+        assertThatCode(() -> validar(cancelamento)).doesNotThrowAnyException();
+    }
+
+    @Test
+    void deveAceitarOsValidosERecusarOsMalFormadosDoZipDeExemplo() throws IOException {
+        List<String> validos = new ArrayList<>();
+        List<String> invalidos = new ArrayList<>();
+        try (ZipInputStream zip = new ZipInputStream(new ClassPathResource(ZIP_EXEMPLO).getInputStream())) {
+            ZipEntry entrada;
+            while ((entrada = zip.getNextEntry()) != null) {
+                if (entrada.isDirectory() || !entrada.getName().endsWith(".xml")) {
+                    continue;
+                }
+                try {
+                    esquema.validar(new ByteArrayInputStream(zip.readAllBytes()));
+                    validos.add(entrada.getName());
+                } catch (SAXException e) {
+                    invalidos.add(entrada.getName());
+                }
+            }
+        }
+        assertThat(validos).hasSize(97);
+        assertThat(invalidos).containsExactlyInAnyOrder(
+                "CFe35241260892858000130590014453640107720330584.xml",
+                "CFe35241260892858000130590014453640107209784400.xml");
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @CsvSource(delimiter = '|', value = {
+            "CFOP não numérico | <CFOP>5405</CFOP> | <CFOP>ABC</CFOP>",
+            "nCFe ausente | <nCFe>003923</nCFe> | ''",
+            "Id fora do padrão | Id=\"CFe35241260892858000130590014453660039237378714\" | Id=\"CFe123\"",
+            "valor com vírgula | <vCFe>138.75</vCFe> | <vCFe>138,75</vCFe>",
+            "modelo diferente de 59 | <mod>59</mod> | <mod>65</mod>"
+    })
+    void deveRecusarCupomForaDoLayout(String caso, String original, String alterado) {
+        assertThat(cupom).as(caso).contains(original);
+        String xml = cupom.replace(original, alterado);
+
+        assertThatThrownBy(() -> validar(xml)).as(caso).isInstanceOf(SAXException.class);
+    }
+
+    @Test
+    void deveRecusarRaizDesconhecida() {
+        String xml = cupom.replace("<CFe>", "<NFe>").replace("</CFe>", "</NFe>");
+
+        assertThatThrownBy(() -> validar(xml)).isInstanceOf(SAXException.class);
+    }
+
+    @Test
+    void deveRecusarCancelamentoSemChCanc() throws IOException {
+        String cancelamento = new ClassPathResource(CANCELAMENTO_EXEMPLO).getContentAsString(StandardCharsets.UTF_8)
+                .replaceFirst(" chCanc=\"CFe[0-9]+\"", "");
+
+        assertThatThrownBy(() -> validar(cancelamento)).isInstanceOf(SAXException.class);
+    }
+
+    @Test
+    void deveSortearConformeOModo() {
+        EsquemaCfe amostra = new EsquemaCfe("amostra", 3);
+        List<Boolean> sorteios = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            sorteios.add(amostra.sortear());
+        }
+
+        assertThat(sorteios).containsExactly(true, false, false, true, false, false);
+        assertThat(new EsquemaCfe("desligada", 100).sortear()).isFalse();
+        assertThat(new EsquemaCfe(" TODOS ", 100).sortear()).isTrue();
+    }
+
+    private static void validar(String xml) throws SAXException, IOException {
+        try (InputStream conteudo = new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8))) {
+            esquema.validar(conteudo);
+        }
+    }
+}
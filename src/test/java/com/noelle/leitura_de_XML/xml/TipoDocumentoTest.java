@@ -0,0 +1,102 @@
+package com.noelle.leitura_de_XML.xml;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TipoDocumentoTest {
+
+    private static final String DECLARACAO = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>";
+
+    @Test
+    void deveIdentificarCupom() {
+        assertThat(identificar(DECLARACAO + "<CFe><infCFe Id=\"CFe1\"/></CFe>")).isEqualTo(TipoDocumento.CFE);
+    }
+
+    @Test
+    void deveIdentificarCancelamento() {
+        assertThat(identificar(DECLARACAO + "<CFeCanc><infCFe chCanc=\"CFe1\"/></CFeCanc>"))
+                .isEqualTo(TipoDocumento.CANCELAMENTO);
+    }
+
+    @Test
+    void deveIdentificarSemDeclaracaoXml() {
+        assertThat(identificar("<CFeCanc/>")).isEqualTo(TipoDocumento.CANCELAMENTO);
+        assertThat(identificar("<CFe>")).isEqualTo(TipoDocumento.CFE);
+    }
+
+    @Test
+    void devePularBom() {
+        byte[] bom = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+        byte[] xml = (DECLARACAO + "\r\n<CFeCanc>").getBytes(StandardCharsets.UTF_8);
+        byte[] conteudo = new byte[bom.length + xml.length];
+        System.arraycopy(bom, 0, conteudo, 0, bom.length);
+        System.arraycopy(xml, 0, conteudo, bom.length, xml.length);
+
+        assertThat(TipoDocumento.identificar(conteudo, conteudo.length)).isEqualTo(TipoDocumento.CANCELAMENTO);
+    }
+
+    @Test
+    void devePularComentariosEDoctype() {
+        String xml = DECLARACAO + "\n<!-- <CFeCanc> dentro do comentário -->\n"
+                + "<!DOCTYPE CFe>\n<?processamento x?>\t<CFe versao=\"0.08\">";
+
+        assertThat(identificar(xml)).isEqualTo(TipoDocumento.CFE);
+    }
+
+    @Test
+    void deveIgnorarPrefixoDeNamespace() {
+        assertThat(identificar("<sat:CFeCanc xmlns:sat=\"http://www.fazenda.sp.gov.br/sat\">"))
+                .isEqualTo(TipoDocumento.CANCELAMENTO);
+        assertThat(identificar("<a:b:CFe>")).isEqualTo(TipoDocumento.CFE);
+    }
+
+    @Test
+    void naoDeveConfundirNomesParecidos() {
+        assertThat(identificar("<CFeCancelado/>")).isEqualTo(TipoDocumento.DESCONHECIDO);
+        assertThat(identificar("<CF/>")).isEqualTo(TipoDocumento.DESCONHECIDO);
+        assertThat(identificar("<envCFe><CFe/></envCFe>")).isEqualTo(TipoDocumento.DESCONHECIDO);
+    }
+
+    @Test
+    void deveSerDesconhecidoQuandoTruncado() {
+        assertThat(identificar("")).isEqualTo(TipoDocumento.DESCONHECIDO);
+        assertThat(identificar("<")).isEqualTo(TipoDocumento.DESCONHECIDO);
+        assertThat(identificar("<CFeCanc")).isEqualTo(TipoDocumento.DESCONHECIDO);
+        assertThat(identificar(DECLARACAO.substring(0, 20))).isEqualTo(TipoDocumento.DESCONHECIDO);
+        assertThat(identificar("<!-- comentário sem fim <CFe>")).isEqualTo(TipoDocumento.DESCONHECIDO);
+    }
+
+    @Test
+    void deveConsiderarSoOTamanhoInformado() {
+        byte[] conteudo = "<CFeCanc/>".getBytes(StandardCharsets.UTF_8);
+
+        assertThat(TipoDocumento.identificar(conteudo, 4)).isEqualTo(TipoDocumento.DESCONHECIDO);
+    }
+
+    @Test
+    void deveSerDesconhecidoQuandoARaizPassaDoPrefixo() {
+        String xml = "<!--" + " ".repeat(TipoDocumento.PREFIXO_MAXIMO) + "--><CFeCanc/>";
+
+        assertThat(identificar(xml)).isEqualTo(TipoDocumento.DESCONHECIDO);
+    }
+
+    @Test
+    void deveSerDesconhecidoEmEncodingNaoAscii() {
+        byte[] conteudo = "<CFeCanc/>".getBytes(StandardCharsets.UTF_16);
+
+        assertThat(TipoDocumento.identificar(conteudo, conteudo.length)).isEqualTo(TipoDocumento.DESCONHECIDO);
+    }
+
+    @Test
+    void deveSerDesconhecidoParaTextoQueNaoEXml() {
+        assertThat(identificar("CFeCanc")).isEqualTo(TipoDocumento.DESCONHECIDO);
+    }
+
+    private static TipoDocumento identificar(String xml) {
+        byte[] conteudo = xml.getBytes(StandardCharsets.UTF_8);
+        return TipoDocumento.identificar(conteudo, conteudo.length);
+    }
+}